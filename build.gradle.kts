@@ -40,7 +40,7 @@ tasks.wrapper {
 
 omegat {
     version("6.0.0")
-    pluginClass("org.omegat.machinetranslators.deepl.DeepLTranslate2")
+    pluginClass("org.omegat.machinetranslators.deepl.DeepLPlugin")
     packIntoJarFileFilter = {it.exclude("META-INF/**/*", "module-info.class", "kotlin/**/*")}
 }
 
@@ -59,6 +59,18 @@ val testIntegrationRuntimeOnly by configurations.getting {
     extendsFrom(configurations.runtimeOnly.get())
 }
 
+sourceSets.register("jmh") {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+val jmhImplementation by configurations.getting {
+    extendsFrom(configurations.testImplementation.get())
+}
+val jmhRuntimeOnly by configurations.getting {
+    extendsFrom(configurations.testRuntimeOnly.get())
+}
+val jmhAnnotationProcessor by configurations.getting
+
 dependencies {
     packIntoJar(libs.deepl.java)
 
@@ -68,8 +80,12 @@ dependencies {
     testImplementation(platform(libs.junit.bom))
     testImplementation(libs.junit.jupiter)
     testImplementation(libs.wiremock)
+    testImplementation(libs.deepl.java)
     testRuntimeOnly(libs.slf4j.simple)
 
+    jmhImplementation(libs.jmh.core)
+    jmhAnnotationProcessor(libs.jmh.generator)
+
     testIntegrationImplementation(libs.deepl.java)
     testIntegrationImplementation(platform(libs.junit.bom))
     testIntegrationImplementation(libs.junit.jupiter)
@@ -99,6 +115,24 @@ tasks.register<Test>("testIntegration") {
     environment("DEEPL_API_KEY", System.getenv("DEEPL_API_KEY") ?: "")
 }
 
+tasks.register<JavaExec>("jmh") {
+    description = "Runs JMH benchmarks. Pass JMH options with -PjmhArgs=\"...\"."
+    group = "verification"
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    val resultFile = layout.buildDirectory.file("reports/jmh/results.json").get().asFile
+    val extraArgs = (project.findProperty("jmhArgs") as String?)?.split(" ")?.filter { it.isNotBlank() } ?: listOf()
+    args = listOf("-rf", "json", "-rff", resultFile.path) + extraArgs
+    doFirst {
+        resultFile.parentFile.mkdirs()
+    }
+}
+
+// Benchmarks include JMH generated code, which is not subject to static analysis.
+tasks.matching { it.name == "spotbugsJmh" }.configureEach {
+    enabled = false
+}
+
 publishing {
     publications {
         create<MavenPublication>("mavenJava") {
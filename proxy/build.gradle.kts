@@ -0,0 +1,43 @@
+plugins {
+    java
+    application
+    id("com.diffplug.spotless")
+}
+
+repositories {
+    mavenCentral()
+}
+
+dependencies {
+    implementation(libs.caffeine)
+
+    testImplementation(platform(libs.junit.bom))
+    testImplementation(libs.junit.jupiter)
+    testImplementation(libs.wiremock)
+    testRuntimeOnly(libs.junit.launcher)
+    testRuntimeOnly(libs.slf4j.simple)
+}
+
+java {
+    toolchain {
+        languageVersion.set(JavaLanguageVersion.of(11))
+    }
+}
+
+application {
+    mainClass.set("org.omegat.machinetranslators.deepl.proxy.DeepLProxy")
+}
+
+tasks.named<Test>("test") {
+    useJUnitPlatform()
+}
+
+spotless {
+    java {
+        target(listOf("src/*/java/**/*.java"))
+        palantirJavaFormat()
+        importOrder()
+        removeUnusedImports()
+        formatAnnotations()
+    }
+}
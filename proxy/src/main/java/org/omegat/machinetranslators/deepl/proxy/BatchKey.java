@@ -0,0 +1,117 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.omegat.machinetranslators.deepl.proxy;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * What texts must share to be sent upstream in one request: the server, the
+ * API key and every request parameter except the texts.
+ * <p>
+ * The parameters alone make up the options, which key the cache: a text
+ * translated for one client serves every client asking with the same options,
+ * whatever key it uses.
+ *
+ * @author Hiroshi Miura
+ */
+final class BatchKey {
+    private final String serverUrl;
+    private final String authKey;
+    private final List<Map.Entry<String, String>> parameters;
+    private final String options;
+
+    /**
+     * @param serverUrl upstream server URL.
+     * @param authKey upstream API key.
+     * @param parameters request parameters other than the texts.
+     */
+    BatchKey(String serverUrl, String authKey, List<Map.Entry<String, String>> parameters) {
+        this.serverUrl = serverUrl;
+        this.authKey = authKey;
+        List<Map.Entry<String, String>> sorted = new ArrayList<>(parameters);
+        sorted.sort(Map.Entry.<String, String>comparingByKey().thenComparing(Map.Entry.comparingByValue()));
+        this.parameters = Collections.unmodifiableList(sorted);
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, String> parameter : this.parameters) {
+            if (sb.length() > 0) {
+                sb.append('&');
+            }
+            sb.append(encode(parameter.getKey())).append('=').append(encode(parameter.getValue()));
+        }
+        this.options = sb.toString();
+    }
+
+    static Map.Entry<String, String> parameter(String name, String value) {
+        return new AbstractMap.SimpleImmutableEntry<>(name, value);
+    }
+
+    static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    String getServerUrl() {
+        return serverUrl;
+    }
+
+    String getAuthKey() {
+        return authKey;
+    }
+
+    List<Map.Entry<String, String>> getParameters() {
+        return parameters;
+    }
+
+    /**
+     * @return the parameters in a canonical form.
+     */
+    String getOptions() {
+        return options;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof BatchKey)) {
+            return false;
+        }
+        BatchKey that = (BatchKey) o;
+        return serverUrl.equals(that.serverUrl) && authKey.equals(that.authKey) && options.equals(that.options);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(serverUrl, authKey, options);
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package org.omegat.machinetranslators.deepl.proxy;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides which API key a client is served with.
+ * <p>
+ * With a team API key, a client has to present one of the proxy's client
+ * tokens where DeepL expects the API key. Without one, each client uses its
+ * own key, which is checked against DeepL before the shared cache answers for
+ * it, so that a made-up key gets no cached translations.
+ *
+ * @author Hiroshi Miura
+ */
+final class ClientAuthenticator {
+    static final String AUTH_PREFIX = "DeepL-Auth-Key ";
+    private static final String USAGE_PATH = "/v2/usage";
+    private static final long MAX_KEYS = 10_000;
+
+    private final DeepLUpstream upstream;
+    private final String serverUrl;
+    private final String authKey;
+    private final List<byte[]> clientTokens = new ArrayList<>();
+    private final Cache<String, Boolean> validKeys = Caffeine.newBuilder()
+            .maximumSize(MAX_KEYS)
+            .expireAfterWrite(10, TimeUnit.MINUTES)
+            .build();
+    private final Cache<String, Boolean> invalidKeys = Caffeine.newBuilder()
+            .maximumSize(MAX_KEYS)
+            .expireAfterWrite(1, TimeUnit.MINUTES)
+            .build();
+
+    /**
+     * @param upstream the DeepL server.
+     * @param serverUrl upstream server URL, or null to choose it from the key.
+     * @param authKey team API key used upstream, or null to use the key of
+     *            each client.
+     * @param clientTokens tokens clients authenticate with; required with a
+     *            team API key.
+     * @throws IllegalArgumentException when a team API key is given without
+     *             client tokens.
+     */
+    ClientAuthenticator(DeepLUpstream upstream, String serverUrl, String authKey, Collection<String> clientTokens) {
+        if (authKey != null && clientTokens.isEmpty()) {
+            throw new IllegalArgumentException("A team API key needs at least one client token");
+        }
+        this.upstream = upstream;
+        this.serverUrl = serverUrl;
+        this.authKey = authKey;
+        for (String token : clientTokens) {
+            this.clientTokens.add(token.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Returns the key to call DeepL with, without checking a client's own key.
+     * Used for requests DeepL checks the key of itself.
+     *
+     * @param clientKey key or token sent by the client, or null.
+     * @return the key, or null when the client is refused.
+     */
+    String resolve(String clientKey) {
+        if (clientKey == null || clientKey.isEmpty()) {
+            return null;
+        }
+        if (authKey == null) {
+            return clientKey;
+        }
+        byte[] candidate = clientKey.getBytes(StandardCharsets.UTF_8);
+        for (byte[] token : clientTokens) {
+            if (MessageDigest.isEqual(token, candidate)) {
+                return authKey;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the key to call DeepL with. A client's own key is checked
+     * against DeepL's usage endpoint first; the result is remembered for a
+     * while.
+     *
+     * @param clientKey key or token sent by the client, or null.
+     * @return the key, or null when the client is refused.
+     * @throws IOException when DeepL cannot check the key.
+     */
+    String authenticate(String clientKey) throws IOException, InterruptedException {
+        String key = resolve(clientKey);
+        if (key == null || authKey != null || validKeys.getIfPresent(key) != null) {
+            return key;
+        }
+        if (invalidKeys.getIfPresent(key) != null) {
+            return null;
+        }
+        int status = upstream.forward(
+                        DeepLUpstream.getServerUrl(serverUrl, key),
+                        "GET",
+                        USAGE_PATH,
+                        Map.of("Authorization", AUTH_PREFIX + key),
+                        new byte[0])
+                .statusCode();
+        // A key over its quota is still a key: cached translations cost nothing.
+        if (status == 200 || status == 456) {
+            validKeys.put(key, Boolean.TRUE);
+            return key;
+        }
+        if (status == 401 || status == 403) {
+            invalidKeys.put(key, Boolean.TRUE);
+            return null;
+        }
+        throw new IOException("DeepL answered " + status + " to the key check");
+    }
+}
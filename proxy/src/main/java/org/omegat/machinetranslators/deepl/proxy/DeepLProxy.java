@@ -0,0 +1,233 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.omegat.machinetranslators.deepl.proxy;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Caching DeepL proxy shared by a team of translators.
+ * <p>
+ * The proxy speaks the DeepL {@code /v2/translate} protocol. OmegaT instances
+ * point at it with the {@code deepl.server.url} preference. Each text is
+ * translated once for all clients: translations are cached in memory, texts
+ * requested by several clients at the same time are sent once, and misses
+ * arriving within a short linger time are sent upstream together. Reading
+ * requests, such as the language list, usage or glossaries, are passed on to
+ * DeepL; others only when the proxy is told to forward everything.
+ * <p>
+ * When started with a team API key, the proxy uses it for every upstream call.
+ * Clients then enter one of the proxy's client tokens as their API key.
+ * Otherwise each client's key is checked with DeepL and used for its requests.
+ *
+ * <pre>
+ * java -jar deepl-proxy.jar --port 8090 --auth-key KEY --client-token TOKEN
+ * </pre>
+ *
+ * @author Hiroshi Miura
+ */
+public final class DeepLProxy {
+    public static final int DEFAULT_PORT = 8090;
+    public static final long DEFAULT_CACHE_CHARS = 64_000_000L;
+    public static final long DEFAULT_LINGER_MILLIS = 20;
+
+    private static final Logger LOGGER = Logger.getLogger(DeepLProxy.class.getName());
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration UPSTREAM_TIMEOUT = Duration.ofSeconds(60);
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final UpstreamBatcher batcher;
+
+    /**
+     * Creates the proxy. It does not accept connections before
+     * {@link #start()}.
+     *
+     * @param address address to listen on; port 0 picks a free port.
+     * @param serverUrl upstream server URL, or null to choose the Free or Pro
+     *            server from the API key.
+     * @param authKey team API key used upstream, or null to use the key of
+     *            each client.
+     * @param clientTokens tokens clients authenticate with; required with a
+     *            team API key.
+     * @param forwardAll whether requests that change data, such as creating
+     *            or deleting glossaries, are passed on to DeepL.
+     * @param cacheChars characters of texts and translations kept in the
+     *            cache.
+     * @param lingerMillis time a batch waits for more texts before it is
+     *            sent upstream.
+     * @throws IOException when the address cannot be bound.
+     * @throws IllegalArgumentException when a team API key is given without
+     *             client tokens.
+     */
+    public DeepLProxy(
+            InetSocketAddress address,
+            String serverUrl,
+            String authKey,
+            Collection<String> clientTokens,
+            boolean forwardAll,
+            long cacheChars,
+            long lingerMillis)
+            throws IOException {
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(CONNECT_TIMEOUT)
+                .build();
+        DeepLUpstream upstream = new DeepLUpstream(client, UPSTREAM_TIMEOUT);
+        ClientAuthenticator authenticator = new ClientAuthenticator(upstream, serverUrl, authKey, clientTokens);
+        batcher = new UpstreamBatcher(upstream, cacheChars, lingerMillis);
+        server = HttpServer.create(address, 0);
+        server.createContext(
+                DeepLUpstream.TRANSLATE_PATH,
+                new TranslateHandler(batcher, authenticator, serverUrl, UPSTREAM_TIMEOUT.toMillis() * 2));
+        server.createContext("/proxy/stats", exchange -> {
+            try {
+                String stats = "{\"cache_hits\":" + batcher.getCacheHits()
+                        + ",\"deduplicated\":" + batcher.getDeduplicated()
+                        + ",\"upstream_requests\":" + batcher.getUpstreamRequests()
+                        + ",\"upstream_texts\":" + batcher.getUpstreamTexts() + "}";
+                exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+                TranslateHandler.send(exchange, 200, stats.getBytes(StandardCharsets.UTF_8));
+            } finally {
+                exchange.close();
+            }
+        });
+        server.createContext("/", new ForwardHandler(upstream, authenticator, serverUrl, forwardAll));
+        AtomicInteger count = new AtomicInteger();
+        executor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "DeepL proxy-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+    }
+
+    public void start() {
+        server.start();
+        LOGGER.info("DeepL proxy listening on " + server.getAddress());
+    }
+
+    public void stop() {
+        server.stop(0);
+        batcher.shutdown();
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return the port the proxy listens on.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Starts the proxy. Options are {@code --bind}, {@code --port},
+     * {@code --upstream}, {@code --auth-key}, {@code --client-token} (may be
+     * repeated), {@code --forward-all}, {@code --cache-chars} and
+     * {@code --linger-ms}. The API key may also be given in the
+     * {@code DEEPL_API_KEY} environment variable, and comma separated client
+     * tokens in {@code DEEPL_PROXY_CLIENT_TOKENS}.
+     *
+     * @param args command line options.
+     * @throws IOException when the address cannot be bound.
+     */
+    public static void main(String[] args) throws IOException {
+        String bind = "127.0.0.1";
+        int port = DEFAULT_PORT;
+        String serverUrl = null;
+        String authKey = System.getenv("DEEPL_API_KEY");
+        List<String> clientTokens = new ArrayList<>();
+        String tokens = System.getenv("DEEPL_PROXY_CLIENT_TOKENS");
+        if (tokens != null) {
+            Arrays.stream(tokens.split(",")).map(String::trim).filter(t -> !t.isEmpty()).forEach(clientTokens::add);
+        }
+        boolean forwardAll = false;
+        long cacheChars = DEFAULT_CACHE_CHARS;
+        long lingerMillis = DEFAULT_LINGER_MILLIS;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--bind":
+                    bind = getValue(args, ++i);
+                    break;
+                case "--port":
+                    port = Integer.parseInt(getValue(args, ++i));
+                    break;
+                case "--upstream":
+                    serverUrl = getValue(args, ++i);
+                    break;
+                case "--auth-key":
+                    authKey = getValue(args, ++i);
+                    break;
+                case "--client-token":
+                    clientTokens.add(getValue(args, ++i));
+                    break;
+                case "--forward-all":
+                    forwardAll = true;
+                    break;
+                case "--cache-chars":
+                    cacheChars = Long.parseLong(getValue(args, ++i));
+                    break;
+                case "--linger-ms":
+                    lingerMillis = Long.parseLong(getValue(args, ++i));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        if (authKey != null && authKey.isEmpty()) {
+            authKey = null;
+        }
+        DeepLProxy proxy = new DeepLProxy(
+                new InetSocketAddress(bind, port),
+                serverUrl,
+                authKey,
+                clientTokens,
+                forwardAll,
+                cacheChars,
+                lingerMillis);
+        Runtime.getRuntime().addShutdownHook(new Thread(proxy::stop));
+        proxy.start();
+    }
+
+    private static String getValue(String[] args, int i) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + args[i - 1]);
+        }
+        return args[i];
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.omegat.machinetranslators.deepl.proxy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Calls the DeepL server the proxy stands in front of.
+ *
+ * @author Hiroshi Miura
+ */
+final class DeepLUpstream {
+    static final String FREE_SERVER_URL = "https://api-free.deepl.com";
+    static final String PRO_SERVER_URL = "https://api.deepl.com";
+    static final String TRANSLATE_PATH = "/v2/translate";
+
+    private final HttpClient client;
+    private final Duration timeout;
+
+    /**
+     * @param client the HTTP client.
+     * @param timeout time to wait for a response.
+     */
+    DeepLUpstream(HttpClient client, Duration timeout) {
+        this.client = client;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Returns the server to call.
+     *
+     * @param serverUrl configured server URL, or null to choose the Free or
+     *            Pro server from the key.
+     * @param authKey the API key.
+     * @return server URL without trailing slash.
+     */
+    static String getServerUrl(String serverUrl, String authKey) {
+        String server = serverUrl != null ? serverUrl : authKey.endsWith(":fx") ? FREE_SERVER_URL : PRO_SERVER_URL;
+        return server.replaceAll("/+$", "");
+    }
+
+    /**
+     * Translates the texts in one request.
+     *
+     * @param key server, key and parameters of the request.
+     * @param texts the texts.
+     * @return translations, in the order of the texts.
+     * @throws UpstreamException when DeepL answers with an error status.
+     * @throws IOException when DeepL cannot be reached or answers garbage.
+     */
+    List<Translation> translate(BatchKey key, List<String> texts)
+            throws UpstreamException, IOException, InterruptedException {
+        StringBuilder form = new StringBuilder();
+        for (String text : texts) {
+            form.append(form.length() == 0 ? "" : "&").append("text=").append(BatchKey.encode(text));
+        }
+        if (!key.getOptions().isEmpty()) {
+            form.append('&').append(key.getOptions());
+        }
+        form.append("&show_billed_characters=1");
+        HttpRequest request = HttpRequest.newBuilder(URI.create(key.getServerUrl() + TRANSLATE_PATH))
+                .header("Authorization", "DeepL-Auth-Key " + key.getAuthKey())
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .header("Accept-Encoding", "gzip")
+                .timeout(timeout)
+                .POST(HttpRequest.BodyPublishers.ofString(form.toString()))
+                .build();
+        HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        byte[] body = readBody(response);
+        if (response.statusCode() != 200) {
+            throw new UpstreamException(
+                    response.statusCode(),
+                    body,
+                    response.headers().firstValue("Retry-After").orElse(null));
+        }
+        List<Translation> translations = parseTranslations(new String(body, StandardCharsets.UTF_8));
+        if (translations.size() != texts.size()) {
+            throw new IOException("DeepL returned " + translations.size() + " translations for " + texts.size()
+                    + " texts");
+        }
+        return translations;
+    }
+
+    /**
+     * Passes a request other than a translation on unchanged.
+     *
+     * @param serverUrl the server.
+     * @param method the HTTP method.
+     * @param pathAndQuery path and raw query of the request.
+     * @param headers headers to send.
+     * @param body request body, empty for none.
+     * @return the response.
+     */
+    HttpResponse<byte[]> forward(
+            String serverUrl, String method, String pathAndQuery, Map<String, String> headers, byte[] body)
+            throws IOException, InterruptedException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(serverUrl + pathAndQuery))
+                .timeout(timeout)
+                .method(
+                        method,
+                        body.length == 0
+                                ? HttpRequest.BodyPublishers.noBody()
+                                : HttpRequest.BodyPublishers.ofByteArray(body));
+        headers.forEach(builder::header);
+        return client.send(builder.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private static byte[] readBody(HttpResponse<InputStream> response) throws IOException {
+        boolean gzip = response.headers()
+                .firstValue("Content-Encoding")
+                .map(v -> v.equalsIgnoreCase("gzip"))
+                .orElse(false);
+        try (InputStream in = gzip ? new GZIPInputStream(response.body()) : response.body()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            in.transferTo(out);
+            return out.toByteArray();
+        }
+    }
+
+    static List<Translation> parseTranslations(String body) throws IOException {
+        List<Translation> results = new ArrayList<>();
+        try {
+            Map<?, ?> root = (Map<?, ?>) Json.parse(body);
+            for (Object item : (List<?>) root.get("translations")) {
+                Map<?, ?> translation = (Map<?, ?>) item;
+                Object billed = translation.get("billed_characters");
+                results.add(new Translation(
+                        (String) translation.get("text"),
+                        (String) translation.get("detected_source_language"),
+                        billed == null ? 0 : ((Number) billed).intValue()));
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("Unexpected response from DeepL", e);
+        }
+        return results;
+    }
+}
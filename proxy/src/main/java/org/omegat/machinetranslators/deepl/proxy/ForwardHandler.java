@@ -0,0 +1,144 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.omegat.machinetranslators.deepl.proxy;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpResponse;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Passes requests other than a translation, such as the language list, usage
+ * and glossaries, on to DeepL, so that clients can use the proxy as their
+ * server URL.
+ * <p>
+ * Only reading requests are passed on by default. Creating or deleting
+ * glossaries with the team key is left to the proxy's owner unless the proxy
+ * is told to forward everything.
+ *
+ * @author Hiroshi Miura
+ */
+final class ForwardHandler implements HttpHandler {
+    private static final Logger LOGGER = Logger.getLogger(ForwardHandler.class.getName());
+    private static final List<String> READ_ONLY_PATHS = List.of(
+            "/v2/languages", "/v2/usage", "/v2/glossary-language-pairs", "/v2/glossaries", "/v3/glossaries");
+    private static final List<String> REQUEST_HEADERS = List.of("Content-Type", "Accept", "User-Agent");
+    private static final List<String> RESPONSE_HEADERS = List.of("Content-Type", "Retry-After");
+
+    private final DeepLUpstream upstream;
+    private final ClientAuthenticator authenticator;
+    private final String serverUrl;
+    private final boolean forwardAll;
+
+    /**
+     * @param upstream the DeepL server.
+     * @param authenticator decides the key each client is served with.
+     * @param serverUrl upstream server URL, or null to choose it from the key.
+     * @param forwardAll whether requests that change data are passed on too.
+     */
+    ForwardHandler(
+            DeepLUpstream upstream, ClientAuthenticator authenticator, String serverUrl, boolean forwardAll) {
+        this.upstream = upstream;
+        this.authenticator = authenticator;
+        this.serverUrl = serverUrl;
+        this.forwardAll = forwardAll;
+    }
+
+    /**
+     * @return whether the request only reads data DeepL keeps for the key.
+     */
+    static boolean isReadOnly(String method, String path) {
+        if (!"GET".equalsIgnoreCase(method) && !"HEAD".equalsIgnoreCase(method)) {
+            return false;
+        }
+        return READ_ONLY_PATHS.stream().anyMatch(p -> path.equals(p) || path.startsWith(p + "/"));
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            URI uri = exchange.getRequestURI().normalize();
+            if (!forwardAll && !isReadOnly(exchange.getRequestMethod(), uri.getRawPath())) {
+                exchange.sendResponseHeaders(403, -1);
+                return;
+            }
+            // DeepL checks a client's own key itself.
+            String key = authenticator.resolve(TranslateHandler.getClientKey(exchange));
+            if (key == null) {
+                exchange.sendResponseHeaders(403, -1);
+                return;
+            }
+            Map<String, String> headers = new LinkedHashMap<>();
+            for (String name : REQUEST_HEADERS) {
+                String value = exchange.getRequestHeaders().getFirst(name);
+                if (value != null) {
+                    headers.put(name, value);
+                }
+            }
+            headers.put("Authorization", ClientAuthenticator.AUTH_PREFIX + key);
+            byte[] body;
+            try (InputStream in = exchange.getRequestBody()) {
+                body = in.readAllBytes();
+            }
+            String pathAndQuery = uri.getRawPath() + (uri.getRawQuery() == null ? "" : "?" + uri.getRawQuery());
+            HttpResponse<byte[]> response;
+            try {
+                response = upstream.forward(
+                        DeepLUpstream.getServerUrl(serverUrl, key),
+                        exchange.getRequestMethod(),
+                        pathAndQuery,
+                        headers,
+                        body);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "DeepL request failed", e);
+                exchange.sendResponseHeaders(502, -1);
+                return;
+            }
+            for (String name : RESPONSE_HEADERS) {
+                response.headers().firstValue(name).ifPresent(v -> exchange.getResponseHeaders().set(name, v));
+            }
+            byte[] responseBody = response.body();
+            exchange.sendResponseHeaders(response.statusCode(), responseBody.length == 0 ? -1 : responseBody.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(responseBody);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+}
@@ -0,0 +1,290 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.omegat.machinetranslators.deepl.proxy;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Answers {@code POST /v2/translate} like DeepL does, from the shared cache
+ * where possible.
+ * <p>
+ * Requests are read as a form or as JSON. The texts are looked up one by one,
+ * the misses are sent upstream by the {@link UpstreamBatcher}, and the
+ * response is assembled in the order of the request. An error status of
+ * DeepL is passed on to the client unchanged. Clients are authenticated by
+ * the {@link ClientAuthenticator} before anything is served.
+ *
+ * @author Hiroshi Miura
+ */
+final class TranslateHandler implements HttpHandler {
+    private static final Logger LOGGER = Logger.getLogger(TranslateHandler.class.getName());
+
+    /**
+     * Parameters that do not change the translation. They are not part of the
+     * batch key, and billed characters are always requested upstream.
+     */
+    private static final List<String> IGNORED_PARAMETERS = List.of("auth_key", "show_billed_characters");
+
+    private final UpstreamBatcher batcher;
+    private final ClientAuthenticator authenticator;
+    private final String serverUrl;
+    private final long timeoutMillis;
+
+    /**
+     * @param batcher the shared cache and batcher.
+     * @param authenticator decides the key each client is served with.
+     * @param serverUrl upstream server URL, or null to choose it from the key.
+     * @param timeoutMillis time a client waits for its translations.
+     */
+    TranslateHandler(
+            UpstreamBatcher batcher, ClientAuthenticator authenticator, String serverUrl, long timeoutMillis) {
+        this.batcher = batcher;
+        this.authenticator = authenticator;
+        this.serverUrl = serverUrl;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+                sendError(exchange, 405, "Method not allowed");
+                return;
+            }
+            List<Map.Entry<String, String>> parameters;
+            try {
+                parameters = readParameters(exchange);
+            } catch (RuntimeException e) {
+                sendError(exchange, 400, "Malformed request body");
+                return;
+            }
+            List<String> texts = new ArrayList<>();
+            List<Map.Entry<String, String>> options = new ArrayList<>();
+            String clientKey = getClientKey(exchange);
+            for (Map.Entry<String, String> parameter : parameters) {
+                if ("text".equals(parameter.getKey())) {
+                    texts.add(parameter.getValue());
+                } else if ("auth_key".equals(parameter.getKey()) && clientKey == null) {
+                    clientKey = parameter.getValue();
+                } else if (!IGNORED_PARAMETERS.contains(parameter.getKey())) {
+                    options.add(parameter);
+                }
+            }
+            if (texts.isEmpty()) {
+                sendError(exchange, 400, "Parameter 'text' not specified.");
+                return;
+            }
+            if (options.stream().noneMatch(p -> "target_lang".equals(p.getKey()))) {
+                sendError(exchange, 400, "Value for 'target_lang' not supported.");
+                return;
+            }
+            String key;
+            try {
+                key = authenticator.authenticate(clientKey);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "DeepL key check failed", e);
+                sendError(exchange, 502, "DeepL is unreachable: " + e.getMessage());
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                sendError(exchange, 503, "Proxy is shutting down");
+                return;
+            }
+            if (key == null) {
+                sendError(exchange, 403, "Authorization failure, check auth_key");
+                return;
+            }
+            BatchKey batchKey = new BatchKey(DeepLUpstream.getServerUrl(serverUrl, key), key, options);
+            translate(exchange, batchKey, texts);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void translate(HttpExchange exchange, BatchKey batchKey, List<String> texts) throws IOException {
+        List<CompletableFuture<Translation>> futures = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            futures.add(batcher.translate(batchKey, text));
+        }
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+                    .get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UpstreamException) {
+                UpstreamException upstreamError = (UpstreamException) cause;
+                if (upstreamError.getRetryAfter() != null) {
+                    exchange.getResponseHeaders().set("Retry-After", upstreamError.getRetryAfter());
+                }
+                send(exchange, upstreamError.getStatus(), upstreamError.getBody());
+            } else {
+                LOGGER.log(Level.WARNING, "DeepL request failed", cause);
+                sendError(exchange, 502, "DeepL is unreachable: " + cause.getMessage());
+            }
+            return;
+        } catch (TimeoutException e) {
+            sendError(exchange, 504, "DeepL did not answer in time");
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            sendError(exchange, 503, "Proxy is shutting down");
+            return;
+        }
+        StringBuilder sb = new StringBuilder("{\"translations\":[");
+        for (int i = 0; i < futures.size(); i++) {
+            Translation translation = futures.get(i).join();
+            sb.append(i == 0 ? "{" : ",{");
+            if (translation.getDetectedSourceLanguage() != null) {
+                sb.append("\"detected_source_language\":");
+                Json.quote(sb, translation.getDetectedSourceLanguage());
+                sb.append(',');
+            }
+            sb.append("\"text\":");
+            Json.quote(sb, translation.getText());
+            sb.append(",\"billed_characters\":").append(translation.getBilledCharacters()).append('}');
+        }
+        sb.append("]}");
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        send(exchange, 200, sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String getClientKey(HttpExchange exchange) {
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        if (authorization != null && authorization.startsWith(ClientAuthenticator.AUTH_PREFIX)) {
+            return authorization.substring(ClientAuthenticator.AUTH_PREFIX.length()).trim();
+        }
+        return null;
+    }
+
+    /**
+     * Reads the parameters of the query and of the body, which is a form or a
+     * JSON object.
+     */
+    static List<Map.Entry<String, String>> readParameters(HttpExchange exchange) throws IOException {
+        List<Map.Entry<String, String>> parameters = new ArrayList<>();
+        parseForm(exchange.getRequestURI().getRawQuery(), parameters);
+        String body;
+        try (InputStream in = exchange.getRequestBody()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            in.transferTo(out);
+            body = out.toString(StandardCharsets.UTF_8);
+        }
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        if (contentType != null && contentType.toLowerCase().startsWith("application/json")) {
+            parseJson(body, parameters);
+        } else {
+            parseForm(body, parameters);
+        }
+        return parameters;
+    }
+
+    static void parseForm(String form, List<Map.Entry<String, String>> parameters) {
+        if (form == null || form.isEmpty()) {
+            return;
+        }
+        for (String pair : form.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int eq = pair.indexOf('=');
+            String name = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            parameters.add(BatchKey.parameter(
+                    URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8)));
+        }
+    }
+
+    static void parseJson(String body, List<Map.Entry<String, String>> parameters) {
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) Json.parse(body)).entrySet()) {
+            String name = (String) entry.getKey();
+            Object value = entry.getValue();
+            if (value instanceof List) {
+                List<String> values = new ArrayList<>();
+                for (Object item : (List<?>) value) {
+                    values.add(toString(item));
+                }
+                if ("text".equals(name)) {
+                    values.forEach(text -> parameters.add(BatchKey.parameter(name, text)));
+                } else {
+                    parameters.add(BatchKey.parameter(name, String.join(",", values)));
+                }
+            } else if (value != null) {
+                parameters.add(BatchKey.parameter(name, toString(value)));
+            }
+        }
+    }
+
+    private static String toString(Object value) {
+        if (value instanceof Double && ((Double) value) == Math.rint((Double) value)) {
+            return Long.toString(((Double) value).longValue());
+        }
+        return String.valueOf(value);
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        StringBuilder sb = new StringBuilder("{\"message\":");
+        Json.quote(sb, message);
+        sb.append('}');
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        send(exchange, status, sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Sends the body, gzip-compressed when the client accepts it.
+     */
+    static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        String accept = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (accept != null && accept.toLowerCase().contains("gzip")) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+                out.write(body);
+            }
+            body = compressed.toByteArray();
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.omegat.machinetranslators.deepl.proxy;
+
+/**
+ * One translated text as returned by DeepL.
+ *
+ * @author Hiroshi Miura
+ */
+final class Translation {
+    private final String text;
+    private final String detectedSourceLanguage;
+    private final int billedCharacters;
+
+    Translation(String text, String detectedSourceLanguage, int billedCharacters) {
+        this.text = text;
+        this.detectedSourceLanguage = detectedSourceLanguage;
+        this.billedCharacters = billedCharacters;
+    }
+
+    String getText() {
+        return text;
+    }
+
+    String getDetectedSourceLanguage() {
+        return detectedSourceLanguage;
+    }
+
+    int getBilledCharacters() {
+        return billedCharacters;
+    }
+
+    /**
+     * @return the same translation with no billed characters, for clients
+     *         served from the cache or from another client's request.
+     */
+    Translation unbilled() {
+        return billedCharacters == 0 ? this : new Translation(text, detectedSourceLanguage, 0);
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.omegat.machinetranslators.deepl.proxy;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Serves texts from the shared cache and sends the others upstream in
+ * batches.
+ * <p>
+ * A text already being translated with one upstream key is not sent again
+ * with the same key: both requests wait for the same result. Requests with
+ * different keys are sent on their own, so that a key DeepL refuses does not
+ * fail the requests of the others. Texts with the same batch key that
+ * arrive within the linger time, from any client, go to DeepL in one request
+ * of up to {@value #MAX_TEXTS} texts.
+ *
+ * @author Hiroshi Miura
+ */
+final class UpstreamBatcher {
+    static final int MAX_TEXTS = 50;
+
+    /**
+     * Characters per batch, leaving room under the request size limit of
+     * DeepL for encoding.
+     */
+    static final int MAX_CHARS = 30_000;
+
+    private final DeepLUpstream upstream;
+    private final long lingerMillis;
+    private final Cache<String, Translation> cache;
+    private final ConcurrentMap<String, CompletableFuture<Translation>> inFlight = new ConcurrentHashMap<>();
+    private final Map<BatchKey, Batch> open = new HashMap<>();
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService senders;
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder deduplicated = new LongAdder();
+    private final LongAdder upstreamRequests = new LongAdder();
+    private final LongAdder upstreamTexts = new LongAdder();
+
+    /**
+     * @param upstream the DeepL server.
+     * @param cacheChars characters of texts and translations kept in the
+     *            cache.
+     * @param lingerMillis time a batch waits for more texts before it is
+     *            sent.
+     */
+    UpstreamBatcher(DeepLUpstream upstream, long cacheChars, long lingerMillis) {
+        this.upstream = upstream;
+        this.lingerMillis = lingerMillis;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(cacheChars)
+                .<String, Translation>weigher((key, value) -> key.length() + value.getText().length())
+                .build();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(threads("DeepL proxy linger"));
+        this.senders = Executors.newCachedThreadPool(threads("DeepL proxy upstream"));
+    }
+
+    private static ThreadFactory threads(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Returns the translation of the text, from the cache, from a request
+     * already in flight or from a new batch.
+     *
+     * @param key server, key and options of the request.
+     * @param text the text.
+     * @return the translation; billed characters are only reported to the
+     *         client whose request was sent.
+     */
+    CompletableFuture<Translation> translate(BatchKey key, String text) {
+        String cacheKey = key.getOptions() + '\n' + text;
+        Translation cached = cache.getIfPresent(cacheKey);
+        if (cached != null) {
+            cacheHits.increment();
+            return CompletableFuture.completedFuture(cached.unbilled());
+        }
+        String flightKey = key.getAuthKey() + '\n' + cacheKey;
+        CompletableFuture<Translation> future = new CompletableFuture<>();
+        CompletableFuture<Translation> existing = inFlight.putIfAbsent(flightKey, future);
+        if (existing != null) {
+            deduplicated.increment();
+            return existing.thenApply(Translation::unbilled);
+        }
+        // A batch may have finished between the lookup and the claim.
+        cached = cache.getIfPresent(cacheKey);
+        if (cached != null) {
+            inFlight.remove(flightKey, future);
+            cacheHits.increment();
+            future.complete(cached.unbilled());
+            return future;
+        }
+        Batch full = null;
+        synchronized (open) {
+            Batch batch = open.get(key);
+            if (batch == null) {
+                Batch created = new Batch(key);
+                open.put(key, created);
+                scheduler.schedule(() -> flush(created), lingerMillis, TimeUnit.MILLISECONDS);
+                batch = created;
+            }
+            batch.add(text, cacheKey, flightKey, future);
+            if (batch.texts.size() >= MAX_TEXTS || batch.chars >= MAX_CHARS) {
+                open.remove(key);
+                full = batch;
+            }
+        }
+        if (full != null) {
+            Batch batch = full;
+            senders.execute(() -> send(batch));
+        }
+        return future;
+    }
+
+    private void flush(Batch batch) {
+        synchronized (open) {
+            if (open.get(batch.key) != batch) {
+                // Sent already because it was full.
+                return;
+            }
+            open.remove(batch.key);
+        }
+        senders.execute(() -> send(batch));
+    }
+
+    private void send(Batch batch) {
+        upstreamRequests.increment();
+        upstreamTexts.add(batch.texts.size());
+        try {
+            List<Translation> translations = upstream.translate(batch.key, batch.texts);
+            for (int i = 0; i < batch.texts.size(); i++) {
+                cache.put(batch.cacheKeys.get(i), translations.get(i));
+                batch.futures.get(i).complete(translations.get(i));
+                inFlight.remove(batch.flightKeys.get(i), batch.futures.get(i));
+            }
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            for (int i = 0; i < batch.texts.size(); i++) {
+                inFlight.remove(batch.flightKeys.get(i), batch.futures.get(i));
+                batch.futures.get(i).completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Stops the background threads. Batches not sent yet are dropped.
+     */
+    void shutdown() {
+        scheduler.shutdownNow();
+        senders.shutdownNow();
+    }
+
+    long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    long getDeduplicated() {
+        return deduplicated.sum();
+    }
+
+    long getUpstreamRequests() {
+        return upstreamRequests.sum();
+    }
+
+    long getUpstreamTexts() {
+        return upstreamTexts.sum();
+    }
+
+    private static final class Batch {
+        private final BatchKey key;
+        private final List<String> texts = new ArrayList<>();
+        private final List<String> cacheKeys = new ArrayList<>();
+        private final List<String> flightKeys = new ArrayList<>();
+        private final List<CompletableFuture<Translation>> futures = new ArrayList<>();
+        private int chars;
+
+        Batch(BatchKey key) {
+            this.key = key;
+        }
+
+        void add(String text, String cacheKey, String flightKey, CompletableFuture<Translation> future) {
+            texts.add(text);
+            cacheKeys.add(cacheKey);
+            flightKeys.add(flightKey);
+            futures.add(future);
+            chars += text.length();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.omegat.machinetranslators.deepl.proxy;
+
+/**
+ * DeepL answered with an error status. The proxy hands the status and body
+ * on to its clients, so that they react as if they had called DeepL.
+ *
+ * @author Hiroshi Miura
+ */
+final class UpstreamException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    private final int status;
+    private final transient byte[] body;
+    private final String retryAfter;
+
+    UpstreamException(int status, byte[] body, String retryAfter) {
+        super("DeepL answered with status " + status);
+        this.status = status;
+        this.body = body.clone();
+        this.retryAfter = retryAfter;
+    }
+
+    int getStatus() {
+        return status;
+    }
+
+    byte[] getBody() {
+        return body.clone();
+    }
+
+    /**
+     * @return the Retry-After header of the response, or null.
+     */
+    String getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,363 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.omegat.machinetranslators.deepl.proxy;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.anyRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.anyUrl;
+import static com.github.tomakehurst.wiremock.client.WireMock.delete;
+import static com.github.tomakehurst.wiremock.client.WireMock.deleteRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.verify;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.github.tomakehurst.wiremock.junit5.WireMockRuntimeInfo;
+import com.github.tomakehurst.wiremock.junit5.WireMockTest;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+@WireMockTest
+public class DeepLProxyTest {
+
+    private static final String TEAM_KEY = "team8key";
+    private static final String CLIENT_TOKEN = "client8token";
+    private static final String CLIENT_KEY = "client8key:fx";
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private DeepLProxy proxy;
+
+    @AfterEach
+    void tearDown() {
+        if (proxy != null) {
+            proxy.stop();
+        }
+    }
+
+    private String start(WireMockRuntimeInfo wireMockRuntimeInfo, long lingerMillis) throws Exception {
+        return start(wireMockRuntimeInfo, TEAM_KEY, false, lingerMillis);
+    }
+
+    private String start(WireMockRuntimeInfo wireMockRuntimeInfo, String authKey, boolean forwardAll, long lingerMillis)
+            throws Exception {
+        proxy = new DeepLProxy(
+                new InetSocketAddress("127.0.0.1", 0),
+                wireMockRuntimeInfo.getHttpBaseUrl(),
+                authKey,
+                List.of(CLIENT_TOKEN),
+                forwardAll,
+                DeepLProxy.DEFAULT_CACHE_CHARS,
+                lingerMillis);
+        proxy.start();
+        return "http://127.0.0.1:" + proxy.getPort();
+    }
+
+    private CompletableFuture<HttpResponse<String>> translate(String url, String form) {
+        return translate(url, CLIENT_TOKEN, form);
+    }
+
+    private CompletableFuture<HttpResponse<String>> translate(String url, String key, String form) {
+        return client.sendAsync(
+                HttpRequest.newBuilder(URI.create(url + "/v2/translate"))
+                        .header("Authorization", "DeepL-Auth-Key " + key)
+                        .header("Content-Type", "application/x-www-form-urlencoded")
+                        .POST(HttpRequest.BodyPublishers.ofString(form))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static String translations(String... texts) {
+        StringBuilder sb = new StringBuilder("{ \"translations\":[ ");
+        for (int i = 0; i < texts.length; i++) {
+            sb.append(i == 0 ? "" : ", ")
+                    .append("{ \"detected_source_language\": \"EN\", \"text\": \"")
+                    .append(texts[i])
+                    .append("\", \"billed_characters\": ")
+                    .append(texts[i].length())
+                    .append(" }");
+        }
+        return sb.append(" ] }").toString();
+    }
+
+    @Test
+    void testConcurrentClientsShareOneUpstreamRequest(WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+        stubFor(post(urlPathEqualTo("/v2/translate"))
+                .withHeader("Authorization", equalTo("DeepL-Auth-Key " + TEAM_KEY))
+                .withRequestBody(equalTo("text=Hello&text=World&target_lang=DE&show_billed_characters=1"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(translations("Hallo", "Welt"))));
+        String url = start(wireMockRuntimeInfo, 500);
+
+        CompletableFuture<HttpResponse<String>> first = translate(url, "text=Hello&text=World&target_lang=DE");
+        Thread.sleep(100);
+        // Asked while the first batch waits: joins it instead of being sent again.
+        CompletableFuture<HttpResponse<String>> second = translate(url, "text=World&target_lang=DE");
+
+        assertEquals(
+                "{\"translations\":[{\"detected_source_language\":\"EN\",\"text\":\"Hallo\",\"billed_characters\":5},"
+                        + "{\"detected_source_language\":\"EN\",\"text\":\"Welt\",\"billed_characters\":4}]}",
+                first.get().body());
+        assertEquals(
+                "{\"translations\":[{\"detected_source_language\":\"EN\",\"text\":\"Welt\",\"billed_characters\":0}]}",
+                second.get().body());
+        verify(1, postRequestedFor(urlPathEqualTo("/v2/translate")));
+
+        // Later clients are served from the cache.
+        HttpResponse<String> third = translate(url, "text=World&text=Hello&target_lang=DE&show_billed_characters=1")
+                .get();
+        assertEquals(200, third.statusCode());
+        assertEquals(
+                "{\"translations\":[{\"detected_source_language\":\"EN\",\"text\":\"Welt\",\"billed_characters\":0},"
+                        + "{\"detected_source_language\":\"EN\",\"text\":\"Hallo\",\"billed_characters\":0}]}",
+                third.body());
+        verify(1, postRequestedFor(urlPathEqualTo("/v2/translate")));
+    }
+
+    @Test
+    void testMissesOfClientsAreBatched(WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+        stubFor(post(urlPathEqualTo("/v2/translate"))
+                .withRequestBody(equalTo("text=One&text=Two&formality=less&target_lang=DE&show_billed_characters=1"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(translations("Eins", "Zwei"))));
+        String url = start(wireMockRuntimeInfo, 500);
+
+        CompletableFuture<HttpResponse<String>> first = translate(url, "text=One&target_lang=DE&formality=less");
+        Thread.sleep(100);
+        CompletableFuture<HttpResponse<String>> second = translate(url, "target_lang=DE&formality=less&text=Two");
+
+        assertEquals(200, first.get().statusCode());
+        assertEquals(200, second.get().statusCode());
+        assertEquals(
+                "{\"translations\":[{\"detected_source_language\":\"EN\",\"text\":\"Zwei\",\"billed_characters\":4}]}",
+                second.get().body());
+        verify(1, postRequestedFor(urlPathEqualTo("/v2/translate")));
+    }
+
+    @Test
+    void testJsonRequest(WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+        stubFor(post(urlPathEqualTo("/v2/translate"))
+                .withRequestBody(equalTo("text=Hello&target_lang=DE&show_billed_characters=1"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(translations("Hallo"))));
+        String url = start(wireMockRuntimeInfo, 0);
+
+        HttpResponse<String> response = client.send(
+                HttpRequest.newBuilder(URI.create(url + "/v2/translate"))
+                        .header("Authorization", "DeepL-Auth-Key " + CLIENT_TOKEN)
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString("{\"text\":[\"Hello\"],\"target_lang\":\"DE\"}"))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        assertEquals(
+                "{\"translations\":[{\"detected_source_language\":\"EN\",\"text\":\"Hallo\",\"billed_characters\":5}]}",
+                response.body());
+    }
+
+    @Test
+    void testUpstreamErrorIsPassedOn(WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+        stubFor(post(urlPathEqualTo("/v2/translate"))
+                .willReturn(aResponse()
+                        .withStatus(456)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{\"message\":\"Quota Exceeded\"}")));
+        String url = start(wireMockRuntimeInfo, 0);
+
+        HttpResponse<String> response = translate(url, "text=Hello&target_lang=DE").get();
+        assertEquals(456, response.statusCode());
+        assertEquals("{\"message\":\"Quota Exceeded\"}", response.body());
+
+        // Failures are not cached.
+        translate(url, "text=Hello&target_lang=DE").get();
+        verify(2, postRequestedFor(urlPathEqualTo("/v2/translate")));
+    }
+
+    @Test
+    void testMissingParameters(WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+        String url = start(wireMockRuntimeInfo, 0);
+        assertEquals(400, translate(url, "target_lang=DE").get().statusCode());
+        assertEquals(400, translate(url, "text=Hello").get().statusCode());
+        verify(0, postRequestedFor(urlPathEqualTo("/v2/translate")));
+    }
+
+    @Test
+    void testOtherRequestsAreForwarded(WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+        stubFor(get(urlPathEqualTo("/v2/usage"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{\"character_count\":180118,\"character_limit\":1250000}")));
+        String url = start(wireMockRuntimeInfo, 0);
+
+        HttpResponse<String> response = client.send(
+                HttpRequest.newBuilder(URI.create(url + "/v2/usage"))
+                        .header("Authorization", "DeepL-Auth-Key " + CLIENT_TOKEN)
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        assertEquals("{\"character_count\":180118,\"character_limit\":1250000}", response.body());
+        verify(1, getRequestedFor(urlPathEqualTo("/v2/usage"))
+                .withHeader("Authorization", equalTo("DeepL-Auth-Key " + TEAM_KEY)));
+    }
+
+    @Test
+    void testTeamKeyNeedsClientToken(WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> new DeepLProxy(
+                        new InetSocketAddress("127.0.0.1", 0),
+                        wireMockRuntimeInfo.getHttpBaseUrl(),
+                        TEAM_KEY,
+                        List.of(),
+                        false,
+                        DeepLProxy.DEFAULT_CACHE_CHARS,
+                        0));
+
+        String url = start(wireMockRuntimeInfo, 0);
+        assertEquals(403, translate(url, "bogus", "text=Hello&target_lang=DE").get().statusCode());
+        HttpResponse<String> usage = client.send(
+                HttpRequest.newBuilder(URI.create(url + "/v2/usage"))
+                        .header("Authorization", "DeepL-Auth-Key bogus")
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(403, usage.statusCode());
+        verify(0, anyRequestedFor(anyUrl()));
+    }
+
+    @Test
+    void testClientKeyIsCheckedBeforeCacheHit(WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+        stubFor(get(urlPathEqualTo("/v2/usage"))
+                .withHeader("Authorization", equalTo("DeepL-Auth-Key " + CLIENT_KEY))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{\"character_count\":0,\"character_limit\":500000}")));
+        stubFor(get(urlPathEqualTo("/v2/usage"))
+                .withHeader("Authorization", equalTo("DeepL-Auth-Key bogus"))
+                .willReturn(aResponse().withStatus(403)));
+        stubFor(post(urlPathEqualTo("/v2/translate"))
+                .withHeader("Authorization", equalTo("DeepL-Auth-Key " + CLIENT_KEY))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(translations("Hallo"))));
+        String url = start(wireMockRuntimeInfo, null, false, 0);
+
+        assertEquals(200, translate(url, CLIENT_KEY, "text=Hello&target_lang=DE").get().statusCode());
+        assertEquals(200, translate(url, CLIENT_KEY, "text=Hello&target_lang=DE").get().statusCode());
+        // A made-up key does not get the cached translation.
+        assertEquals(403, translate(url, "bogus", "text=Hello&target_lang=DE").get().statusCode());
+        assertEquals(403, translate(url, "bogus", "text=Hello&target_lang=DE").get().statusCode());
+
+        // Each key is checked once.
+        verify(1, getRequestedFor(urlPathEqualTo("/v2/usage"))
+                .withHeader("Authorization", equalTo("DeepL-Auth-Key " + CLIENT_KEY)));
+        verify(1, getRequestedFor(urlPathEqualTo("/v2/usage"))
+                .withHeader("Authorization", equalTo("DeepL-Auth-Key bogus")));
+        verify(1, postRequestedFor(urlPathEqualTo("/v2/translate")));
+    }
+
+    @Test
+    void testRefusedKeyDoesNotFailOtherKeys(WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+        String exhaustedKey = "exhausted8key:fx";
+        stubFor(get(urlPathEqualTo("/v2/usage"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{\"character_count\":0,\"character_limit\":500000}")));
+        stubFor(post(urlPathEqualTo("/v2/translate"))
+                .withHeader("Authorization", equalTo("DeepL-Auth-Key " + exhaustedKey))
+                .willReturn(aResponse()
+                        .withStatus(456)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{\"message\":\"Quota Exceeded\"}")));
+        stubFor(post(urlPathEqualTo("/v2/translate"))
+                .withHeader("Authorization", equalTo("DeepL-Auth-Key " + CLIENT_KEY))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(translations("Hallo"))));
+        String url = start(wireMockRuntimeInfo, null, false, 500);
+
+        CompletableFuture<HttpResponse<String>> first = translate(url, exhaustedKey, "text=Hello&target_lang=DE");
+        Thread.sleep(100);
+        // The same text with another key is not coalesced with the first request.
+        CompletableFuture<HttpResponse<String>> second = translate(url, CLIENT_KEY, "text=Hello&target_lang=DE");
+
+        assertEquals(456, first.get().statusCode());
+        HttpResponse<String> response = second.get();
+        assertEquals(200, response.statusCode());
+        assertEquals(
+                "{\"translations\":[{\"detected_source_language\":\"EN\",\"text\":\"Hallo\",\"billed_characters\":5}]}",
+                response.body());
+        verify(1, postRequestedFor(urlPathEqualTo("/v2/translate"))
+                .withHeader("Authorization", equalTo("DeepL-Auth-Key " + exhaustedKey)));
+        verify(1, postRequestedFor(urlPathEqualTo("/v2/translate"))
+                .withHeader("Authorization", equalTo("DeepL-Auth-Key " + CLIENT_KEY)));
+    }
+
+    @Test
+    void testChangesAreNotForwardedByDefault(WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+        stubFor(delete(urlPathEqualTo("/v2/glossaries/def3a26b")).willReturn(aResponse().withStatus(204)));
+        String url = start(wireMockRuntimeInfo, 0);
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url + "/v2/glossaries/def3a26b"))
+                .header("Authorization", "DeepL-Auth-Key " + CLIENT_TOKEN)
+                .DELETE()
+                .build();
+        assertEquals(403, client.send(request, HttpResponse.BodyHandlers.ofString()).statusCode());
+        verify(0, deleteRequestedFor(urlPathEqualTo("/v2/glossaries/def3a26b")));
+
+        proxy.stop();
+        url = start(wireMockRuntimeInfo, TEAM_KEY, true, 0);
+        request = HttpRequest.newBuilder(URI.create(url + "/v2/glossaries/def3a26b"))
+                .header("Authorization", "DeepL-Auth-Key " + CLIENT_TOKEN)
+                .DELETE()
+                .build();
+        assertEquals(204, client.send(request, HttpResponse.BodyHandlers.ofString()).statusCode());
+        verify(1, deleteRequestedFor(urlPathEqualTo("/v2/glossaries/def3a26b"))
+                .withHeader("Authorization", equalTo("DeepL-Auth-Key " + TEAM_KEY)));
+    }
+}
@@ -10,3 +10,4 @@ develocity {
     }
 }
 rootProject.name = "deepl-connector-plugin"
+include("proxy")
@@ -0,0 +1,115 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.omegat.machinetranslators.deepl;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.apache.commons.io.FileUtils;
+import org.omegat.core.data.ProjectProperties;
+import org.omegat.util.Preferences;
+import org.omegat.util.PreferencesImpl;
+import org.omegat.util.PreferencesXML;
+import org.omegat.util.RuntimePreferences;
+
+/**
+ * Offline environment for the benchmarks: OmegaT preferences in a temporary
+ * folder, and an in-process HTTP server standing in for the DeepL API.
+ */
+final class BenchmarkEnvironment {
+
+    static final String API_KEY = "deepl8bench8key";
+
+    private static final byte[] RESPONSE = ("{ \"translations\":[ "
+                    + "{ \"detected_source_language\": \"DE\", \"text\": \"Hello World!\", \"billed_characters\": 11 }"
+                    + " ] }")
+            .getBytes(StandardCharsets.UTF_8);
+
+    private final File configDir;
+    private HttpServer server;
+
+    BenchmarkEnvironment() throws IOException {
+        configDir = Files.createTempDirectory("omegat-jmh").toFile();
+        File prefsFile = new File(configDir, Preferences.FILE_PREFERENCES);
+        Preferences.IPreferences prefs = new PreferencesImpl(new PreferencesXML(null, prefsFile));
+        prefs.setPreference(DeepLTranslate2.ALLOW_DEEPL_TRANSLATE, true);
+        RuntimePreferences.setConfigDir(prefsFile.getAbsolutePath());
+        Preferences.init();
+        Preferences.initFilters();
+        Preferences.initSegmentation();
+        Preferences.setPreference(DeepLTranslate2.PROPERTY_DISK_CACHE_ENABLED, false);
+        // Let the rate limiter run as fast as the stub answers.
+        Preferences.setPreference(DeepLTranslate2.PROPERTY_RATE_LIMIT, 1_000_000);
+    }
+
+    /**
+     * Starts the stub server.
+     *
+     * @return base URL of the server.
+     */
+    String startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/v2/translate", exchange -> {
+            try (InputStream in = exchange.getRequestBody()) {
+                in.readAllBytes();
+            }
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, RESPONSE.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(RESPONSE);
+            }
+        });
+        server.start();
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    void close() throws IOException {
+        if (server != null) {
+            server.stop(0);
+        }
+        FileUtils.deleteDirectory(configDir);
+    }
+
+    /**
+     * Engine without a project, as in the unit tests.
+     */
+    static class Engine extends DeepLTranslate2 {
+        Engine(String url) {
+            super(url, API_KEY);
+        }
+
+        @Override
+        public ProjectProperties getProjectProperties() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.omegat.machinetranslators.deepl;
+
+import java.util.concurrent.TimeUnit;
+import org.omegat.util.Language;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Language code mapping, run for every request.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeepLLanguageBenchmark {
+
+    private DeepLLanguage deepLLanguage;
+    private Language[] languages;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        deepLLanguage = new DeepLLanguage();
+        languages = new Language[] {
+            new Language("en-US"), new Language("pt"), new Language("zh-CN"), new Language("de-DE"), new Language("ja")
+        };
+    }
+
+    private Language next() {
+        index = (index + 1) % languages.length;
+        return languages[index];
+    }
+
+    @Benchmark
+    public String sourceLanguage() {
+        return deepLLanguage.getSourceLanguage(next());
+    }
+
+    @Benchmark
+    public String targetLanguage() {
+        return deepLLanguage.getTargetLanguage(next());
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.omegat.machinetranslators.deepl;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Post-processing of a DeepL result: HTML unescaping and clean-up of the
+ * spaces around OmegaT tags.
+ * <p>
+ * The {@code chained} benchmarks run the upstream {@code BaseTranslate}
+ * chain as a baseline. Run with {@code -prof gc} to compare the bytes
+ * allocated per operation ({@code gc.alloc.rate.norm}).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PostProcessBenchmark {
+
+    private static final String PLAIN_SOURCE = "Press the button to save the document.";
+    private static final String PLAIN_RESULT = "Drücken Sie die Taste, um das Dokument zu speichern.";
+    private static final String TAGGED_SOURCE =
+            "Press <b0>Save</b0> and then <i1>OK</i1> to keep the \"draft\" & <x2/> continue.";
+    private static final String TAGGED_RESULT = "Drücken Sie <b0> Speichern </b0> und dann <i1>OK </i1>, um den "
+            + "&quot;Entwurf&quot; zu behalten &amp; <x2/> fortzufahren.";
+
+    private BenchmarkEnvironment environment;
+    private ChainEngine translator;
+
+    /**
+     * Engine exposing the upstream post-processing chain.
+     */
+    static final class ChainEngine extends BenchmarkEnvironment.Engine {
+        ChainEngine() {
+            super("http://localhost:1");
+        }
+
+        String chained(String translation, String source) {
+            return cleanSpacesAroundTags(unescapeHTML(translation), source);
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        environment = new BenchmarkEnvironment();
+        translator = new ChainEngine();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        environment.close();
+    }
+
+    @Benchmark
+    public String plainText() {
+        return translator.postProcess(PLAIN_RESULT, PLAIN_SOURCE);
+    }
+
+    @Benchmark
+    public String taggedText() {
+        return translator.postProcess(TAGGED_RESULT, TAGGED_SOURCE);
+    }
+
+    @Benchmark
+    public String chainedPlainText() {
+        return translator.chained(PLAIN_RESULT, PLAIN_SOURCE);
+    }
+
+    @Benchmark
+    public String chainedTaggedText() {
+        return translator.chained(TAGGED_RESULT, TAGGED_SOURCE);
+    }
+}
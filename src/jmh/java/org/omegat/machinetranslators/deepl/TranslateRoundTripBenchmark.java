@@ -0,0 +1,87 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.omegat.machinetranslators.deepl;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.omegat.util.Language;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Full translation round trip against an in-process HTTP stub.
+ * <p>
+ * The cold benchmark sends a new text on every invocation, so that each call
+ * goes through the client library and the local HTTP stack. The warm
+ * benchmark repeats one text and is served by the cache.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TranslateRoundTripBenchmark {
+
+    private final Language sourceLang = new Language("de");
+    private final Language targetLang = new Language("en");
+
+    private BenchmarkEnvironment environment;
+    private DeepLTranslate2 translator;
+    private long counter;
+
+    @Setup
+    public void setUp() throws Exception {
+        environment = new BenchmarkEnvironment();
+        translator = new BenchmarkEnvironment.Engine(environment.startServer());
+        translator.getTranslation(sourceLang, targetLang, "warm text");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        DeepLClientRegistry.getInstance().invalidateAll();
+        environment.close();
+    }
+
+    @Benchmark
+    public String coldCache() throws Exception {
+        return translator.translate(sourceLang, targetLang, "cold text " + counter++);
+    }
+
+    @Benchmark
+    public String warmCache() throws Exception {
+        return translator.getTranslation(sourceLang, targetLang, "warm text");
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.omegat.machinetranslators.deepl;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket limiting the request rate sent to DeepL, which adapts to the
+ * throttling it observes.
+ * <p>
+ * The rate starts at its maximum. Each throttled response halves it, and each
+ * successful response raises it by a fixed step, so the sustained rate settles
+ * just under the account limit (additive increase, multiplicative decrease).
+ * A server-provided retry delay blocks the bucket until it has passed.
+ *
+ * @author Hiroshi Miura
+ */
+final class AdaptiveRateLimiter {
+
+    private static final double MIN_RATE = 0.2;
+    private static final double INCREASE_STEP = 0.5;
+    private static final double DECREASE_FACTOR = 0.5;
+
+    private final double maxRate;
+    private final double burst;
+    private double rate;
+    private double tokens;
+    private long lastRefill;
+    private long blockedUntil;
+
+    /**
+     * @param maxRate maximum number of requests per second.
+     */
+    AdaptiveRateLimiter(double maxRate) {
+        this.maxRate = Math.max(MIN_RATE, maxRate);
+        burst = Math.max(1, this.maxRate);
+        rate = this.maxRate;
+        tokens = burst;
+        lastRefill = System.nanoTime();
+        blockedUntil = lastRefill;
+    }
+
+    /**
+     * @param maxRate maximum number of requests per second.
+     * @return whether the limiter was created for the maximum rate.
+     */
+    boolean hasMaxRate(double maxRate) {
+        return this.maxRate == Math.max(MIN_RATE, maxRate);
+    }
+
+    /**
+     * Takes a token, waiting for one when the bucket is empty.
+     *
+     * @param deadline {@link System#nanoTime()} value after which to give up.
+     * @return true when a token was taken, false when the deadline would pass
+     *         first.
+     * @throws InterruptedException when interrupted while waiting.
+     */
+    boolean acquire(long deadline) throws InterruptedException {
+        while (true) {
+            long wait;
+            synchronized (this) {
+                long now = System.nanoTime();
+                refill(now);
+                if (now - blockedUntil >= 0 && tokens >= 1) {
+                    tokens -= 1;
+                    return true;
+                }
+                long tokenWait = tokens >= 1 ? 0 : (long) ((1 - tokens) / rate * TimeUnit.SECONDS.toNanos(1));
+                wait = Math.max(tokenWait, blockedUntil - now);
+                if (now + wait - deadline > 0) {
+                    return false;
+                }
+            }
+            TimeUnit.NANOSECONDS.sleep(Math.max(wait, 1));
+        }
+    }
+
+    private void refill(long now) {
+        double elapsed = (now - lastRefill) / (double) TimeUnit.SECONDS.toNanos(1);
+        tokens = Math.min(burst, tokens + elapsed * rate);
+        lastRefill = now;
+    }
+
+    /**
+     * Records a successful request.
+     */
+    synchronized void onSuccess() {
+        rate = Math.min(maxRate, rate + INCREASE_STEP);
+    }
+
+    /**
+     * Records a throttled request.
+     *
+     * @param retryAfterNanos delay requested by the server, or a negative
+     *            value when none was given.
+     */
+    synchronized void onThrottled(long retryAfterNanos) {
+        refill(System.nanoTime());
+        rate = Math.max(MIN_RATE, rate * DECREASE_FACTOR);
+        tokens = Math.min(tokens, 0);
+        if (retryAfterNanos > 0) {
+            long until = System.nanoTime() + retryAfterNanos;
+            if (until - blockedUntil > 0) {
+                blockedUntil = until;
+            }
+        }
+    }
+
+    /**
+     * @return current rate in requests per second.
+     */
+    synchronized double getRate() {
+        return rate;
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.omegat.machinetranslators.deepl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Splits a list of texts into request-sized batches for the /v2/translate
+ * endpoint.
+ *
+ * @author Hiroshi Miura
+ */
+final class BatchPartitioner {
+
+    /**
+     * Maximum number of text parameters DeepL accepts in one request.
+     */
+    static final int MAX_TEXTS = 50;
+
+    /**
+     * Budget for the form-encoded text parameters of one request. DeepL
+     * limits the whole request body to 128 KiB; the rest is left for the
+     * other parameters and headers.
+     */
+    static final int MAX_REQUEST_BYTES = 120 * 1024;
+
+    private static final int TEXT_PARAM_OVERHEAD = "&text=".length();
+
+    private BatchPartitioner() {}
+
+    /**
+     * Splits texts into consecutive batches, keeping their order.
+     * A single text larger than the byte budget gets a batch of its own.
+     *
+     * @param texts texts to send.
+     * @param maxTexts maximum number of texts per batch.
+     * @param maxBytes maximum form-encoded size of the texts in a batch.
+     * @return list of batches.
+     */
+    static List<List<String>> partition(List<String> texts, int maxTexts, int maxBytes) {
+        if (texts.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<List<String>> batches = new ArrayList<>();
+        List<String> current = new ArrayList<>();
+        int currentBytes = 0;
+        for (String text : texts) {
+            int size = encodedLength(text) + TEXT_PARAM_OVERHEAD;
+            if (!current.isEmpty() && (current.size() >= maxTexts || currentBytes + size > maxBytes)) {
+                batches.add(current);
+                current = new ArrayList<>();
+                currentBytes = 0;
+            }
+            current.add(text);
+            currentBytes += size;
+        }
+        batches.add(current);
+        return batches;
+    }
+
+    /**
+     * Returns the length of the text once UTF-8 and form-url encoded,
+     * without building the encoded string.
+     *
+     * @param text the text.
+     * @return number of bytes on the wire.
+     */
+    static int encodedLength(String text) {
+        int length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                boolean unreserved = (c >= 'a' && c <= 'z')
+                        || (c >= 'A' && c <= 'Z')
+                        || (c >= '0' && c <= '9')
+                        || c == '.'
+                        || c == '-'
+                        || c == '*'
+                        || c == '_'
+                        || c == ' ';
+                length += unreserved ? 1 : 3;
+            } else if (c < 0x800) {
+                length += 2 * 3;
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length()) {
+                length += 4 * 3;
+                i++;
+            } else {
+                length += 3 * 3;
+            }
+        }
+        return length;
+    }
+}
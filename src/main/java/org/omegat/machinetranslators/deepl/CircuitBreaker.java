@@ -0,0 +1,200 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package org.omegat.machinetranslators.deepl;
+
+import com.deepl.api.ConnectionException;
+import com.deepl.api.DeepLException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.omegat.util.Log;
+
+/**
+ * Stops sending requests to DeepL while it cannot be reached or fails.
+ * <p>
+ * After {@code failureThreshold} consecutive connection failures or 5xx
+ * responses the breaker opens, and requests fail at once instead of waiting for a timeout each. A
+ * probe request then runs in the background every {@code probeInterval}; the
+ * breaker closes again as soon as a probe succeeds.
+ *
+ * @author Hiroshi Miura
+ */
+final class CircuitBreaker {
+
+    /**
+     * Thrown instead of sending a request while the breaker is open.
+     */
+    static final class OpenException extends DeepLException {
+        private static final long serialVersionUID = 1L;
+
+        OpenException(String message) {
+            super(message);
+        }
+    }
+
+    private static ScheduledExecutorService scheduler;
+
+    private final int failureThreshold;
+    private final long probeIntervalMillis;
+    private final RetryPolicy.DeepLCall<?> probe;
+    private int consecutiveFailures;
+    private boolean open;
+    private boolean retired;
+
+    /**
+     * @param failureThreshold consecutive connection failures or server
+     *            errors opening the breaker.
+     * @param probeIntervalMillis delay between probes while open.
+     * @param probe request checking that DeepL can be reached again.
+     */
+    CircuitBreaker(int failureThreshold, long probeIntervalMillis, RetryPolicy.DeepLCall<?> probe) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.probeIntervalMillis = probeIntervalMillis;
+        this.probe = probe;
+    }
+
+    /**
+     * Checks that a request may be sent.
+     *
+     * @throws OpenException when the breaker is open.
+     */
+    synchronized void check() throws OpenException {
+        if (open) {
+            throw new OpenException("DeepL is unreachable; requests are paused");
+        }
+    }
+
+    /**
+     * Records a request which reached DeepL.
+     */
+    synchronized void onSuccess() {
+        consecutiveFailures = 0;
+    }
+
+    /**
+     * Records a request which could not reach DeepL or got a 5xx response,
+     * and opens the breaker when there were too many in a row.
+     */
+    synchronized void onConnectionFailure() {
+        consecutiveFailures++;
+        if (!open && !retired && consecutiveFailures >= failureThreshold) {
+            open = true;
+            Log.log("DeepL is unreachable; pausing requests until a probe succeeds.");
+            scheduleProbe();
+        }
+    }
+
+    /**
+     * Tells whether a call which just failed to connect, or got a server
+     * error, should try again. Only
+     * the first failure of a streak is retried, which covers a dropped
+     * connection. During an outage, each call then gives up after its first
+     * failure and counts towards the threshold. The breaker therefore opens
+     * after that many attempts, instead of after calls retrying until their
+     * deadline.
+     *
+     * @return true when the failure may be retried.
+     */
+    synchronized boolean isRetryAllowed() {
+        return !open && consecutiveFailures <= 1 && failureThreshold > 1;
+    }
+
+    synchronized boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * Closes the breaker for good when it is replaced, e.g. after its
+     * preferences changed. A probe still scheduled does nothing.
+     */
+    synchronized void retire() {
+        retired = true;
+        open = false;
+    }
+
+    private synchronized boolean isRetired() {
+        return retired;
+    }
+
+    private void scheduleProbe() {
+        getScheduler().schedule(this::runProbe, probeIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void runProbe() {
+        if (isRetired()) {
+            return;
+        }
+        boolean reachable;
+        try {
+            probe.call();
+            reachable = true;
+        } catch (ConnectionException e) {
+            reachable = false;
+        } catch (DeepLException e) {
+            // DeepL answered; a 5xx response still means it is failing.
+            reachable = !(DeepLLibraryTransport.toServerError(e) instanceof DeepLTransport.ServerErrorException);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (RuntimeException e) {
+            Log.log("DeepL probe failed: " + e.getMessage());
+            reachable = false;
+        }
+        if (reachable) {
+            close();
+        } else {
+            scheduleProbe();
+        }
+    }
+
+    private synchronized void close() {
+        open = false;
+        consecutiveFailures = 0;
+        Log.log("DeepL is reachable again; resuming requests.");
+    }
+
+    /**
+     * Stops the probe thread, e.g. when the plugin is unloaded.
+     */
+    static synchronized void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    private static synchronized ScheduledExecutorService getScheduler() {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "DeepL probe");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return scheduler;
+    }
+}
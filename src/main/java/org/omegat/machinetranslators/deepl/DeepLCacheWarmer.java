@@ -0,0 +1,377 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.omegat.machinetranslators.deepl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.omegat.core.Core;
+import org.omegat.core.CoreEvents;
+import org.omegat.core.data.IProject;
+import org.omegat.core.data.ProjectProperties;
+import org.omegat.core.events.IProjectEventListener;
+import org.omegat.util.Log;
+import org.omegat.util.Preferences;
+
+/**
+ * Fills the translation cache from the translation memories of a project.
+ * <p>
+ * The TMX files under the tm folder, including tm/mt and tm/auto, often hold
+ * DeepL output of earlier sessions. They are streamed on a background thread,
+ * so that project load does not wait, and the units which came from DeepL are
+ * put into the cache. A unit counts as DeepL output when its creation or
+ * change id is {@value DeepLPretranslator#CREATION_ID}, when it carries the
+ * options property of the pretranslation file, or when it is in the tm/mt
+ * folder in a file created by a DeepL tool.
+ * <p>
+ * Warm-up is on unless {@value #PROPERTY_WARMUP_ENABLED} is false. Nothing is
+ * read before the DeepL engine is first used: the open project is then warmed
+ * up, and so is each project loaded afterwards while the engine is enabled. A
+ * warm-up is cancelled when the project is closed. One warmer serves the
+ * engine last used; its project listener is removed when the plugin is
+ * unloaded.
+ *
+ * @author Hiroshi Miura
+ */
+final class DeepLCacheWarmer implements IProjectEventListener {
+
+    static final String PROPERTY_WARMUP_ENABLED = "deepl.warmup.enabled";
+
+    private static final String MT_FOLDER = "mt";
+    private static final String TMX_EXTENSION = ".tmx";
+
+    /**
+     * Receives the DeepL translations found in the memories.
+     */
+    interface Sink {
+        /**
+         * @param source source text.
+         * @param translation translation of the source text.
+         * @param options options fingerprint recorded with the unit, or null.
+         * @return true when the translation was put into the cache.
+         */
+        boolean accept(String source, String translation, String options);
+    }
+
+    private static DeepLCacheWarmer instance;
+
+    private volatile DeepLTranslate2 translator;
+    private ExecutorService executor;
+    private Future<?> pending;
+
+    private DeepLCacheWarmer(DeepLTranslate2 translator) {
+        this.translator = translator;
+    }
+
+    static boolean isEnabled() {
+        return Preferences.isPreferenceDefault(PROPERTY_WARMUP_ENABLED, true);
+    }
+
+    /**
+     * Called when an engine is first used. The first call registers the
+     * project listener and warms up the open project; later calls only make
+     * the engine the one whose cache is filled.
+     *
+     * @param translator the engine.
+     */
+    static synchronized void attach(DeepLTranslate2 translator) {
+        if (instance != null) {
+            instance.translator = translator;
+            return;
+        }
+        instance = new DeepLCacheWarmer(translator);
+        CoreEvents.registerProjectChangeListener(instance);
+        IProject project = Core.getProject();
+        if (project != null && project.isProjectLoaded()) {
+            instance.start();
+        }
+    }
+
+    /**
+     * Cancels the warm-up, stops the thread and removes the project listener.
+     */
+    static synchronized void shutdown() {
+        if (instance != null) {
+            CoreEvents.unregisterProjectChangeListener(instance);
+            instance.stop();
+            instance = null;
+        }
+    }
+
+    /**
+     * Starts the warm-up for the open project, unless warm-up or the engine is
+     * disabled. A warm-up still running is cancelled.
+     */
+    synchronized void start() {
+        cancel();
+        if (!isEnabled() || !translator.isEnabled()) {
+            return;
+        }
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "DeepL cache warm-up");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            });
+        }
+        pending = executor.submit(this::warmProject);
+    }
+
+    /**
+     * Cancels a running warm-up.
+     */
+    synchronized void cancel() {
+        if (pending != null) {
+            pending.cancel(true);
+            pending = null;
+        }
+    }
+
+    private synchronized void stop() {
+        cancel();
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private void warmProject() {
+        IProject project = Core.getProject();
+        if (project == null || !project.isProjectLoaded()) {
+            return;
+        }
+        ProjectProperties properties = project.getProjectProperties();
+        Sink sink = translator.getWarmUpSink(properties.getSourceLanguage(), properties.getTargetLanguage());
+        if (sink == null || properties.getTMRoot() == null) {
+            return;
+        }
+        try {
+            long count = warm(
+                    Paths.get(properties.getTMRoot()),
+                    properties.getSourceLanguage().getLanguage(),
+                    properties.getTargetLanguage().getLanguage(),
+                    sink);
+            Log.log("DeepL cache warm-up loaded " + count + " translations.");
+        } catch (IOException e) {
+            Log.log("DeepL cache warm-up failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads the DeepL translations of every TMX file under the folder.
+     *
+     * @param tmRoot the tm folder of the project.
+     * @param sourceLang source language code of the project.
+     * @param targetLang target language code of the project.
+     * @param sink receives the translations.
+     * @return number of translations the sink accepted.
+     * @throws IOException when the folder cannot be listed.
+     */
+    static long warm(Path tmRoot, String sourceLang, String targetLang, Sink sink) throws IOException {
+        if (!Files.isDirectory(tmRoot)) {
+            return 0;
+        }
+        List<Path> files;
+        try (Stream<Path> stream = Files.walk(tmRoot)) {
+            files = stream.filter(Files::isRegularFile)
+                    .filter(p -> p.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(TMX_EXTENSION))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+        long count = 0;
+        for (Path file : files) {
+            if (Thread.currentThread().isInterrupted()) {
+                break;
+            }
+            Path parent = tmRoot.relativize(file).getParent();
+            boolean mtFolder = parent != null && parent.startsWith(MT_FOLDER);
+            try {
+                count += read(file, sourceLang, targetLang, mtFolder, sink);
+            } catch (IOException | XMLStreamException e) {
+                Log.log("DeepL cache warm-up skipped " + file + ": " + e.getMessage());
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Streams one TMX file and passes its DeepL translations to the sink.
+     *
+     * @param mtFolder whether the file is in the tm/mt folder.
+     * @return number of translations the sink accepted.
+     */
+    static long read(Path file, String sourceLang, String targetLang, boolean mtFolder, Sink sink)
+            throws IOException, XMLStreamException {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        long count = 0;
+        try (InputStream in = Files.newInputStream(file)) {
+            XMLStreamReader reader = factory.createXMLStreamReader(in);
+            try {
+                boolean deepLFile = false;
+                boolean deepL = false;
+                String options = null;
+                String language = null;
+                String source = null;
+                String target = null;
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (Thread.currentThread().isInterrupted()) {
+                        break;
+                    }
+                    if (event == XMLStreamConstants.START_ELEMENT) {
+                        switch (reader.getLocalName()) {
+                            case "header":
+                                String tool = reader.getAttributeValue(null, "creationtool");
+                                deepLFile = mtFolder
+                                        && tool != null
+                                        && tool.toLowerCase(Locale.ROOT).contains("deepl");
+                                break;
+                            case "tu":
+                                deepL = deepLFile
+                                        || isDeepL(reader.getAttributeValue(null, "creationid"))
+                                        || isDeepL(reader.getAttributeValue(null, "changeid"));
+                                options = null;
+                                source = null;
+                                target = null;
+                                break;
+                            case "prop":
+                                String type = reader.getAttributeValue(null, "type");
+                                if (DeepLPretranslator.OPTIONS_PROPERTY.equals(type)) {
+                                    options = reader.getElementText();
+                                    deepL = true;
+                                }
+                                break;
+                            case "tuv":
+                                language = reader.getAttributeValue(XMLConstants.XML_NS_URI, "lang");
+                                if (language == null) {
+                                    language = reader.getAttributeValue(null, "lang");
+                                }
+                                break;
+                            case "seg":
+                                String text = readSegment(reader);
+                                if (source == null
+                                        && matches(language, sourceLang)
+                                        && !targetLang.equalsIgnoreCase(language)) {
+                                    source = text;
+                                } else if (target == null && matches(language, targetLang)) {
+                                    target = text;
+                                }
+                                break;
+                            default:
+                                break;
+                        }
+                    } else if (event == XMLStreamConstants.END_ELEMENT && "tu".equals(reader.getLocalName())) {
+                        if (deepL
+                                && source != null
+                                && !source.isEmpty()
+                                && target != null
+                                && !target.isEmpty()
+                                && sink.accept(source, target, options)) {
+                            count++;
+                        }
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Reads the text of a seg element. The content of inline elements, which
+     * is where OmegaT keeps its tags, is part of the text.
+     */
+    private static String readSegment(XMLStreamReader reader) throws XMLStreamException {
+        StringBuilder sb = new StringBuilder();
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            } else if (event == XMLStreamConstants.CHARACTERS
+                    || event == XMLStreamConstants.CDATA
+                    || event == XMLStreamConstants.SPACE) {
+                sb.append(reader.getText());
+            }
+        }
+        return sb.toString();
+    }
+
+    private static boolean isDeepL(String id) {
+        return DeepLPretranslator.CREATION_ID.equalsIgnoreCase(id);
+    }
+
+    /**
+     * Whether the TMX language matches the project language, exactly or by
+     * the primary language subtag.
+     */
+    private static boolean matches(String language, String code) {
+        if (language == null) {
+            return false;
+        }
+        if (language.equalsIgnoreCase(code)) {
+            return true;
+        }
+        return primary(language).equalsIgnoreCase(primary(code));
+    }
+
+    private static String primary(String language) {
+        int end = 0;
+        while (end < language.length() && Character.isLetter(language.charAt(end))) {
+            end++;
+        }
+        return language.substring(0, end);
+    }
+
+    @Override
+    public void onProjectChanged(PROJECT_CHANGE_TYPE eventType) {
+        if (eventType == PROJECT_CHANGE_TYPE.LOAD) {
+            start();
+        } else if (eventType == PROJECT_CHANGE_TYPE.CLOSE) {
+            cancel();
+        }
+    }
+}
@@ -0,0 +1,365 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.omegat.machinetranslators.deepl;
+
+import com.deepl.api.DeepLApiVersion;
+import com.deepl.api.DeepLClient;
+import com.deepl.api.DeepLClientOptions;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+
+/**
+ * Registry of {@link DeepLClient} instances shared between translation requests.
+ * <p>
+ * A client is created once for each combination of API key, server URL and
+ * client options, and reused until its credential is replaced. This keeps the
+ * underlying HTTP connections alive instead of setting them up again for every
+ * segment. The registry also keeps one {@link AdaptiveRateLimiter} and one
+ * {@link QuotaTracker} per API key, as DeepL throttles and bills by account,
+ * and the {@link DeepLLanguageTable}, {@link DeepLGlossarySync} and
+ * {@link CircuitBreaker} of each key.
+ *
+ * @author Hiroshi Miura
+ */
+final class DeepLClientRegistry {
+
+    private static final DeepLClientRegistry INSTANCE = new DeepLClientRegistry();
+
+    private final ConcurrentMap<ClientKey, DeepLClient> clients = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, AdaptiveRateLimiter> limiters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, QuotaTracker> quotas = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, DeepLLanguageTable> languageTables = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, DeepLGlossarySync> glossaries = new ConcurrentHashMap<>();
+    private final ConcurrentMap<BreakerKey, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Duration, HttpClient> httpClients = new ConcurrentHashMap<>();
+
+    static DeepLClientRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns a client for the API key and server URL, creating it on first use.
+     *
+     * @param apiKey the DeepL API key.
+     * @param serverUrl custom server URL, or null to let the library detect it.
+     * @return the shared client.
+     */
+    DeepLClient getClient(String apiKey, String serverUrl) {
+        return getClient(apiKey, serverUrl, null);
+    }
+
+    /**
+     * Returns a client for the API key, server URL and timeout, creating it on
+     * first use.
+     *
+     * @param apiKey the DeepL API key.
+     * @param serverUrl custom server URL, or null to let the library detect it.
+     * @param timeout timeout of the HTTP connection, or null for the library
+     *            default.
+     * @return the shared client.
+     */
+    DeepLClient getClient(String apiKey, String serverUrl, Duration timeout) {
+        ClientKey key = new ClientKey(apiKey, serverUrl, DeepLApiVersion.VERSION_2, timeout);
+        return clients.computeIfAbsent(key, this::createClient);
+    }
+
+    private DeepLClient createClient(ClientKey key) {
+        DeepLClientOptions deepLClientOptions = new DeepLClientOptions();
+        deepLClientOptions.setApiVersion(key.apiVersion);
+        // Retries, also of 5xx responses, are handled by RetryPolicy, which sees the throttling.
+        deepLClientOptions.setMaxRetries(0);
+        if (key.timeout != null) {
+            deepLClientOptions.setTimeout(key.timeout);
+        }
+        if (key.serverUrl != null) {
+            // deepL server URL is automatically detected in the client library.
+            // we set custom url, eg. locahost, for a test purpose.
+            deepLClientOptions.setServerUrl(key.serverUrl);
+        }
+        return new DeepLClient(key.apiKey, deepLClientOptions);
+    }
+
+    /**
+     * Returns the HTTP client of {@link DeepLHttpTransport} for the connect
+     * timeout, creating it on first use. The client is not tied to an API
+     * key, so all keys share its connection pool.
+     *
+     * @param connectTimeout time to wait for a connection.
+     * @return the shared client.
+     */
+    HttpClient getHttpClient(Duration connectTimeout) {
+        return httpClients.computeIfAbsent(connectTimeout, DeepLHttpTransport::createClient);
+    }
+
+    /**
+     * Returns the rate limiter for the API key, creating it on first use. A
+     * limiter made for another maximum rate, before the preference was
+     * changed, is replaced.
+     *
+     * @param apiKey the DeepL API key.
+     * @param maxRate maximum request rate.
+     * @return the shared limiter.
+     */
+    AdaptiveRateLimiter getRateLimiter(String apiKey, double maxRate) {
+        AdaptiveRateLimiter limiter = limiters.get(apiKey);
+        if (limiter != null && limiter.hasMaxRate(maxRate)) {
+            return limiter;
+        }
+        return limiters.compute(apiKey, (k, current) -> {
+            if (current != null && current.hasMaxRate(maxRate)) {
+                return current;
+            }
+            return new AdaptiveRateLimiter(maxRate);
+        });
+    }
+
+    /**
+     * Returns the quota tracker for the API key, creating it on first use.
+     *
+     * @param apiKey the DeepL API key.
+     * @return the shared tracker.
+     */
+    QuotaTracker getQuotaTracker(String apiKey) {
+        return quotas.computeIfAbsent(apiKey, k -> new QuotaTracker());
+    }
+
+    /**
+     * Returns the supported-language table loaded for the API key.
+     *
+     * @param apiKey the DeepL API key.
+     * @return the table, or null when it is not loaded yet.
+     */
+    DeepLLanguageTable getLanguageTable(String apiKey) {
+        return languageTables.get(apiKey);
+    }
+
+    void putLanguageTable(String apiKey, DeepLLanguageTable table) {
+        languageTables.put(apiKey, table);
+    }
+
+    /**
+     * Returns the circuit breaker of the API key and server, creating it on
+     * first use. A breaker made with other settings, before the preferences
+     * were changed, is retired and replaced. While open, the breaker probes
+     * the server with a usage request.
+     *
+     * @param apiKey the DeepL API key.
+     * @param serverUrl custom server URL, or null to let the library detect it.
+     * @param failureThreshold connection failures opening the breaker.
+     * @param probeIntervalMillis delay between probes while open.
+     * @return the shared breaker.
+     */
+    CircuitBreaker getCircuitBreaker(String apiKey, String serverUrl, int failureThreshold, long probeIntervalMillis) {
+        BreakerKey key = new BreakerKey(apiKey, serverUrl, failureThreshold, probeIntervalMillis);
+        CircuitBreaker breaker = breakers.get(key);
+        if (breaker != null) {
+            return breaker;
+        }
+        retireBreakers(k -> k.apiKey.equals(apiKey) && !k.equals(key));
+        // The probe holds the values it needs, not the engine which asked first.
+        RetryPolicy.DeepLCall<?> probe =
+                () -> getClient(apiKey, serverUrl, DeepLTranslate2.getConnectTimeout()).getUsage();
+        return breakers.computeIfAbsent(key, k -> new CircuitBreaker(failureThreshold, probeIntervalMillis, probe));
+    }
+
+    private void retireBreakers(Predicate<BreakerKey> filter) {
+        breakers.entrySet().removeIf(entry -> {
+            if (filter.test(entry.getKey())) {
+                entry.getValue().retire();
+                return true;
+            }
+            return false;
+        });
+    }
+
+    /**
+     * Returns the glossary sync of the API key, creating it on first use.
+     *
+     * @param apiKey the DeepL API key.
+     * @param stateFile file keeping the uploaded glossaries of the key.
+     * @return the shared glossary sync.
+     */
+    DeepLGlossarySync getGlossarySync(String apiKey, Path stateFile) {
+        return glossaries.computeIfAbsent(apiKey, k -> new DeepLGlossarySync(stateFile));
+    }
+
+    /**
+     * Returns the revision of the content of a synced glossary, whichever key
+     * it belongs to.
+     *
+     * @param glossaryId the glossary ID.
+     * @return the revision, or null when no sync knows the glossary.
+     */
+    String getGlossaryRevision(String glossaryId) {
+        for (DeepLGlossarySync sync : glossaries.values()) {
+            String revision = sync.getRevision(glossaryId);
+            if (revision != null) {
+                return revision;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Stops the threads of the glossary syncs and circuit breakers, e.g. when
+     * the plugin is unloaded. They are created again on next use.
+     */
+    void shutdown() {
+        glossaries.values().forEach(DeepLGlossarySync::shutdown);
+        glossaries.clear();
+        breakers.clear();
+        CircuitBreaker.shutdown();
+    }
+
+    /**
+     * Returns a short hash identifying the API key in file names, so that
+     * the key itself is never written to disk.
+     *
+     * @param apiKey the DeepL API key.
+     * @return 16 hexadecimal digits.
+     */
+    static String getKeyHash(String apiKey) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(apiKey.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 8; i++) {
+                sb.append(String.format("%02x", hash[i]));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Drops every client, limiter, quota tracker, language table, glossary
+     * sync and circuit breaker kept for the API key.
+     *
+     * @param apiKey the API key which is no longer in use.
+     */
+    void invalidate(String apiKey) {
+        clients.keySet().removeIf(key -> key.apiKey.equals(apiKey));
+        limiters.remove(apiKey);
+        quotas.remove(apiKey);
+        languageTables.remove(apiKey);
+        DeepLGlossarySync sync = glossaries.remove(apiKey);
+        if (sync != null) {
+            sync.shutdown();
+        }
+        retireBreakers(key -> key.apiKey.equals(apiKey));
+    }
+
+    /**
+     * Drops all registered clients, limiters, quota trackers, language
+     * tables, glossary syncs, circuit breakers and HTTP clients.
+     */
+    void invalidateAll() {
+        clients.clear();
+        limiters.clear();
+        quotas.clear();
+        languageTables.clear();
+        glossaries.values().forEach(DeepLGlossarySync::shutdown);
+        glossaries.clear();
+        retireBreakers(key -> true);
+        httpClients.clear();
+    }
+
+    private static final class ClientKey {
+        private final String apiKey;
+        private final String serverUrl;
+        private final DeepLApiVersion apiVersion;
+        private final Duration timeout;
+
+        ClientKey(String apiKey, String serverUrl, DeepLApiVersion apiVersion, Duration timeout) {
+            this.apiKey = apiKey;
+            this.serverUrl = serverUrl;
+            this.apiVersion = apiVersion;
+            this.timeout = timeout;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ClientKey)) {
+                return false;
+            }
+            ClientKey that = (ClientKey) o;
+            return apiKey.equals(that.apiKey)
+                    && Objects.equals(serverUrl, that.serverUrl)
+                    && apiVersion == that.apiVersion
+                    && Objects.equals(timeout, that.timeout);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(apiKey, serverUrl, apiVersion, timeout);
+        }
+    }
+
+    private static final class BreakerKey {
+        private final String apiKey;
+        private final String serverUrl;
+        private final int failureThreshold;
+        private final long probeIntervalMillis;
+
+        BreakerKey(String apiKey, String serverUrl, int failureThreshold, long probeIntervalMillis) {
+            this.apiKey = apiKey;
+            this.serverUrl = serverUrl;
+            this.failureThreshold = failureThreshold;
+            this.probeIntervalMillis = probeIntervalMillis;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof BreakerKey)) {
+                return false;
+            }
+            BreakerKey that = (BreakerKey) o;
+            return apiKey.equals(that.apiKey)
+                    && Objects.equals(serverUrl, that.serverUrl)
+                    && failureThreshold == that.failureThreshold
+                    && probeIntervalMillis == that.probeIntervalMillis;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(apiKey, serverUrl, failureThreshold, probeIntervalMillis);
+        }
+    }
+}
@@ -0,0 +1,471 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.omegat.machinetranslators.deepl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import org.omegat.util.Log;
+
+/**
+ * Persistent translation cache stored in a single append-only file.
+ * <p>
+ * Each record holds a length, a CRC32 checksum, the serialized
+ * {@link TranslationKey} and the translation. An in-memory open-addressing
+ * index maps the 64-bit hash of a key to the file offset of its latest record
+ * and is rebuilt by a sequential scan when the file is opened. A record that
+ * fails its checksum ends the scan and the file is truncated there, so a
+ * write interrupted by a crash only loses that record.
+ * <p>
+ * When the file grows over its size limit it is compacted: superseded records
+ * are dropped, and the oldest entries are evicted until the file is down to
+ * three quarters of the limit. Compaction writes a new file and atomically
+ * replaces the old one.
+ * <p>
+ * The file is locked while it is open, so the engine instances of a process
+ * share one cache through {@link #getShared(Path, long)}; it is closed when
+ * the plugin is unloaded.
+ *
+ * @author Hiroshi Miura
+ */
+final class DeepLDiskCache implements Closeable {
+
+    private static final int MAGIC = 0x444c4331; // "DLC1"
+    private static final int HEADER_SIZE = 4;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final int MAX_RECORD_SIZE = 16 * 1024 * 1024;
+
+    private static DeepLDiskCache shared;
+    private static boolean sharedUnavailable;
+
+    private final Path file;
+    private final long maxBytes;
+    private FileChannel channel;
+    private FileLock lock;
+    private long writePosition;
+
+    // open-addressing index: hashes[i] == 0 marks an empty slot.
+    private long[] hashes;
+    private long[] offsets;
+    private int count;
+
+    private DeepLDiskCache(Path file, long maxBytes) {
+        this.file = file;
+        this.maxBytes = maxBytes;
+        hashes = new long[1024];
+        offsets = new long[1024];
+    }
+
+    /**
+     * Opens the cache file, creating it when missing.
+     *
+     * @param file the cache file.
+     * @param maxBytes size limit of the file.
+     * @return the cache.
+     * @throws IOException when the file cannot be opened, or is locked by
+     *             another OmegaT instance.
+     */
+    static DeepLDiskCache open(Path file, long maxBytes) throws IOException {
+        DeepLDiskCache cache = new DeepLDiskCache(file, maxBytes);
+        Files.createDirectories(file.getParent());
+        cache.openChannel();
+        return cache;
+    }
+
+    /**
+     * Returns the cache shared by the process, opening it on first use. When
+     * the file cannot be opened, for instance because another OmegaT instance
+     * holds it, null is returned until the shared cache is closed.
+     *
+     * @param file the cache file.
+     * @param maxBytes size limit of the file.
+     * @return the cache, or null.
+     */
+    static synchronized DeepLDiskCache getShared(Path file, long maxBytes) {
+        if (shared == null && !sharedUnavailable) {
+            try {
+                shared = open(file, maxBytes);
+            } catch (IOException e) {
+                Log.log("DeepL disk cache is not available: " + e.getMessage());
+                sharedUnavailable = true;
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * Closes the shared cache, releasing the file.
+     */
+    static synchronized void closeShared() {
+        if (shared != null) {
+            try {
+                shared.close();
+            } catch (IOException e) {
+                Log.log("DeepL disk cache could not be closed: " + e.getMessage());
+            }
+            shared = null;
+        }
+        sharedUnavailable = false;
+    }
+
+    private synchronized void openChannel() throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            lock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        }
+        if (lock == null) {
+            channel.close();
+            throw new IOException("DeepL cache file is in use: " + file);
+        }
+        if (channel.size() < HEADER_SIZE) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(0, MAGIC);
+            channel.truncate(0);
+            channel.write(header, 0);
+            writePosition = HEADER_SIZE;
+        } else {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(header, 0);
+            if (header.getInt(0) != MAGIC) {
+                // Unknown format; start over.
+                channel.truncate(0);
+                channel.write(ByteBuffer.allocate(HEADER_SIZE).putInt(0, MAGIC), 0);
+                writePosition = HEADER_SIZE;
+            } else {
+                scan();
+            }
+        }
+    }
+
+    private void scan() throws IOException {
+        long size = channel.size();
+        long position = HEADER_SIZE;
+        ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        while (position + RECORD_HEADER_SIZE <= size) {
+            recordHeader.clear();
+            readFully(recordHeader, position);
+            int length = recordHeader.getInt(0);
+            int crc = recordHeader.getInt(4);
+            if (length <= 8 || length > MAX_RECORD_SIZE || position + RECORD_HEADER_SIZE + length > size) {
+                break;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(payload, position + RECORD_HEADER_SIZE);
+            if (crc(payload.array()) != crc) {
+                break;
+            }
+            int keyLength = payload.getInt(0);
+            if (keyLength < 0 || keyLength > length - 8) {
+                break;
+            }
+            indexPut(hash64(payload.array(), 4, keyLength), position);
+            position += RECORD_HEADER_SIZE + length;
+        }
+        if (position < size) {
+            // Drop a torn or corrupted tail.
+            channel.truncate(position);
+        }
+        writePosition = position;
+    }
+
+    /**
+     * Looks up a translation.
+     *
+     * @param key the translation key.
+     * @return the cached translation, or null.
+     */
+    synchronized String get(TranslationKey key) {
+        // A pending interrupt would close the channel on the first read.
+        boolean interrupted = Thread.interrupted();
+        try {
+            return ensureOpen() ? read(key) : null;
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private String read(TranslationKey key) {
+        byte[] keyBytes = key.toBytes();
+        int slot = indexFind(hash64(keyBytes, 0, keyBytes.length));
+        if (slot < 0) {
+            return null;
+        }
+        try {
+            ByteBuffer payload = readRecord(offsets[slot]);
+            if (payload == null) {
+                return null;
+            }
+            int keyLength = payload.getInt(0);
+            if (keyLength != keyBytes.length
+                    || !Arrays.equals(payload.array(), 4, 4 + keyLength, keyBytes, 0, keyBytes.length)) {
+                return null;
+            }
+            int valueLength = payload.getInt(4 + keyLength);
+            return new String(payload.array(), 8 + keyLength, valueLength, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Stores a translation.
+     *
+     * @param key the translation key.
+     * @param translation the translation.
+     * @throws IOException when the cache file cannot be written.
+     */
+    synchronized void put(TranslationKey key, String translation) throws IOException {
+        boolean interrupted = Thread.interrupted();
+        try {
+            if (ensureOpen()) {
+                write(key, translation);
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void write(TranslationKey key, String translation) throws IOException {
+        byte[] keyBytes = key.toBytes();
+        byte[] valueBytes = translation.getBytes(StandardCharsets.UTF_8);
+        int length = 8 + keyBytes.length + valueBytes.length;
+        if (length > MAX_RECORD_SIZE) {
+            return;
+        }
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + length);
+        record.putInt(length).putInt(0).putInt(keyBytes.length).put(keyBytes).putInt(valueBytes.length);
+        record.put(valueBytes);
+        record.putInt(4, crc(record.array(), RECORD_HEADER_SIZE, length));
+        record.flip();
+        long position = writePosition;
+        while (record.hasRemaining()) {
+            position += channel.write(record, position);
+        }
+        indexPut(hash64(keyBytes, 0, keyBytes.length), writePosition);
+        writePosition = position;
+        if (writePosition > maxBytes) {
+            compact(maxBytes / 4 * 3);
+        }
+    }
+
+    /**
+     * Reopens the file when the channel was closed under us. A FileChannel is
+     * closed when a thread using it is interrupted, e.g. by the cancellation
+     * of a translation request; the file is then scanned again.
+     *
+     * @return true when the cache can be used.
+     */
+    private boolean ensureOpen() {
+        if (channel == null) {
+            return false;
+        }
+        if (channel.isOpen()) {
+            return true;
+        }
+        try {
+            Arrays.fill(hashes, 0);
+            count = 0;
+            openChannel();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return number of entries in the cache.
+     */
+    synchronized int size() {
+        return count;
+    }
+
+    /**
+     * Rewrites the file with only the newest live records fitting in the
+     * target size, then replaces the current file.
+     */
+    private void compact(long targetBytes) throws IOException {
+        long[] live = new long[count];
+        int n = 0;
+        for (int i = 0; i < hashes.length; i++) {
+            if (hashes[i] != 0) {
+                live[n++] = offsets[i];
+            }
+        }
+        Arrays.sort(live, 0, n);
+        // Keep the newest records, i.e. the ones at the end of the file.
+        long kept = HEADER_SIZE;
+        int first = n;
+        while (first > 0) {
+            long length = recordLength(live[first - 1]);
+            if (kept + length > targetBytes) {
+                break;
+            }
+            kept += length;
+            first--;
+        }
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(
+                tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            out.write(ByteBuffer.allocate(HEADER_SIZE).putInt(0, MAGIC));
+            for (int i = first; i < n; i++) {
+                long length = recordLength(live[i]);
+                long transferred = 0;
+                while (transferred < length) {
+                    transferred += channel.transferTo(live[i] + transferred, length - transferred, out);
+                }
+            }
+            out.force(true);
+        }
+        lock.release();
+        channel.close();
+        try {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        } finally {
+            // The compacted file, or the old one when it could not be replaced.
+            Arrays.fill(hashes, 0);
+            count = 0;
+            openChannel();
+        }
+    }
+
+    private long recordLength(long offset) throws IOException {
+        ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        readFully(recordHeader, offset);
+        return RECORD_HEADER_SIZE + recordHeader.getInt(0);
+    }
+
+    private ByteBuffer readRecord(long offset) throws IOException {
+        ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        readFully(recordHeader, offset);
+        int length = recordHeader.getInt(0);
+        if (length <= 8 || length > MAX_RECORD_SIZE) {
+            return null;
+        }
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        readFully(payload, offset + RECORD_HEADER_SIZE);
+        if (crc(payload.array()) != recordHeader.getInt(4)) {
+            return null;
+        }
+        return payload;
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        long p = position;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, p);
+            if (read < 0) {
+                throw new IOException("Unexpected end of DeepL cache file");
+            }
+            p += read;
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.force(false);
+            lock.release();
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private int indexFind(long hash) {
+        int mask = hashes.length - 1;
+        int i = (int) (hash ^ (hash >>> 32)) & mask;
+        while (hashes[i] != 0) {
+            if (hashes[i] == hash) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void indexPut(long hash, long offset) {
+        if ((count + 1) * 2 > hashes.length) {
+            long[] oldHashes = hashes;
+            long[] oldOffsets = offsets;
+            hashes = new long[oldHashes.length * 2];
+            offsets = new long[oldOffsets.length * 2];
+            count = 0;
+            for (int i = 0; i < oldHashes.length; i++) {
+                if (oldHashes[i] != 0) {
+                    indexPut(oldHashes[i], oldOffsets[i]);
+                }
+            }
+        }
+        int mask = hashes.length - 1;
+        int i = (int) (hash ^ (hash >>> 32)) & mask;
+        while (hashes[i] != 0 && hashes[i] != hash) {
+            i = (i + 1) & mask;
+        }
+        if (hashes[i] == 0) {
+            count++;
+        }
+        hashes[i] = hash;
+        offsets[i] = offset;
+    }
+
+    private static int crc(byte[] bytes) {
+        return crc(bytes, 0, bytes.length);
+    }
+
+    private static int crc(byte[] bytes, int offset, int length) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(bytes, offset, length);
+        return (int) crc32.getValue();
+    }
+
+    /**
+     * FNV-1a 64-bit hash; never returns 0, which marks empty index slots.
+     */
+    static long hash64(byte[] bytes, int offset, int length) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = offset; i < offset + length; i++) {
+            h ^= bytes[i] & 0xff;
+            h *= 0x100000001b3L;
+        }
+        return h == 0 ? 1 : h;
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package org.omegat.machinetranslators.deepl;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.omegat.util.Log;
+
+/**
+ * Executor running DeepL requests off the caller's thread.
+ * <p>
+ * Requests run on virtual threads when the Java runtime provides them, and on
+ * a small pool of daemon threads otherwise. In both cases no more than
+ * {@link #MAX_CONCURRENT_REQUESTS} requests run at the same time.
+ * <p>
+ * Cancelling a returned future interrupts the request: a request still
+ * queued, or waiting for the rate limiter or a retry, is never sent. A
+ * request already waiting for the DeepL response cannot be aborted by the
+ * HTTP client, but its caller is released at once.
+ *
+ * @author Hiroshi Miura
+ */
+final class DeepLExecutor {
+
+    static final int MAX_CONCURRENT_REQUESTS = 8;
+
+    private static final Semaphore PERMITS = new Semaphore(MAX_CONCURRENT_REQUESTS);
+    private static ExecutorService executor;
+
+    private DeepLExecutor() {}
+
+    /**
+     * Runs the task on the executor.
+     *
+     * @param task the task.
+     * @param <T> result type.
+     * @return future of the result; cancelling it interrupts the task.
+     */
+    static <T> CompletableFuture<T> submit(Callable<T> task) {
+        InterruptibleFuture<T> future = new InterruptibleFuture<>();
+        getExecutor().execute(() -> future.run(task));
+        return future;
+    }
+
+    private static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = createExecutor();
+        }
+        return executor;
+    }
+
+    /**
+     * Stops the threads of the executor, e.g. when the plugin is unloaded.
+     */
+    static synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private static ExecutorService createExecutor() {
+        try {
+            // Java 21 and later; the plugin is built for Java 11.
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            Log.log("DeepL requests run on platform threads.");
+        }
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                MAX_CONCURRENT_REQUESTS,
+                MAX_CONCURRENT_REQUESTS,
+                60,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                r -> {
+                    Thread thread = new Thread(r, "DeepL request " + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * Future which interrupts the thread running its task when cancelled.
+     */
+    private static final class InterruptibleFuture<T> extends CompletableFuture<T> {
+        private Thread runner;
+
+        void run(Callable<T> task) {
+            synchronized (this) {
+                if (isDone()) {
+                    // Cancelled while queued.
+                    return;
+                }
+                runner = Thread.currentThread();
+            }
+            try {
+                PERMITS.acquire();
+                try {
+                    complete(task.call());
+                } finally {
+                    PERMITS.release();
+                }
+            } catch (Throwable t) {
+                completeExceptionally(t);
+            } finally {
+                synchronized (this) {
+                    runner = null;
+                }
+                // Do not leak a cancellation into the next task of a pooled thread.
+                Thread.interrupted();
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                synchronized (this) {
+                    if (runner != null) {
+                        runner.interrupt();
+                    }
+                }
+            }
+            return cancelled;
+        }
+    }
+}
@@ -0,0 +1,534 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package org.omegat.machinetranslators.deepl;
+
+import com.deepl.api.DeepLClient;
+import com.deepl.api.DeepLException;
+import com.deepl.api.GlossaryEntries;
+import com.deepl.api.MultilingualGlossaryDictionaryEntries;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.omegat.util.Log;
+
+/**
+ * Keeps a DeepL glossary in sync with the tab-separated glossary files of an
+ * OmegaT project.
+ * <p>
+ * The glossary ID returned by DeepL is stored under a SHA-256 hash of the
+ * entries and language pair, so that a glossary is uploaded only once for
+ * the same content. Glossaries are created as v3 multilingual glossaries,
+ * whose dictionaries can be edited: when the entries change, only the added
+ * and changed entries are sent, and the whole dictionary is replaced only
+ * when entries were removed. The glossary keeps its ID; a glossary shared
+ * with another project is left alone and a new one is created instead.
+ * <p>
+ * The glossary files are checked at most once every
+ * {@link #CHECK_INTERVAL_MILLIS}, in the background; the files are only read
+ * again when their size or modification time changed. Translation requests
+ * take the current glossary ID from memory and never wait for a sync.
+ *
+ * @author Hiroshi Miura
+ */
+final class DeepLGlossarySync {
+
+    static final String PROPERTY_GLOSSARY_ENABLED = "deepl.glossary.enabled";
+    static final long CHECK_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private static final String[] EXTENSIONS = {".txt", ".utf8", ".tab", ".tsv"};
+    private static final String PREFIX_HASH = "hash.";
+    private static final String PREFIX_ID = "id.";
+    private static final String PREFIX_STAMP = "stamp.";
+
+    private final Path stateFile;
+    private final Properties state = new Properties();
+    private final ConcurrentMap<String, String> glossaryIds = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, String> revisions = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Long> lastChecks = new ConcurrentHashMap<>();
+    private final Set<String> rejected = ConcurrentHashMap.newKeySet();
+    private final ThreadPoolExecutor executor;
+    private final Object syncLock = new Object();
+
+    /**
+     * Creates a sync for one API key.
+     *
+     * @param stateFile file keeping the uploaded glossaries of the key.
+     */
+    DeepLGlossarySync(Path stateFile) {
+        this.stateFile = stateFile;
+        if (Files.isRegularFile(stateFile)) {
+            try (InputStream in = Files.newInputStream(stateFile)) {
+                state.load(in);
+            } catch (IOException e) {
+                Log.log("DeepL glossary state could not be read: " + e.getMessage());
+            }
+        }
+        for (String name : state.stringPropertyNames()) {
+            if (name.startsWith(PREFIX_HASH)) {
+                revisions.put(state.getProperty(name), name.substring(PREFIX_HASH.length()));
+            }
+        }
+        executor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "DeepL glossary sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Stops the sync thread, abandoning a sync in progress.
+     */
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Returns the revision of the glossary content, which changes whenever its
+     * dictionary is edited.
+     *
+     * @param glossaryId the glossary ID.
+     * @return the revision, or null when the glossary is not synced here.
+     */
+    String getRevision(String glossaryId) {
+        String hash = revisions.get(glossaryId);
+        return hash == null ? null : hash.substring(0, 12);
+    }
+
+    /**
+     * Returns the ID of the glossary to use for the language pair, and checks
+     * the glossary files in the background when they are due.
+     *
+     * @param client the DeepL client.
+     * @param glossaryDir glossary folder of the project.
+     * @param sourceLang DeepL source language code.
+     * @param targetLang DeepL target language code.
+     * @return the glossary ID, or null when no glossary is available yet.
+     */
+    String getGlossaryId(DeepLClient client, File glossaryDir, String sourceLang, String targetLang) {
+        String pair = getPairKey(glossaryDir, sourceLang, targetLang);
+        long now = System.currentTimeMillis();
+        Long last = lastChecks.get(pair);
+        if (last == null) {
+            // First use in this session: reuse the glossary of unchanged files at once.
+            String stamp = getStamp(glossaryDir);
+            synchronized (this) {
+                String id = state.getProperty(PREFIX_ID + pair);
+                if (id != null && stamp.equals(state.getProperty(PREFIX_STAMP + pair))) {
+                    glossaryIds.putIfAbsent(pair, id);
+                }
+            }
+        }
+        if (last == null || now - last >= CHECK_INTERVAL_MILLIS) {
+            lastChecks.put(pair, now);
+            executor.execute(() -> {
+                try {
+                    sync(client, glossaryDir, sourceLang, targetLang);
+                } catch (DeepLException | IOException | RuntimeException e) {
+                    Log.log("DeepL glossary sync failed: " + e.getMessage());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        return glossaryIds.get(pair);
+    }
+
+    /**
+     * Uploads the glossary of the language pair when its entries changed, or
+     * updates the glossary in place. Syncs run one at a time.
+     *
+     * @param client the DeepL client.
+     * @param glossaryDir glossary folder of the project.
+     * @param sourceLang DeepL source language code.
+     * @param targetLang DeepL target language code.
+     * @return the glossary ID, or null when the folder has no entries.
+     */
+    String sync(DeepLClient client, File glossaryDir, String sourceLang, String targetLang)
+            throws DeepLException, InterruptedException, IOException {
+        synchronized (syncLock) {
+            String pair = getPairKey(glossaryDir, sourceLang, targetLang);
+            String stamp = getStamp(glossaryDir);
+            String previous;
+            synchronized (this) {
+                previous = state.getProperty(PREFIX_ID + pair);
+                if (stamp.equals(state.getProperty(PREFIX_STAMP + pair))) {
+                    if (previous != null) {
+                        glossaryIds.put(pair, previous);
+                    }
+                    return previous;
+                }
+            }
+            Map<String, String> entries = readEntries(glossaryDir);
+            if (entries.isEmpty()) {
+                glossaryIds.remove(pair);
+                synchronized (this) {
+                    state.remove(PREFIX_ID + pair);
+                    state.setProperty(PREFIX_STAMP + pair, stamp);
+                    save();
+                }
+                return null;
+            }
+            String glossarySource = getGlossaryLanguage(sourceLang);
+            String glossaryTarget = getGlossaryLanguage(targetLang);
+            String hash = hash(glossarySource, glossaryTarget, entries);
+            String id;
+            synchronized (this) {
+                id = state.getProperty(PREFIX_HASH + hash);
+            }
+            if (id == null) {
+                if (rejected.contains(hash)) {
+                    return null;
+                }
+                if (previous != null && !isUsedElsewhere(previous, pair)) {
+                    id = update(client, previous, glossarySource, glossaryTarget, entries);
+                }
+                if (id == null) {
+                    try {
+                        id = create(client, hash, glossarySource, glossaryTarget, entries);
+                    } catch (DeepLException e) {
+                        // Not retried until the entries change, e.g. for an unsupported language pair.
+                        rejected.add(hash);
+                        throw e;
+                    }
+                }
+                saveEntries(id, entries);
+            }
+            boolean obsolete = false;
+            synchronized (this) {
+                // The old content of a glossary updated in place is gone.
+                for (String name : state.stringPropertyNames()) {
+                    if (name.startsWith(PREFIX_HASH) && id.equals(state.getProperty(name))) {
+                        state.remove(name);
+                    }
+                }
+                state.setProperty(PREFIX_HASH + hash, id);
+                state.setProperty(PREFIX_ID + pair, id);
+                state.setProperty(PREFIX_STAMP + pair, stamp);
+                if (previous != null && !previous.equals(id)) {
+                    // The previous glossary is kept while another project still uses it.
+                    obsolete = !isInUse(previous);
+                    if (obsolete) {
+                        state.values().removeIf(previous::equals);
+                    }
+                }
+                save();
+            }
+            revisions.put(id, hash);
+            glossaryIds.put(pair, id);
+            if (obsolete) {
+                revisions.remove(previous);
+                try {
+                    Files.deleteIfExists(getEntriesFile(previous));
+                    client.deleteMultilingualGlossary(previous);
+                } catch (DeepLException | IOException e) {
+                    Log.log("DeepL glossary " + previous + " could not be deleted: " + e.getMessage());
+                }
+            }
+            return id;
+        }
+    }
+
+    private String create(
+            DeepLClient client, String hash, String sourceLang, String targetLang, Map<String, String> entries)
+            throws DeepLException, InterruptedException {
+        String id = client.createMultilingualGlossary(
+                        "OmegaT " + hash.substring(0, 12),
+                        Collections.singletonList(new MultilingualGlossaryDictionaryEntries(
+                                sourceLang, targetLang, new GlossaryEntries(entries))))
+                .getGlossaryId();
+        Log.log("DeepL glossary " + id + " uploaded with " + entries.size() + " entries.");
+        return id;
+    }
+
+    /**
+     * Edits the dictionary of the glossary in place. Added and changed
+     * entries are merged into it; when entries were removed, or the entries
+     * last sent are not known, the dictionary is replaced.
+     *
+     * @return the glossary ID, or null when the glossary could not be
+     *         updated, e.g. because it no longer exists.
+     */
+    private String update(
+            DeepLClient client, String id, String sourceLang, String targetLang, Map<String, String> entries)
+            throws InterruptedException {
+        Map<String, String> sent = loadEntries(id);
+        try {
+            if (sent != null && entries.keySet().containsAll(sent.keySet())) {
+                Map<String, String> changes = new TreeMap<>(entries);
+                changes.entrySet().removeIf(e -> e.getValue().equals(sent.get(e.getKey())));
+                client.updateMultilingualGlossaryDictionary(
+                        id,
+                        new MultilingualGlossaryDictionaryEntries(
+                                sourceLang, targetLang, new GlossaryEntries(changes)));
+                Log.log("DeepL glossary " + id + " updated with " + changes.size() + " entries.");
+            } else {
+                client.replaceMultilingualGlossaryDictionary(
+                        id,
+                        new MultilingualGlossaryDictionaryEntries(
+                                sourceLang, targetLang, new GlossaryEntries(entries)));
+                Log.log("DeepL glossary " + id + " replaced with " + entries.size() + " entries.");
+            }
+        } catch (DeepLException e) {
+            // E.g. the glossary was deleted on the DeepL side: a new one is created.
+            Log.log("DeepL glossary " + id + " could not be updated: " + e.getMessage());
+            return null;
+        }
+        return id;
+    }
+
+    /**
+     * Tells whether a language pair other than the given one uses the
+     * glossary, so that it must not be edited for this one.
+     */
+    private synchronized boolean isUsedElsewhere(String id, String pair) {
+        for (String name : state.stringPropertyNames()) {
+            if (name.startsWith(PREFIX_ID) && !name.equals(PREFIX_ID + pair) && id.equals(state.getProperty(name))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Keeps the entries last sent for a glossary, so that the next update
+     * only sends what changed.
+     */
+    private void saveEntries(String id, Map<String, String> entries) throws IOException {
+        Path file = getEntriesFile(id);
+        Files.createDirectories(file.getParent());
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            sb.append(entry.getKey()).append('\t').append(entry.getValue()).append('\n');
+        }
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(tmp, sb.toString().getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return the entries last sent for the glossary, or null when unknown.
+     */
+    private Map<String, String> loadEntries(String id) {
+        Path file = getEntriesFile(id);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        Map<String, String> entries = new TreeMap<>();
+        try {
+            // Terms never hold tabs or line breaks, see isValidTerm.
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                int tab = line.indexOf('\t');
+                if (tab > 0) {
+                    entries.put(line.substring(0, tab), line.substring(tab + 1));
+                }
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        return entries;
+    }
+
+    private Path getEntriesFile(String id) {
+        return stateFile.resolveSibling("glossary-" + id + ".tsv");
+    }
+
+    private boolean isInUse(String id) {
+        for (String name : state.stringPropertyNames()) {
+            if (name.startsWith(PREFIX_ID) && id.equals(state.getProperty(name))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void save() throws IOException {
+        Files.createDirectories(stateFile.getParent());
+        Path tmp = stateFile.resolveSibling(stateFile.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            state.store(out, "DeepL glossaries");
+        }
+        Files.move(tmp, stateFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads the entries of the tab-separated glossary files in the folder and
+     * its subfolders. The first two columns are the source and target terms;
+     * lines starting with '#' are comments. When a source term appears more
+     * than once, the first entry wins, as DeepL accepts one entry per term.
+     *
+     * @param glossaryDir the glossary folder.
+     * @return the entries, sorted by source term.
+     * @throws IOException when a file cannot be read.
+     */
+    static Map<String, String> readEntries(File glossaryDir) throws IOException {
+        Map<String, String> entries = new TreeMap<>();
+        for (Path file : listFiles(glossaryDir)) {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8))) {
+                String line;
+                boolean first = true;
+                while ((line = reader.readLine()) != null) {
+                    if (first && line.startsWith("\uFEFF")) {
+                        line = line.substring(1);
+                    }
+                    first = false;
+                    if (line.startsWith("#")) {
+                        continue;
+                    }
+                    String[] columns = line.split("\t", 3);
+                    if (columns.length < 2) {
+                        continue;
+                    }
+                    String source = columns[0].trim();
+                    String target = columns[1].trim();
+                    if (isValidTerm(source) && isValidTerm(target)) {
+                        entries.putIfAbsent(source, target);
+                    }
+                }
+            }
+        }
+        return entries;
+    }
+
+    private static boolean isValidTerm(String term) {
+        if (term.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < term.length(); i++) {
+            char c = term.charAt(i);
+            if (c < 0x20 || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<Path> listFiles(File glossaryDir) throws IOException {
+        if (!glossaryDir.isDirectory()) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> stream = Files.walk(glossaryDir.toPath())) {
+            return stream.filter(Files::isRegularFile)
+                    .filter(DeepLGlossarySync::isGlossaryFile)
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static boolean isGlossaryFile(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ENGLISH);
+        for (String extension : EXTENSIONS) {
+            if (name.endsWith(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Describes the names, sizes and modification times of the glossary
+     * files, to notice changes without reading them.
+     */
+    private static String getStamp(File glossaryDir) {
+        StringBuilder sb = new StringBuilder();
+        try {
+            for (Path file : listFiles(glossaryDir)) {
+                sb.append(file)
+                        .append('\u0000')
+                        .append(Files.size(file))
+                        .append('\u0000')
+                        .append(Files.getLastModifiedTime(file).toMillis())
+                        .append('\n');
+            }
+        } catch (IOException e) {
+            // An unreadable folder never matches a stored stamp.
+            return "";
+        }
+        return sha256(sb.toString());
+    }
+
+    private static String getPairKey(File glossaryDir, String sourceLang, String targetLang) {
+        return sha256(glossaryDir.getAbsolutePath() + '\u0000' + sourceLang + '\u0000' + targetLang)
+                .substring(0, 16);
+    }
+
+    /**
+     * Glossaries are defined for languages without regional variant, e.g. EN
+     * for a translation into EN-US.
+     */
+    static String getGlossaryLanguage(String code) {
+        int dash = code.indexOf('-');
+        return (dash > 0 ? code.substring(0, dash) : code).toUpperCase(Locale.ENGLISH);
+    }
+
+    static String hash(String sourceLang, String targetLang, Map<String, String> entries) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(sourceLang).append('\u0000').append(targetLang).append('\n');
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            sb.append(entry.getKey()).append('\t').append(entry.getValue()).append('\n');
+        }
+        return sha256(sb.toString());
+    }
+
+    private static String sha256(String text) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
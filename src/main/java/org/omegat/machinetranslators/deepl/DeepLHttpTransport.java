@@ -0,0 +1,309 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.omegat.machinetranslators.deepl;
+
+import com.deepl.api.AuthorizationException;
+import com.deepl.api.ConnectionException;
+import com.deepl.api.DeepLException;
+import com.deepl.api.NotFoundException;
+import com.deepl.api.QuotaExceededException;
+import com.deepl.api.SentenceSplittingMode;
+import com.deepl.api.TextTranslationOptions;
+import com.deepl.api.TooManyRequestsException;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Authenticator;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Transport over the JDK HTTP client.
+ * <p>
+ * The {@link HttpClient} is shared by all API keys with the same connect
+ * timeout (see {@link DeepLClientRegistry#getHttpClient}). It negotiates
+ * HTTP/2 where the server offers it, so that parallel requests are
+ * multiplexed over one connection, and keeps idle connections for reuse.
+ * Responses are requested gzip-compressed. Unlike the client library, the
+ * transport applies the connect and read timeouts separately, and passes the
+ * Retry-After header of a throttled response on to {@link RetryPolicy}.
+ * <p>
+ * Unlike {@code HttpURLConnection}, the JDK HTTP client does not fall back to
+ * the default {@link Authenticator}, so the proxy selector and authenticator
+ * OmegaT sets up for proxies are given to it explicitly.
+ *
+ * @author Hiroshi Miura
+ */
+final class DeepLHttpTransport implements DeepLTransport {
+
+    private static final String FREE_SERVER_URL = "https://api-free.deepl.com";
+    private static final String PRO_SERVER_URL = "https://api.deepl.com";
+    private static final String USER_AGENT = "omegat-deepl-connector";
+
+    /**
+     * A 429 response, with the delay the server asked for.
+     */
+    static final class ThrottledException extends TooManyRequestsException {
+        private static final long serialVersionUID = 1L;
+
+        private final long retryAfterNanos;
+
+        ThrottledException(String message, long retryAfterNanos) {
+            super(message);
+            this.retryAfterNanos = retryAfterNanos;
+        }
+
+        /**
+         * @return the Retry-After delay in nanoseconds, or -1 when the
+         *         response had none.
+         */
+        long getRetryAfterNanos() {
+            return retryAfterNanos;
+        }
+    }
+
+    private final HttpClient client;
+    private final String authKey;
+    private final URI translateUri;
+    private final Duration timeout;
+
+    /**
+     * @param client the shared HTTP client.
+     * @param authKey the DeepL API key.
+     * @param serverUrl custom server URL, or null to choose the Free or Pro
+     *            server from the key, as the client library does.
+     * @param timeout time to wait for a response, or null for no limit.
+     */
+    DeepLHttpTransport(HttpClient client, String authKey, String serverUrl, Duration timeout) {
+        this.client = client;
+        this.authKey = authKey;
+        String server = serverUrl != null ? serverUrl : authKey.endsWith(":fx") ? FREE_SERVER_URL : PRO_SERVER_URL;
+        this.translateUri = URI.create(server.replaceAll("/+$", "") + "/v2/translate");
+        this.timeout = timeout;
+    }
+
+    /**
+     * Creates an HTTP client preferring HTTP/2, going through the default
+     * proxy selector and authenticator.
+     *
+     * @param connectTimeout time to wait for a connection, or null for the
+     *            JDK default.
+     * @return the client.
+     */
+    static HttpClient createClient(Duration connectTimeout) {
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL);
+        if (connectTimeout != null) {
+            builder.connectTimeout(connectTimeout);
+        }
+        ProxySelector proxySelector = ProxySelector.getDefault();
+        if (proxySelector != null) {
+            builder.proxy(proxySelector);
+        }
+        Authenticator authenticator = Authenticator.getDefault();
+        if (authenticator != null) {
+            builder.authenticator(authenticator);
+        }
+        return builder.build();
+    }
+
+    @Override
+    public List<Result> translate(
+            List<String> texts, String sourceLang, String targetLang, TextTranslationOptions options)
+            throws DeepLException, InterruptedException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(translateUri)
+                .header("Authorization", "DeepL-Auth-Key " + authKey)
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .header("Accept-Encoding", "gzip")
+                .header("User-Agent", USER_AGENT)
+                .POST(HttpRequest.BodyPublishers.ofString(getForm(texts, sourceLang, targetLang, options)));
+        if (timeout != null) {
+            builder.timeout(timeout);
+        }
+        String body;
+        HttpResponse<InputStream> response;
+        try {
+            response = client.send(builder.build(), HttpResponse.BodyHandlers.ofInputStream());
+            body = readBody(response);
+        } catch (IOException e) {
+            String reason = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            throw new ConnectionException("Connection failed: " + reason, true, e);
+        }
+        checkStatus(response, body);
+        return parseTranslations(body);
+    }
+
+    static String getForm(List<String> texts, String sourceLang, String targetLang, TextTranslationOptions options) {
+        StringBuilder form = new StringBuilder();
+        for (String text : texts) {
+            addParameter(form, "text", text);
+        }
+        if (sourceLang != null) {
+            addParameter(form, "source_lang", sourceLang);
+        }
+        addParameter(form, "target_lang", targetLang);
+        // Without it, DeepL leaves billed_characters out of the response.
+        addParameter(form, "show_billed_characters", "1");
+        if (options != null) {
+            SentenceSplittingMode splitting = options.getSentenceSplittingMode();
+            if (splitting != null) {
+                addParameter(form, "split_sentences", getSplitSentences(splitting));
+            }
+            if (options.getTagHandling() != null) {
+                addParameter(form, "tag_handling", options.getTagHandling());
+            }
+            if (options.getGlossaryId() != null) {
+                addParameter(form, "glossary_id", options.getGlossaryId());
+            }
+        }
+        return form.toString();
+    }
+
+    private static String getSplitSentences(SentenceSplittingMode mode) {
+        switch (mode) {
+            case Off:
+                return "0";
+            case NoNewlines:
+                return "nonewlines";
+            default:
+                return "1";
+        }
+    }
+
+    private static void addParameter(StringBuilder form, String name, String value) {
+        if (form.length() > 0) {
+            form.append('&');
+        }
+        form.append(name).append('=').append(URLEncoder.encode(value, StandardCharsets.UTF_8));
+    }
+
+    private static String readBody(HttpResponse<InputStream> response) throws IOException {
+        boolean gzip = response.headers()
+                .firstValue("Content-Encoding")
+                .map(v -> v.equalsIgnoreCase("gzip"))
+                .orElse(false);
+        try (InputStream in = gzip ? new GZIPInputStream(response.body()) : response.body()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            in.transferTo(out);
+            return out.toString(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Throws the exception the client library would throw for an error
+     * status.
+     */
+    private static void checkStatus(HttpResponse<?> response, String body) throws DeepLException {
+        int status = response.statusCode();
+        if (status >= 200 && status < 300) {
+            return;
+        }
+        String message = getErrorMessage(body);
+        switch (status) {
+            case 400:
+                throw new DeepLException("Bad request" + message);
+            case 403:
+                throw new AuthorizationException("Authorization failure, check auth_key" + message);
+            case 404:
+                throw new NotFoundException("Not found, check server_url" + message);
+            case 429:
+                throw new ThrottledException(
+                        "Too many requests, DeepL servers are currently experiencing high load" + message,
+                        getRetryAfterNanos(response));
+            case 456:
+                throw new QuotaExceededException("Quota for this billing period has been exceeded" + message);
+            case 503:
+                throw new ServerErrorException("Service unavailable" + message, status, null);
+            default:
+                if (status >= 500) {
+                    throw new ServerErrorException("Server error " + status + message, status, null);
+                }
+                throw new DeepLException("Unknown error" + message);
+        }
+    }
+
+    private static String getErrorMessage(String body) {
+        try {
+            Object message = ((Map<?, ?>) Json.parse(body)).get("message");
+            return message == null ? "" : ", message: " + message;
+        } catch (RuntimeException e) {
+            return "";
+        }
+    }
+
+    /**
+     * Reads a Retry-After header given in seconds or as an HTTP date.
+     */
+    static long getRetryAfterNanos(HttpResponse<?> response) {
+        String value = response.headers().firstValue("Retry-After").orElse(null);
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return TimeUnit.SECONDS.toNanos(Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            // Not a number of seconds: try a date.
+        }
+        try {
+            ZonedDateTime date = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+            long millis = date.toInstant().toEpochMilli() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, millis));
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+
+    static List<Result> parseTranslations(String body) throws DeepLException {
+        List<Result> results = new ArrayList<>();
+        try {
+            Map<?, ?> root = (Map<?, ?>) Json.parse(body);
+            for (Object item : (List<?>) root.get("translations")) {
+                Map<?, ?> translation = (Map<?, ?>) item;
+                Object billed = translation.get("billed_characters");
+                results.add(new Result(
+                        (String) translation.get("text"), billed == null ? 0 : ((Number) billed).intValue()));
+            }
+        } catch (RuntimeException e) {
+            throw new DeepLException("Unexpected response from DeepL", e);
+        }
+        return results;
+    }
+}
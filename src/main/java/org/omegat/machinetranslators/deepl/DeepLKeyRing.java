@@ -0,0 +1,196 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.omegat.machinetranslators.deepl;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+/**
+ * Spreads requests across several API keys.
+ * <p>
+ * Each language pair is routed to one key by weighted rendezvous hashing:
+ * every key scores the pair with a hash of both, scaled by the key's share of
+ * the remaining quota, and the highest score wins. The same pair keeps going
+ * to the same key, so that its glossary and caches stay in use, while pairs
+ * are spread over the keys in proportion to their quota. When a key leaves
+ * the rotation only the pairs it served move, to the next-best key. Bulk
+ * work adds the chunk to the route, so that the chunks of one pair are
+ * spread over the keys in the same proportion.
+ * <p>
+ * A key whose quota is used up (HTTP 456) is taken out of the rotation for
+ * {@link #QUOTA_EJECTION_MINUTES} minutes, a key DeepL refuses (HTTP 403) for
+ * {@link #AUTH_EJECTION_MINUTES} minutes or until the keys are changed.
+ *
+ * @author Hiroshi Miura
+ */
+final class DeepLKeyRing {
+
+    static final long QUOTA_EJECTION_MINUTES = 60;
+    static final long AUTH_EJECTION_MINUTES = 24 * 60;
+
+    /**
+     * Weights are rounded to this many steps, so that the routing does not
+     * change with every billed character.
+     */
+    private static final int WEIGHT_STEPS = 16;
+
+    private final ConcurrentMap<String, Long> ejectedUntil = new ConcurrentHashMap<>();
+
+    /**
+     * Splits the configured value into keys. Keys are separated by commas,
+     * semicolons or whitespace; duplicates are dropped.
+     *
+     * @param value the configured value, or null.
+     * @return the keys, in configured order.
+     */
+    static List<String> parse(String value) {
+        if (value == null) {
+            return Collections.emptyList();
+        }
+        Set<String> keys = new LinkedHashSet<>();
+        for (String key : value.split("[,;\\s]+")) {
+            if (!key.isEmpty()) {
+                keys.add(key);
+            }
+        }
+        return new ArrayList<>(keys);
+    }
+
+    /**
+     * Chooses the key for a route.
+     *
+     * @param keys the configured keys.
+     * @param route what must stay on one key, e.g. the language pair.
+     * @param remaining estimated remaining characters of a key, or -1 when
+     *            unknown.
+     * @return the key; when every key is out of the rotation, the one that
+     *         returns first.
+     */
+    String select(List<String> keys, String route, ToLongFunction<String> remaining) {
+        if (keys.size() == 1) {
+            return keys.get(0);
+        }
+        long now = System.nanoTime();
+        List<String> active = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            if (!isEjected(key, now)) {
+                active.add(key);
+            }
+        }
+        if (active.isEmpty()) {
+            return keys.stream()
+                    .min((a, b) -> Long.compare(ejectedUntil.getOrDefault(a, now), ejectedUntil.getOrDefault(b, now)))
+                    .orElseThrow();
+        }
+        long[] quota = new long[active.size()];
+        long max = 0;
+        for (int i = 0; i < quota.length; i++) {
+            quota[i] = remaining.applyAsLong(active.get(i));
+            max = Math.max(max, quota[i]);
+        }
+        String best = null;
+        double bestScore = -1;
+        for (int i = 0; i < quota.length; i++) {
+            double score = getWeight(quota[i], max) / -Math.log(hash(active.get(i), route));
+            if (score > bestScore) {
+                best = active.get(i);
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Weight of a key from its remaining quota, relative to the key with most
+     * quota left. A key with unknown quota counts as full; an exhausted key
+     * is only chosen when all others are exhausted too.
+     */
+    private static double getWeight(long remaining, long max) {
+        if (remaining < 0 || max <= 0) {
+            return 1;
+        }
+        if (remaining == 0) {
+            return 1.0 / (WEIGHT_STEPS * WEIGHT_STEPS);
+        }
+        return Math.ceil((double) remaining * WEIGHT_STEPS / max) / WEIGHT_STEPS;
+    }
+
+    /**
+     * Hashes key and route to a number in the open interval (0, 1).
+     */
+    static double hash(String key, String route) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : (key + '\n' + route).getBytes(StandardCharsets.UTF_8)) {
+            h = (h ^ (b & 0xff)) * 0x100000001b3L;
+        }
+        // Final mix of SplitMix64, so that similar keys score independently.
+        h = (h ^ (h >>> 30)) * 0xbf58476d1ce4e5b9L;
+        h = (h ^ (h >>> 27)) * 0x94d049bb133111ebL;
+        h ^= h >>> 31;
+        return ((h >>> 11) + 0.5) / (1L << 53);
+    }
+
+    /**
+     * Takes the key out of the rotation.
+     *
+     * @param key the key.
+     * @param minutes how long it stays out.
+     */
+    void eject(String key, long minutes) {
+        ejectedUntil.put(key, System.nanoTime() + TimeUnit.MINUTES.toNanos(minutes));
+    }
+
+    boolean isEjected(String key) {
+        return isEjected(key, System.nanoTime());
+    }
+
+    private boolean isEjected(String key, long now) {
+        Long until = ejectedUntil.get(key);
+        if (until == null) {
+            return false;
+        }
+        if (until - now <= 0) {
+            ejectedUntil.remove(key, until);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Puts every key back into the rotation, e.g. when the keys are changed.
+     */
+    void reset() {
+        ejectedUntil.clear();
+    }
+}
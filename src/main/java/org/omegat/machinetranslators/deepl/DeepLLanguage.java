@@ -26,10 +26,15 @@ package org.omegat.machinetranslators.deepl;
 
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import org.omegat.util.Language;
 
 /**
  * Utility class for mapping OmegaT language codes to DeepL API language codes.
+ * <p>
+ * Each language is mapped once; later lookups return the memoized code
+ * without building or upper-casing strings again.
  *
  * @author Hiroshi Miura
  */
@@ -69,6 +74,9 @@ public final class DeepLLanguage {
             "ZH-HANS", "ZH",
             "ZH-HANT", "ZH");
 
+    private final ConcurrentMap<Language, String> targetCodes = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Language, String> sourceCodes = new ConcurrentHashMap<>();
+
     /**
      * Maps an OmegaT language code to a DeepL API language code using the provided mapping.
      *
@@ -88,7 +96,12 @@ public final class DeepLLanguage {
      * @return the DeepL API language code corresponding to the provided target language.
      */
     public String getTargetLanguage(Language language) {
-        return mapToDeepLLanguage(language, TARGET_LANG_MAP);
+        String code = targetCodes.get(language);
+        if (code == null) {
+            code = mapToDeepLLanguage(language, TARGET_LANG_MAP);
+            targetCodes.putIfAbsent(language, code);
+        }
+        return code;
     }
 
     /**
@@ -98,6 +111,11 @@ public final class DeepLLanguage {
      * @return the DeepL API language code corresponding to the provided source language.
      */
     public String getSourceLanguage(Language language) {
-        return mapToDeepLLanguage(language, SOURCE_LANG_MAP);
+        String code = sourceCodes.get(language);
+        if (code == null) {
+            code = mapToDeepLLanguage(language, SOURCE_LANG_MAP);
+            sourceCodes.putIfAbsent(language, code);
+        }
+        return code;
     }
 }
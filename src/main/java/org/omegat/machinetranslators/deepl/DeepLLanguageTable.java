@@ -0,0 +1,228 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package org.omegat.machinetranslators.deepl;
+
+import com.deepl.api.DeepLException;
+import com.deepl.api.Translator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Source and target languages supported by DeepL for an API key.
+ * <p>
+ * The table is fetched once from the /v2/languages endpoint and kept in a
+ * properties file for {@link #TTL_MILLIS}, so that unsupported language pairs
+ * are rejected locally, without a round trip to DeepL. When the table cannot
+ * be fetched, an unknown table is used instead: it accepts every language and
+ * expires after {@link #RETRY_MILLIS}, so that the endpoint is not queried on
+ * every request while it is unavailable.
+ *
+ * @author Hiroshi Miura
+ */
+final class DeepLLanguageTable {
+
+    static final long TTL_MILLIS = TimeUnit.DAYS.toMillis(7);
+    static final long RETRY_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private static final String KEY_FETCHED = "fetched";
+    private static final String KEY_SOURCE = "source";
+    private static final String KEY_TARGET = "target";
+
+    private final Set<String> sourceLanguages;
+    private final Set<String> targetLanguages;
+    private final long expiresAt;
+    private final long fetchedAt;
+
+    private DeepLLanguageTable(Set<String> sourceLanguages, Set<String> targetLanguages, long fetchedAt, long ttl) {
+        this.sourceLanguages = sourceLanguages;
+        this.targetLanguages = targetLanguages;
+        this.fetchedAt = fetchedAt;
+        this.expiresAt = fetchedAt + ttl;
+    }
+
+    /**
+     * Creates a table from lists of language codes.
+     *
+     * @param sourceLanguages supported source languages.
+     * @param targetLanguages supported target languages.
+     * @param fetchedAt time the lists were fetched, in milliseconds.
+     * @return the table.
+     */
+    static DeepLLanguageTable of(List<String> sourceLanguages, List<String> targetLanguages, long fetchedAt) {
+        return new DeepLLanguageTable(toCodes(sourceLanguages), toCodes(targetLanguages), fetchedAt, TTL_MILLIS);
+    }
+
+    /**
+     * Creates a table accepting every language, used after a failed fetch.
+     *
+     * @param now current time in milliseconds.
+     * @return the table.
+     */
+    static DeepLLanguageTable unknown(long now) {
+        return new DeepLLanguageTable(null, null, now, RETRY_MILLIS);
+    }
+
+    /**
+     * Fetches the table from DeepL.
+     *
+     * @param client the DeepL client.
+     * @param now current time in milliseconds.
+     * @return the table.
+     */
+    static DeepLLanguageTable fetch(Translator client, long now) throws DeepLException, InterruptedException {
+        Set<String> source = new HashSet<>();
+        for (com.deepl.api.Language language : client.getSourceLanguages()) {
+            source.add(language.getCode().toUpperCase(Locale.ENGLISH));
+        }
+        Set<String> target = new HashSet<>();
+        for (com.deepl.api.Language language : client.getTargetLanguages()) {
+            target.add(language.getCode().toUpperCase(Locale.ENGLISH));
+        }
+        return new DeepLLanguageTable(
+                Collections.unmodifiableSet(source), Collections.unmodifiableSet(target), now, TTL_MILLIS);
+    }
+
+    /**
+     * Loads a table saved by {@link #save(Path)}.
+     *
+     * @param file the file.
+     * @return the table, or null when the file does not exist or is invalid.
+     * @throws IOException when the file cannot be read.
+     */
+    static DeepLLanguageTable load(Path file) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        }
+        String fetched = properties.getProperty(KEY_FETCHED);
+        String source = properties.getProperty(KEY_SOURCE);
+        String target = properties.getProperty(KEY_TARGET);
+        if (fetched == null || source == null || target == null) {
+            return null;
+        }
+        try {
+            return new DeepLLanguageTable(
+                    toCodes(List.of(source.split(","))),
+                    toCodes(List.of(target.split(","))),
+                    Long.parseLong(fetched),
+                    TTL_MILLIS);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Saves a fetched table.
+     *
+     * @param file the file, replaced atomically.
+     * @throws IOException when the file cannot be written.
+     */
+    void save(Path file) throws IOException {
+        if (isUnknown()) {
+            return;
+        }
+        Properties properties = new Properties();
+        properties.setProperty(KEY_FETCHED, Long.toString(fetchedAt));
+        properties.setProperty(KEY_SOURCE, String.join(",", sourceLanguages));
+        properties.setProperty(KEY_TARGET, String.join(",", targetLanguages));
+        Files.createDirectories(file.getParent());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            properties.store(out, "DeepL supported languages");
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Returns the name of the file holding the table of an API key. The key
+     * itself is not written to disk, only a hash of it.
+     *
+     * @param apiKey the DeepL API key.
+     * @return the file name.
+     */
+    static String getFileName(String apiKey) {
+        return "languages-" + DeepLClientRegistry.getKeyHash(apiKey) + ".properties";
+    }
+
+    boolean isExpired(long now) {
+        return now >= expiresAt;
+    }
+
+    boolean isUnknown() {
+        return sourceLanguages == null;
+    }
+
+    /**
+     * Tells whether DeepL accepts the code as source_lang.
+     *
+     * @param code DeepL source language code, in upper case.
+     * @return true when supported, or when the table is unknown.
+     */
+    boolean supportsSource(String code) {
+        return sourceLanguages == null || sourceLanguages.contains(code);
+    }
+
+    /**
+     * Tells whether DeepL accepts the code as target_lang. A regional variant
+     * such as ZH-HANS is also accepted when DeepL lists its base language.
+     *
+     * @param code DeepL target language code, in upper case.
+     * @return true when supported, or when the table is unknown.
+     */
+    boolean supportsTarget(String code) {
+        if (targetLanguages == null || targetLanguages.contains(code)) {
+            return true;
+        }
+        int dash = code.indexOf('-');
+        return dash > 0 && targetLanguages.contains(code.substring(0, dash));
+    }
+
+    private static Set<String> toCodes(List<String> codes) {
+        Set<String> result = new HashSet<>();
+        for (String code : codes) {
+            String trimmed = code.trim();
+            if (!trimmed.isEmpty()) {
+                result.add(trimmed.toUpperCase(Locale.ENGLISH));
+            }
+        }
+        return Collections.unmodifiableSet(result);
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.omegat.machinetranslators.deepl;
+
+import com.deepl.api.DeepLClient;
+import com.deepl.api.DeepLException;
+import com.deepl.api.TextResult;
+import com.deepl.api.TextTranslationOptions;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Transport through the deepl-java client. It is the default; the HTTP/2
+ * transport is opt-in.
+ *
+ * @author Hiroshi Miura
+ */
+final class DeepLLibraryTransport implements DeepLTransport {
+
+    private final DeepLClient client;
+
+    DeepLLibraryTransport(DeepLClient client) {
+        this.client = client;
+    }
+
+    @Override
+    public List<Result> translate(
+            List<String> texts, String sourceLang, String targetLang, TextTranslationOptions options)
+            throws DeepLException, InterruptedException {
+        List<TextResult> results;
+        try {
+            results = client.translateText(texts, sourceLang, targetLang, options);
+        } catch (DeepLException e) {
+            throw toServerError(e);
+        }
+        List<Result> translations = new ArrayList<>(results.size());
+        for (TextResult result : results) {
+            translations.add(new Result(result.getText(), result.getBilledCharacters()));
+        }
+        return translations;
+    }
+
+    /**
+     * Recognizes a 5xx response. The library throws a plain
+     * {@link DeepLException} without the status: "Service unavailable" for
+     * 503 and "Unknown error" for any status it has no exception for, which
+     * are the other 5xx statuses in practice.
+     */
+    static DeepLException toServerError(DeepLException e) {
+        if (e.getClass() != DeepLException.class || e.getMessage() == null) {
+            return e;
+        }
+        if (e.getMessage().startsWith("Service unavailable")) {
+            return new ServerErrorException(e.getMessage(), 503, e);
+        }
+        if (e.getMessage().startsWith("Unknown error")) {
+            return new ServerErrorException(e.getMessage(), -1, e);
+        }
+        return e;
+    }
+}
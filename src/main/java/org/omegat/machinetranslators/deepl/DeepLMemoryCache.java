@@ -0,0 +1,120 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.omegat.machinetranslators.deepl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory cache of translations, replacing the generic cache of
+ * {@code BaseCachedTranslate}.
+ * <p>
+ * Entries are keyed by {@link TranslationKey}, so a translation made with
+ * other options, such as another sentence splitting mode or glossary, is
+ * never returned. The cache is bounded by the characters of source text and
+ * translation it holds rather than by entry count, so a few long segments
+ * cannot use more memory than many short ones. Entries may also expire after
+ * a time to live. Hits, misses and evictions are published through
+ * {@link DeepLMetrics}.
+ *
+ * @author Hiroshi Miura
+ */
+final class DeepLMemoryCache {
+
+    private final Cache<TranslationKey, String> cache;
+
+    /**
+     * @param maxCharacters characters of text and translation kept at most.
+     * @param ttlMinutes minutes an entry is kept after it was written, or 0
+     *            to keep it until it is evicted by size.
+     */
+    DeepLMemoryCache(long maxCharacters, long ttlMinutes) {
+        this(maxCharacters, ttlMinutes, Ticker.systemTicker());
+    }
+
+    DeepLMemoryCache(long maxCharacters, long ttlMinutes, Ticker ticker) {
+        Caffeine<TranslationKey, String> builder = Caffeine.newBuilder()
+                .maximumWeight(maxCharacters)
+                .weigher(DeepLMemoryCache::weigh)
+                .removalListener((TranslationKey key, String value, RemovalCause cause) -> {
+                    if (cause.wasEvicted()) {
+                        DeepLMetrics.getInstance().recordMemoryCacheEviction();
+                    }
+                })
+                .ticker(ticker)
+                .recordStats();
+        if (ttlMinutes > 0) {
+            builder.expireAfterWrite(ttlMinutes, TimeUnit.MINUTES);
+        }
+        cache = builder.build();
+    }
+
+    private static int weigh(TranslationKey key, String translation) {
+        return key.getText().length() + translation.length();
+    }
+
+    /**
+     * @param key the lookup key.
+     * @return the cached translation, or null.
+     */
+    String get(TranslationKey key) {
+        String result = cache.getIfPresent(key);
+        if (result != null) {
+            DeepLMetrics.getInstance().recordMemoryCacheHit();
+        } else {
+            DeepLMetrics.getInstance().recordMemoryCacheMiss();
+        }
+        return result;
+    }
+
+    void put(TranslationKey key, String translation) {
+        if (translation != null) {
+            cache.put(key, translation);
+        }
+    }
+
+    void clear() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * @return statistics of this cache.
+     */
+    CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * Runs pending maintenance, such as evictions, now.
+     */
+    void cleanUp() {
+        cache.cleanUp();
+    }
+}
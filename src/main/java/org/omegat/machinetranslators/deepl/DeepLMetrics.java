@@ -0,0 +1,342 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.omegat.machinetranslators.deepl;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.omegat.util.Log;
+
+/**
+ * Runtime metrics of the DeepL connector, published over JMX.
+ * <p>
+ * Recording uses striped counters and preallocated histograms, so that the
+ * translate path pays a few atomic increments and no allocation once a
+ * language pair has been seen.
+ *
+ * @author Hiroshi Miura
+ */
+final class DeepLMetrics implements DeepLMetricsMXBean {
+
+    static final String OBJECT_NAME = "org.omegat.machinetranslators.deepl:type=DeepLMetrics";
+
+    /**
+     * Error classes, following the branches of the connector's error handling.
+     */
+    enum ErrorClass {
+        ENCODING,
+        CONNECTION,
+        QUOTA,
+        TOO_MANY_REQUESTS,
+        DEADLINE,
+        UNAVAILABLE,
+        INTERRUPTED,
+        GENERAL
+    }
+
+    private static final DeepLMetrics INSTANCE = new DeepLMetrics();
+
+    private static volatile boolean registered;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder[] errors = new LongAdder[ErrorClass.values().length];
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+    private final LongAdder memoryCacheHits = new LongAdder();
+    private final LongAdder memoryCacheMisses = new LongAdder();
+    private final LongAdder memoryCacheEvictions = new LongAdder();
+    private final LongAdder charactersSent = new LongAdder();
+    private final LongAdder charactersBilled = new LongAdder();
+    private final LongAdder templateCharactersSaved = new LongAdder();
+    private final LongAdder sentenceCharactersSaved = new LongAdder();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final ConcurrentMap<String, ConcurrentMap<String, LatencyHistogram>> latencies =
+            new ConcurrentHashMap<>();
+
+    private DeepLMetrics() {
+        for (int i = 0; i < errors.length; i++) {
+            errors[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Returns the metrics, registering them over JMX on first use.
+     */
+    static DeepLMetrics getInstance() {
+        return Registration.INSTANCE;
+    }
+
+    /**
+     * Holder registering the metrics when they are first recorded. Starting
+     * the platform MBean server takes a noticeable part of a second, which
+     * OmegaT would otherwise pay at startup even when DeepL is never used.
+     */
+    private static final class Registration {
+        static final DeepLMetrics INSTANCE = DeepLMetrics.INSTANCE;
+
+        static {
+            register();
+        }
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server.
+     */
+    static void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(INSTANCE, name);
+            }
+            registered = true;
+        } catch (JMException e) {
+            Log.log("DeepL metrics cannot be registered: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Removes the metrics from the platform MBean server, when they were
+     * registered.
+     */
+    static void unregister() {
+        if (!registered) {
+            return;
+        }
+        registered = false;
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException e) {
+            Log.log("DeepL metrics cannot be unregistered: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Marks the start of a call to DeepL.
+     *
+     * @param characters characters of source text sent.
+     * @return start time to pass to {@link #requestFinished}.
+     */
+    long requestStarted(long characters) {
+        requests.increment();
+        charactersSent.add(characters);
+        inFlight.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    /**
+     * Marks the end of a call to DeepL.
+     *
+     * @param sourceLang DeepL source language code.
+     * @param targetLang DeepL target language code.
+     * @param start value returned by {@link #requestStarted}.
+     */
+    void requestFinished(String sourceLang, String targetLang, long start) {
+        inFlight.decrementAndGet();
+        histogram(sourceLang, targetLang).record(System.nanoTime() - start);
+    }
+
+    private LatencyHistogram histogram(String sourceLang, String targetLang) {
+        ConcurrentMap<String, LatencyHistogram> byTarget = latencies.get(sourceLang);
+        if (byTarget == null) {
+            byTarget = latencies.computeIfAbsent(sourceLang, k -> new ConcurrentHashMap<>());
+        }
+        LatencyHistogram histogram = byTarget.get(targetLang);
+        if (histogram == null) {
+            histogram = byTarget.computeIfAbsent(targetLang, k -> new LatencyHistogram());
+        }
+        return histogram;
+    }
+
+    void recordError(ErrorClass errorClass) {
+        errors[errorClass.ordinal()].increment();
+    }
+
+    void recordCacheHit() {
+        cacheHits.increment();
+    }
+
+    void recordCacheMiss() {
+        cacheMisses.increment();
+    }
+
+    void recordMemoryCacheHit() {
+        memoryCacheHits.increment();
+    }
+
+    void recordMemoryCacheMiss() {
+        memoryCacheMisses.increment();
+    }
+
+    void recordMemoryCacheEviction() {
+        memoryCacheEvictions.increment();
+    }
+
+    void recordBilled(long characters) {
+        charactersBilled.add(characters);
+    }
+
+    void recordTemplateSaved(long characters) {
+        templateCharactersSaved.add(characters);
+    }
+
+    void recordSentenceSaved(long characters) {
+        sentenceCharactersSaved.add(characters);
+    }
+
+    @Override
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    @Override
+    public long getErrorCount() {
+        long total = 0;
+        for (LongAdder adder : errors) {
+            total += adder.sum();
+        }
+        return total;
+    }
+
+    @Override
+    public Map<String, Long> getErrorCounts() {
+        Map<String, Long> result = new TreeMap<>();
+        for (ErrorClass errorClass : ErrorClass.values()) {
+            result.put(errorClass.name(), errors[errorClass.ordinal()].sum());
+        }
+        return result;
+    }
+
+    @Override
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    @Override
+    public long getCacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    @Override
+    public double getCacheHitRatio() {
+        long hits = cacheHits.sum();
+        long total = hits + cacheMisses.sum();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public long getMemoryCacheHits() {
+        return memoryCacheHits.sum();
+    }
+
+    @Override
+    public long getMemoryCacheMisses() {
+        return memoryCacheMisses.sum();
+    }
+
+    @Override
+    public long getMemoryCacheEvictions() {
+        return memoryCacheEvictions.sum();
+    }
+
+    @Override
+    public long getCharactersSent() {
+        return charactersSent.sum();
+    }
+
+    @Override
+    public long getCharactersBilled() {
+        return charactersBilled.sum();
+    }
+
+    @Override
+    public long getTemplateCharactersSaved() {
+        return templateCharactersSaved.sum();
+    }
+
+    @Override
+    public long getSentenceCharactersSaved() {
+        return sentenceCharactersSaved.sum();
+    }
+
+    @Override
+    public int getInFlightRequests() {
+        return inFlight.get();
+    }
+
+    @Override
+    public Map<String, Double> getLatencyP50Millis() {
+        return percentiles(50);
+    }
+
+    @Override
+    public Map<String, Double> getLatencyP95Millis() {
+        return percentiles(95);
+    }
+
+    @Override
+    public Map<String, Double> getLatencyP99Millis() {
+        return percentiles(99);
+    }
+
+    private Map<String, Double> percentiles(double percentile) {
+        Map<String, Double> result = new TreeMap<>();
+        latencies.forEach((source, byTarget) -> byTarget.forEach((target, histogram) -> {
+            if (histogram.count() > 0) {
+                result.put(source + "->" + target, histogram.percentileMillis(percentile));
+            }
+        }));
+        return result;
+    }
+
+    @Override
+    public void reset() {
+        requests.reset();
+        for (LongAdder adder : errors) {
+            adder.reset();
+        }
+        cacheHits.reset();
+        cacheMisses.reset();
+        memoryCacheHits.reset();
+        memoryCacheMisses.reset();
+        memoryCacheEvictions.reset();
+        charactersSent.reset();
+        charactersBilled.reset();
+        templateCharactersSaved.reset();
+        sentenceCharactersSaved.reset();
+        latencies.clear();
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.omegat.machinetranslators.deepl;
+
+import java.util.Map;
+
+/**
+ * Management interface of the DeepL connector metrics, registered as
+ * {@value DeepLMetrics#OBJECT_NAME}.
+ *
+ * @author Hiroshi Miura
+ */
+public interface DeepLMetricsMXBean {
+
+    /**
+     * @return number of calls made to DeepL.
+     */
+    long getRequestCount();
+
+    /**
+     * @return number of failed calls.
+     */
+    long getErrorCount();
+
+    /**
+     * @return number of failed calls by error class.
+     */
+    Map<String, Long> getErrorCounts();
+
+    /**
+     * @return lookups served from a cache.
+     */
+    long getCacheHits();
+
+    /**
+     * @return lookups which needed a call to DeepL.
+     */
+    long getCacheMisses();
+
+    /**
+     * @return share of lookups served from a cache, between 0 and 1.
+     */
+    double getCacheHitRatio();
+
+    /**
+     * @return lookups served from the in-memory cache.
+     */
+    long getMemoryCacheHits();
+
+    /**
+     * @return lookups not found in the in-memory cache.
+     */
+    long getMemoryCacheMisses();
+
+    /**
+     * @return entries dropped from the in-memory cache by size or age.
+     */
+    long getMemoryCacheEvictions();
+
+    /**
+     * @return characters of source text sent to DeepL.
+     */
+    long getCharactersSent();
+
+    /**
+     * @return characters DeepL reported as billed.
+     */
+    long getCharactersBilled();
+
+    /**
+     * @return characters not sent because segments shared a template.
+     */
+    long getTemplateCharactersSaved();
+
+    /**
+     * @return characters not sent because sentences of a paragraph were
+     *         cached.
+     */
+    long getSentenceCharactersSaved();
+
+    /**
+     * @return calls to DeepL currently waiting for a response.
+     */
+    int getInFlightRequests();
+
+    /**
+     * @return median call latency in milliseconds, by language pair.
+     */
+    Map<String, Double> getLatencyP50Millis();
+
+    /**
+     * @return 95th percentile call latency in milliseconds, by language pair.
+     */
+    Map<String, Double> getLatencyP95Millis();
+
+    /**
+     * @return 99th percentile call latency in milliseconds, by language pair.
+     */
+    Map<String, Double> getLatencyP99Millis();
+
+    /**
+     * Resets all counters and histograms.
+     */
+    void reset();
+}
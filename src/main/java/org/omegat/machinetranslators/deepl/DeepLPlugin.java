@@ -0,0 +1,65 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package org.omegat.machinetranslators.deepl;
+
+import org.omegat.core.Core;
+
+/**
+ * Entry point called by OmegaT when it loads the plugin.
+ * <p>
+ * Registration only hands the engine class to OmegaT, without initializing
+ * it. The resource bundle, the DeepL client, the caches, the executor and
+ * the JMX metrics are all set up when they are first used, so a user who
+ * never enables DeepL does not pay for them at startup. Unloading releases
+ * the listeners, threads, file lock and MBean set up since.
+ *
+ * @author Hiroshi Miura
+ */
+public final class DeepLPlugin {
+
+    private DeepLPlugin() {}
+
+    /*
+     * Register plugins into OmegaT.
+     */
+    @SuppressWarnings("unused")
+    public static void loadPlugins() {
+        Core.registerMachineTranslationClass(DeepLTranslate2.class);
+    }
+
+    @SuppressWarnings("unused")
+    public static void unloadPlugins() {
+        DeepLTranslate2.cancelPretranslation();
+        InteractiveRequests.shutdown();
+        DeepLCacheWarmer.shutdown();
+        DeepLPrefetcher.shutdown();
+        DeepLClientRegistry.getInstance().shutdown();
+        DeepLDiskCache.closeShared();
+        DeepLMetrics.unregister();
+        DeepLExecutor.shutdown();
+    }
+}
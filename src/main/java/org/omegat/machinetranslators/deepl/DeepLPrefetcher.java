@@ -0,0 +1,274 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.omegat.machinetranslators.deepl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.omegat.core.Core;
+import org.omegat.core.CoreEvents;
+import org.omegat.core.data.IProject;
+import org.omegat.core.data.SourceTextEntry;
+import org.omegat.core.data.TMXEntry;
+import org.omegat.core.events.IProjectEventListener;
+import org.omegat.core.machinetranslators.MachineTranslateError;
+import org.omegat.gui.editor.IEditor;
+import org.omegat.util.Language;
+import org.omegat.util.Log;
+import org.omegat.util.Preferences;
+
+/**
+ * Translates the segments following the active entry in the background, so
+ * that they are already in the cache when the translator moves on. The
+ * active entry is taken from the editor, since the same source text may
+ * occur at several places in the project.
+ * <p>
+ * Prefetch is disabled unless the {@value #PROPERTY_PREFETCH_DEPTH}
+ * preference is set to a positive number of segments. The characters sent in
+ * one round are capped by {@value #PROPERTY_PREFETCH_CHARS}, and a round is
+ * skipped when it would eat into the quota reserved for interactive lookups.
+ * Pending work is cancelled when the project is closed.
+ * <p>
+ * One prefetcher serves all engine instances. It is created on first use and
+ * its thread and project listener are released when the plugin is unloaded.
+ *
+ * @author Hiroshi Miura
+ */
+final class DeepLPrefetcher implements IProjectEventListener {
+
+    static final String PROPERTY_PREFETCH_DEPTH = "deepl.prefetch.depth";
+    static final String PROPERTY_PREFETCH_CHARS = "deepl.prefetch.chars";
+    static final int DEFAULT_PREFETCH_DEPTH = 0;
+    static final int DEFAULT_PREFETCH_CHARS = 5000;
+
+    private static DeepLPrefetcher instance;
+
+    /**
+     * The entries of the project, in project order.
+     */
+    interface Entries {
+        int size();
+
+        String getSourceText(int index);
+
+        boolean isTranslated(int index);
+    }
+
+    /**
+     * The translation service used by prefetch.
+     */
+    interface Engine {
+        List<String> translate(List<String> texts) throws MachineTranslateError;
+
+        boolean isQuotaAvailable(long characters);
+    }
+
+    private ExecutorService executor;
+    private Future<?> pending;
+
+    DeepLPrefetcher() {}
+
+    /**
+     * Returns the shared prefetcher, registering it for project events on
+     * first use.
+     */
+    static synchronized DeepLPrefetcher getInstance() {
+        if (instance == null) {
+            instance = new DeepLPrefetcher();
+            CoreEvents.registerProjectChangeListener(instance);
+        }
+        return instance;
+    }
+
+    /**
+     * Cancels pending work, stops the thread and removes the project
+     * listener.
+     */
+    static synchronized void shutdown() {
+        if (instance != null) {
+            CoreEvents.unregisterProjectChangeListener(instance);
+            instance.stop();
+            instance = null;
+        }
+    }
+
+    static boolean isEnabled() {
+        return getDepth() > 0;
+    }
+
+    private static int getDepth() {
+        return Preferences.getPreferenceDefault(PROPERTY_PREFETCH_DEPTH, DEFAULT_PREFETCH_DEPTH);
+    }
+
+    /**
+     * Schedules translation of the segments following the active entry of
+     * the editor. Nothing is done when the text is not the source text of
+     * the active entry, as for a lookup made by a script.
+     *
+     * @param translator the engine translating the segments.
+     * @param sLang source language.
+     * @param tLang target language.
+     * @param text source text looked up.
+     */
+    void prefetchAfter(DeepLTranslate2 translator, Language sLang, Language tLang, String text) {
+        int depth = getDepth();
+        if (depth <= 0) {
+            return;
+        }
+        int charBudget = Preferences.getPreferenceDefault(PROPERTY_PREFETCH_CHARS, DEFAULT_PREFETCH_CHARS);
+        IProject project = Core.getProject();
+        IEditor editor = Core.getEditor();
+        if (project == null || !project.isProjectLoaded() || editor == null) {
+            return;
+        }
+        // Entry numbers start at 1.
+        int current = editor.getCurrentEntryNumber() - 1;
+        Engine engine = new Engine() {
+            @Override
+            public List<String> translate(List<String> texts) throws MachineTranslateError {
+                return translator.translateBulk(sLang, tLang, texts);
+            }
+
+            @Override
+            public boolean isQuotaAvailable(long characters) {
+                return translator.isBackgroundQuotaAvailable(characters);
+            }
+        };
+        schedule(engine, projectEntries(project), current, text, depth, charBudget);
+    }
+
+    /**
+     * Schedules translation of the segments following the current entry.
+     * Any prefetch still pending from a previous entry is cancelled.
+     *
+     * @param engine the translation service.
+     * @param entries the entries of the project.
+     * @param current index of the current entry.
+     * @param text source text looked up for the current entry.
+     * @param depth maximum number of entries to translate.
+     * @param charBudget maximum number of characters to send.
+     * @return the scheduled work.
+     */
+    synchronized Future<?> schedule(
+            Engine engine, Entries entries, int current, String text, int depth, int charBudget) {
+        if (pending != null) {
+            pending.cancel(true);
+        }
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "DeepL prefetch");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        pending = executor.submit(() -> prefetch(engine, entries, current, text, depth, charBudget));
+        return pending;
+    }
+
+    private static Entries projectEntries(IProject project) {
+        List<SourceTextEntry> all = project.getAllEntries();
+        return new Entries() {
+            @Override
+            public int size() {
+                return all.size();
+            }
+
+            @Override
+            public String getSourceText(int index) {
+                return all.get(index).getSrcText();
+            }
+
+            @Override
+            public boolean isTranslated(int index) {
+                TMXEntry info = project.getTranslationInfo(all.get(index));
+                return info != null && info.isTranslated();
+            }
+        };
+    }
+
+    private static void prefetch(Engine engine, Entries entries, int current, String text, int depth, int charBudget) {
+        if (current < 0 || current >= entries.size() || !text.equals(entries.getSourceText(current))) {
+            return;
+        }
+        List<String> upcoming = findUpcoming(entries, current, depth, charBudget);
+        if (upcoming.isEmpty() || Thread.currentThread().isInterrupted()) {
+            return;
+        }
+        long chars = upcoming.stream().mapToLong(String::length).sum();
+        if (!engine.isQuotaAvailable(chars)) {
+            Log.log("DeepL prefetch skipped: character quota is nearly exhausted.");
+            return;
+        }
+        try {
+            engine.translate(upcoming);
+        } catch (MachineTranslateError e) {
+            Log.log("DeepL prefetch failed: " + e.getMessage());
+        }
+    }
+
+    private static List<String> findUpcoming(Entries entries, int current, int depth, int charBudget) {
+        List<String> upcoming = new ArrayList<>();
+        int chars = 0;
+        for (int index = current + 1; index < entries.size() && upcoming.size() < depth; index++) {
+            if (entries.isTranslated(index)) {
+                continue;
+            }
+            String source = entries.getSourceText(index);
+            chars += source.length();
+            if (chars > charBudget) {
+                break;
+            }
+            upcoming.add(source);
+        }
+        return upcoming;
+    }
+
+    /**
+     * Cancels pending prefetch work.
+     */
+    synchronized void cancel() {
+        if (pending != null) {
+            pending.cancel(true);
+            pending = null;
+        }
+    }
+
+    private synchronized void stop() {
+        cancel();
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    @Override
+    public void onProjectChanged(PROJECT_CHANGE_TYPE eventType) {
+        if (eventType == PROJECT_CHANGE_TYPE.CLOSE) {
+            cancel();
+        }
+    }
+}
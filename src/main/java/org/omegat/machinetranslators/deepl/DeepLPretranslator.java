@@ -0,0 +1,547 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.omegat.machinetranslators.deepl;
+
+import com.deepl.api.QuotaExceededException;
+import java.io.BufferedReader;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import org.omegat.core.machinetranslators.MachineTranslateError;
+
+/**
+ * Translates every untranslated entry of a project in bulk and writes the
+ * results to a TMX file, which OmegaT picks up from the tm/auto folder.
+ * <p>
+ * Entries are read in project order and sent in chunks of up to
+ * {@value #CHUNK_SIZE} segments. At most {@code parallelism} chunks are in
+ * flight; the next chunk is only read once the oldest one has been written,
+ * so memory use does not grow with the project. Finished chunks are appended
+ * to a journal and the position after them is saved as a checkpoint, along
+ * with a hash of the source texts of all entries. When the job stops on a
+ * crash, an error or the quota, running it again resumes from the checkpoint,
+ * unless the entries of the project have changed since. The TMX file is written from the journal at the end of
+ * every run, and the journal is removed once the whole project is done.
+ *
+ * @author Hiroshi Miura
+ */
+final class DeepLPretranslator {
+
+    static final String OUTPUT_FILE_NAME = "deepl-pretranslation.tmx";
+    static final int CHUNK_SIZE = BatchPartitioner.MAX_TEXTS;
+    static final int DEFAULT_PARALLELISM = 4;
+    static final String CREATION_ID = "DeepL";
+    static final String OPTIONS_PROPERTY = "x-deepl-options";
+
+    private static final String JOURNAL_FILE_NAME = "journal.tsv";
+    private static final String CHECKPOINT_FILE_NAME = "checkpoint.properties";
+    private static final String KEY_SOURCE = "source";
+    private static final String KEY_TARGET = "target";
+    private static final String KEY_OPTIONS = "options";
+    private static final String KEY_NEXT = "next";
+    private static final String KEY_JOURNAL = "journal";
+    private static final String KEY_ENTRIES = "entries";
+    private static final DateTimeFormatter TMX_DATE =
+            DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+
+    /**
+     * The entries of the project, in project order.
+     */
+    interface Source {
+        int size();
+
+        /**
+         * Returns the source text of the entry.
+         *
+         * @param index index of the entry.
+         * @return the text, or null when the entry needs no translation.
+         */
+        String get(int index);
+
+        /**
+         * Returns the source text of the entry, whether it is translated or
+         * not.
+         *
+         * @param index index of the entry.
+         * @return the text.
+         */
+        String getSourceText(int index);
+    }
+
+    /**
+     * The translation service used by the job.
+     */
+    interface Engine {
+        List<String> translate(List<String> texts) throws MachineTranslateError;
+
+        boolean isQuotaAvailable(long characters);
+    }
+
+    enum Status {
+        COMPLETED,
+        QUOTA_EXHAUSTED,
+        FAILED,
+        CANCELLED
+    }
+
+    /**
+     * Outcome of one run.
+     */
+    static final class Result {
+        private final Status status;
+        private final int translated;
+        private final int nextIndex;
+        private final Throwable error;
+
+        Result(Status status, int translated, int nextIndex, Throwable error) {
+            this.status = status;
+            this.translated = translated;
+            this.nextIndex = nextIndex;
+            this.error = error;
+        }
+
+        Status getStatus() {
+            return status;
+        }
+
+        /**
+         * @return segments translated by this run.
+         */
+        int getTranslated() {
+            return translated;
+        }
+
+        /**
+         * @return index of the first entry which is not done yet.
+         */
+        int getNextIndex() {
+            return nextIndex;
+        }
+
+        /**
+         * @return the error which stopped the run, or null.
+         */
+        Throwable getError() {
+            return error;
+        }
+    }
+
+    private static final class Chunk {
+        private final int end;
+        private final List<String> texts;
+        private final long chars;
+        private CompletableFuture<List<String>> result;
+
+        Chunk(int end, List<String> texts, long chars) {
+            this.end = end;
+            this.texts = texts;
+            this.chars = chars;
+        }
+    }
+
+    private final Engine engine;
+    private final Source source;
+    private final Path journal;
+    private final Path checkpoint;
+    private final Path output;
+    private final String sourceLang;
+    private final String targetLang;
+    private final String options;
+    private final int parallelism;
+    private volatile boolean cancelled;
+
+    /**
+     * @param engine translation service.
+     * @param source entries to translate.
+     * @param workDir folder for the journal and the checkpoint of the job.
+     * @param output TMX file to write.
+     * @param sourceLang language code of the source, as written to the TMX.
+     * @param targetLang language code of the target, as written to the TMX.
+     * @param options fingerprint of the translation options; a checkpoint
+     *            taken with other languages or options is discarded.
+     * @param parallelism number of chunks in flight.
+     */
+    DeepLPretranslator(
+            Engine engine,
+            Source source,
+            Path workDir,
+            Path output,
+            String sourceLang,
+            String targetLang,
+            String options,
+            int parallelism) {
+        this.engine = engine;
+        this.source = source;
+        this.journal = workDir.resolve(JOURNAL_FILE_NAME);
+        this.checkpoint = workDir.resolve(CHECKPOINT_FILE_NAME);
+        this.output = output;
+        this.sourceLang = sourceLang;
+        this.targetLang = targetLang;
+        this.options = options;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Stops the job after the chunks in flight. The checkpoint is kept.
+     */
+    void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Runs the job from the last checkpoint until the project is done or the
+     * job stops.
+     *
+     * @return the outcome.
+     * @throws IOException when the journal, checkpoint or TMX file cannot be
+     *             written.
+     */
+    Result run() throws IOException {
+        Files.createDirectories(journal.getParent());
+        String entries = hashEntries();
+        int next = 0;
+        long length = 0;
+        Properties state = loadCheckpoint(entries);
+        if (state != null) {
+            next = Integer.parseInt(state.getProperty(KEY_NEXT, "0"));
+            length = Long.parseLong(state.getProperty(KEY_JOURNAL, "0"));
+        }
+        if (!Files.exists(journal) || Files.size(journal) < length || next > source.size()) {
+            // The journal does not match the checkpoint: start over.
+            next = 0;
+            length = 0;
+        }
+        // Drop lines written after the last checkpoint.
+        try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            channel.truncate(length);
+        }
+
+        Status status = Status.COMPLETED;
+        Throwable error = null;
+        int translated = 0;
+        int index = next;
+        Deque<Chunk> window = new ArrayDeque<>();
+        try (FileOutputStream out = new FileOutputStream(journal.toFile(), true)) {
+            while (true) {
+                while (status == Status.COMPLETED && window.size() < parallelism && index < source.size()) {
+                    if (cancelled) {
+                        status = Status.CANCELLED;
+                        break;
+                    }
+                    Chunk chunk = readChunk(index);
+                    if (chunk.chars > 0 && !engine.isQuotaAvailable(chunk.chars)) {
+                        status = Status.QUOTA_EXHAUSTED;
+                        break;
+                    }
+                    index = chunk.end;
+                    chunk.result = chunk.texts.isEmpty()
+                            ? CompletableFuture.completedFuture(Collections.emptyList())
+                            : DeepLExecutor.submit(() -> engine.translate(chunk.texts));
+                    window.add(chunk);
+                }
+                Chunk head = window.poll();
+                if (head == null) {
+                    break;
+                }
+                List<String> translations;
+                try {
+                    translations = head.result.get();
+                } catch (ExecutionException e) {
+                    error = e.getCause();
+                    status = isQuotaError(error) ? Status.QUOTA_EXHAUSTED : Status.FAILED;
+                    cancelAll(window);
+                    break;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    status = Status.CANCELLED;
+                    cancelAll(window);
+                    break;
+                }
+                length += append(out, head.texts, translations);
+                translated += head.texts.size();
+                next = head.end;
+                saveCheckpoint(entries, next, length);
+            }
+        }
+
+        writeTmx();
+        if (status == Status.COMPLETED) {
+            Files.deleteIfExists(checkpoint);
+            Files.deleteIfExists(journal);
+        }
+        return new Result(status, translated, next, error);
+    }
+
+    private Chunk readChunk(int start) {
+        List<String> texts = new ArrayList<>(CHUNK_SIZE);
+        long chars = 0;
+        int index = start;
+        while (index < source.size() && texts.size() < CHUNK_SIZE) {
+            String text = source.get(index++);
+            if (text != null && !text.isEmpty()) {
+                texts.add(text);
+                chars += text.length();
+            }
+        }
+        return new Chunk(index, texts, chars);
+    }
+
+    private static void cancelAll(Deque<Chunk> window) {
+        for (Chunk chunk : window) {
+            chunk.result.cancel(true);
+        }
+        window.clear();
+    }
+
+    private static boolean isQuotaError(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof QuotaExceededException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long append(FileOutputStream out, List<String> texts, List<String> translations)
+            throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < texts.size(); i++) {
+            String translation = translations.get(i);
+            if (translation == null) {
+                continue;
+            }
+            sb.append(escape(texts.get(i))).append('\t').append(escape(translation)).append('\n');
+        }
+        byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+        out.write(bytes);
+        out.flush();
+        out.getFD().sync();
+        return bytes.length;
+    }
+
+    /**
+     * Hashes the source texts of all entries, so that a checkpoint taken
+     * before the project files changed is not resumed against other entries.
+     */
+    private String hashEntries() {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        for (int i = 0; i < source.size(); i++) {
+            String text = source.getSourceText(i);
+            if (text != null) {
+                digest.update(text.getBytes(StandardCharsets.UTF_8));
+            }
+            digest.update((byte) 0);
+        }
+        StringBuilder sb = new StringBuilder();
+        for (byte b : digest.digest()) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    private Properties loadCheckpoint(String entries) throws IOException {
+        if (!Files.exists(checkpoint)) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(checkpoint)) {
+            properties.load(in);
+        }
+        if (!sourceLang.equals(properties.getProperty(KEY_SOURCE))
+                || !targetLang.equals(properties.getProperty(KEY_TARGET))
+                || !options.equals(properties.getProperty(KEY_OPTIONS))
+                || !entries.equals(properties.getProperty(KEY_ENTRIES))) {
+            return null;
+        }
+        try {
+            Integer.parseInt(properties.getProperty(KEY_NEXT, "0"));
+            Long.parseLong(properties.getProperty(KEY_JOURNAL, "0"));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return properties;
+    }
+
+    private void saveCheckpoint(String entries, int next, long length) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty(KEY_SOURCE, sourceLang);
+        properties.setProperty(KEY_TARGET, targetLang);
+        properties.setProperty(KEY_OPTIONS, options);
+        properties.setProperty(KEY_ENTRIES, entries);
+        properties.setProperty(KEY_NEXT, Integer.toString(next));
+        properties.setProperty(KEY_JOURNAL, Long.toString(length));
+        Path tmp = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            properties.store(out, "DeepL pretranslation checkpoint");
+        }
+        Files.move(tmp, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Streams the journal into the TMX file. The file is replaced atomically,
+     * so OmegaT never reads a half-written memory.
+     */
+    private void writeTmx() throws IOException {
+        Files.createDirectories(output.getParent());
+        Path tmp = output.resolveSibling(output.getFileName() + ".tmp");
+        String date = TMX_DATE.format(Instant.now());
+        try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8);
+                BufferedReader reader = Files.newBufferedReader(journal, StandardCharsets.UTF_8)) {
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            writer.write("<tmx version=\"1.4\">\n");
+            writer.write("  <header creationtool=\"OmegaT DeepL connector\" creationtoolversion=\"1\""
+                    + " o-tmf=\"OmegaT TMX\" segtype=\"sentence\" datatype=\"plaintext\" adminlang=\"EN-US\""
+                    + " srclang=\"" + xml(sourceLang) + "\"/>\n");
+            writer.write("  <body>\n");
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int tab = line.indexOf('\t');
+                if (tab < 0) {
+                    continue;
+                }
+                writer.write("    <tu creationid=\"" + CREATION_ID + "\" creationdate=\"" + date + "\">\n");
+                writer.write("      <prop type=\"" + OPTIONS_PROPERTY + "\">" + xml(options) + "</prop>\n");
+                writer.write("      <tuv xml:lang=\"" + xml(sourceLang) + "\"><seg>"
+                        + xml(unescape(line.substring(0, tab))) + "</seg></tuv>\n");
+                writer.write("      <tuv xml:lang=\"" + xml(targetLang) + "\"><seg>"
+                        + xml(unescape(line.substring(tab + 1))) + "</seg></tuv>\n");
+                writer.write("    </tu>\n");
+            }
+            writer.write("  </body>\n");
+            writer.write("</tmx>\n");
+        }
+        Files.move(tmp, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Escapes a journal field, so that it holds no tab or line break.
+     */
+    static String escape(String text) {
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    static String unescape(String text) {
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c != '\\' || i + 1 == text.length()) {
+                sb.append(c);
+                continue;
+            }
+            char next = text.charAt(++i);
+            switch (next) {
+                case 't':
+                    sb.append('\t');
+                    break;
+                case 'n':
+                    sb.append('\n');
+                    break;
+                case 'r':
+                    sb.append('\r');
+                    break;
+                default:
+                    sb.append(next);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Escapes text for XML content and attributes, dropping the control
+     * characters XML 1.0 does not allow.
+     */
+    private static String xml(String text) {
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '&':
+                    sb.append("&amp;");
+                    break;
+                case '<':
+                    sb.append("&lt;");
+                    break;
+                case '>':
+                    sb.append("&gt;");
+                    break;
+                case '"':
+                    sb.append("&quot;");
+                    break;
+                default:
+                    if (c >= 0x20 || c == '\t' || c == '\n' || c == '\r') {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.toString();
+    }
+}
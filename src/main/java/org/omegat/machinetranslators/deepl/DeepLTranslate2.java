@@ -29,25 +29,52 @@
 
 package org.omegat.machinetranslators.deepl;
 
+import com.deepl.api.AuthorizationException;
 import com.deepl.api.ConnectionException;
-import com.deepl.api.DeepLApiVersion;
 import com.deepl.api.DeepLClient;
-import com.deepl.api.DeepLClientOptions;
 import com.deepl.api.DeepLException;
+import com.deepl.api.QuotaExceededException;
 import com.deepl.api.SentenceSplittingMode;
-import com.deepl.api.TextResult;
 import com.deepl.api.TextTranslationOptions;
+import com.deepl.api.TooManyRequestsException;
+import com.deepl.api.Usage;
 import java.awt.Window;
+import java.io.File;
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.net.http.HttpClient;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.text.MessageFormat;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
 import org.omegat.core.Core;
+import org.omegat.core.data.IProject;
 import org.omegat.core.data.ProjectProperties;
+import org.omegat.core.data.SourceTextEntry;
+import org.omegat.core.data.TMXEntry;
 import org.omegat.core.machinetranslators.BaseCachedTranslate;
-import org.omegat.core.machinetranslators.BaseTranslate;
 import org.omegat.core.machinetranslators.MachineTranslateError;
 import org.omegat.gui.exttrans.MTConfigDialog;
 import org.omegat.util.Language;
+import org.omegat.util.Log;
+import org.omegat.util.Preferences;
+import org.omegat.util.StaticUtils;
 
 /**
  * Support of DeepL machine translation.
@@ -67,7 +94,65 @@ public class DeepLTranslate2 extends BaseCachedTranslate {
 
     protected static final String PROPERTY_API_KEY = "deepl.v2api.key";
     private static final String BUNDLE_BASENAME = "org.omegat.machinetranslators.deepl.DeepLBundle";
-    private static final ResourceBundle BUNDLE = ResourceBundle.getBundle(BUNDLE_BASENAME);
+
+    static final String PROPERTY_DISK_CACHE_ENABLED = "deepl.diskcache.enabled";
+    static final String PROPERTY_DISK_CACHE_SIZE = "deepl.diskcache.size";
+    static final String PROPERTY_MEMORY_CACHE_CHARS = "deepl.memorycache.chars";
+    static final String PROPERTY_MEMORY_CACHE_TTL = "deepl.memorycache.ttl";
+    private static final int DEFAULT_DISK_CACHE_SIZE = 64;
+    private static final int DEFAULT_MEMORY_CACHE_CHARS = 4_000_000;
+    static final String PROPERTY_RATE_LIMIT = "deepl.rate.limit";
+    static final String PROPERTY_REQUEST_DEADLINE = "deepl.request.deadline";
+    private static final int DEFAULT_RATE_LIMIT = 20;
+    private static final int DEFAULT_REQUEST_DEADLINE = 60;
+    private static final long RETRY_BASE_DELAY_MILLIS = 500;
+    private static final long RETRY_MAX_DELAY_MILLIS = 30_000;
+    static final String PROPERTY_QUOTA_RESERVE = "deepl.quota.reserve";
+    private static final int DEFAULT_QUOTA_RESERVE = 5;
+    static final String PROPERTY_CONNECT_TIMEOUT = "deepl.timeout.connect";
+    static final String PROPERTY_READ_TIMEOUT = "deepl.timeout.read";
+    private static final int DEFAULT_CONNECT_TIMEOUT = 5;
+    private static final int DEFAULT_READ_TIMEOUT = 10;
+    static final String PROPERTY_CIRCUIT_THRESHOLD = "deepl.circuit.threshold";
+    static final String PROPERTY_CIRCUIT_PROBE = "deepl.circuit.probe";
+    private static final int DEFAULT_CIRCUIT_THRESHOLD = 5;
+    private static final int DEFAULT_CIRCUIT_PROBE = 10;
+    static final String PROPERTY_XML_TAG_HANDLING = "deepl.tag.handling.xml";
+    private static final String TAG_HANDLING_XML = "xml";
+    static final String PROPERTY_TEMPLATE_DEDUP = "deepl.template.dedup";
+    static final String PROPERTY_TRANSPORT = "deepl.transport";
+    static final String PROPERTY_SENTENCE_CACHE = "deepl.sentencecache.enabled";
+    static final String PROPERTY_SERVER_URL = "deepl.server.url";
+
+    /**
+     * Holder of the resource bundle, loaded when a message is first needed
+     * rather than when OmegaT loads the plugin.
+     */
+    private static final class BundleHolder {
+        static final ResourceBundle BUNDLE = ResourceBundle.getBundle(BUNDLE_BASENAME);
+    }
+
+    /**
+     * Serializes loading of the supported-language tables.
+     */
+    private static final Object LANGUAGE_TABLE_LOCK = new Object();
+
+    /**
+     * Identical requests in flight at the same time, from any engine
+     * instance, share one DeepL call.
+     */
+    private static final SingleFlight<TranslationKey, String> IN_FLIGHT = new SingleFlight<>();
+
+    /**
+     * Routing and rotation state of the configured API keys, shared by all
+     * engine instances.
+     */
+    private static final DeepLKeyRing KEY_RING = new DeepLKeyRing();
+
+    /**
+     * Pretranslation job which is running, or null.
+     */
+    private static final AtomicReference<DeepLPretranslator> PRETRANSLATION = new AtomicReference<>();
 
     /**
      * Custom server URL, only set for testing. When null, the library auto-detects
@@ -75,19 +160,31 @@ public class DeepLTranslate2 extends BaseCachedTranslate {
      */
     protected final String deepLServerUrl;
 
+    private final ResultPostProcessor postProcessor = new ResultPostProcessor(this::cleanSpacesAroundTags);
     private DeepLLanguage deepLLanguage = null;
     private String temporaryKey = null;
+    private DeepLMemoryCache memoryCache = null;
+    private volatile boolean used = false;
 
-    /*
+    /**
      * Register plugins into OmegaT.
+     *
+     * @deprecated the plugin is loaded through {@link DeepLPlugin}.
      */
+    @Deprecated
     @SuppressWarnings("unused")
     public static void loadPlugins() {
-        Core.registerMachineTranslationClass(DeepLTranslate2.class);
+        DeepLPlugin.loadPlugins();
     }
 
+    /**
+     * @deprecated the plugin is unloaded through {@link DeepLPlugin}.
+     */
+    @Deprecated
     @SuppressWarnings("unused")
-    public static void unloadPlugins() {}
+    public static void unloadPlugins() {
+        DeepLPlugin.unloadPlugins();
+    }
 
     /**
      * Default constructor. The DeepL library will auto-detect whether to use
@@ -111,6 +208,10 @@ public class DeepLTranslate2 extends BaseCachedTranslate {
         temporaryKey = key;
     }
 
+    private static ResourceBundle getBundle() {
+        return BundleHolder.BUNDLE;
+    }
+
     @Override
     protected String getPreferenceName() {
         return ALLOW_DEEPL_TRANSLATE;
@@ -118,47 +219,1321 @@ public class DeepLTranslate2 extends BaseCachedTranslate {
 
     @Override
     public String getName() {
-        return BUNDLE.getString("MT_ENGINE_DEEPL");
+        return getBundle().getString("MT_ENGINE_DEEPL");
     }
 
+    /**
+     * Returns the translation and, when prefetch is enabled, starts translating
+     * the following segments in the background. The first call also starts
+     * the cache warm-up.
+     */
+    @Override
+    public String getTranslation(Language sLang, Language tLang, String text) throws Exception {
+        if (!used) {
+            used = true;
+            DeepLCacheWarmer.attach(this);
+        }
+        String result = super.getTranslation(sLang, tLang, text);
+        if (result != null && DeepLPrefetcher.isEnabled()) {
+            DeepLPrefetcher.getInstance().prefetchAfter(this, sLang, tLang, text);
+        }
+        return result;
+    }
+
+    /**
+     * Translates on the request executor, so that the request can be
+     * abandoned. When the user moves to another entry, the requests still
+     * pending for the source text of the entry left are cancelled: they stop
+     * waiting for the rate limit and are not retried. Concurrent requests for
+     * other texts are not affected.
+     */
     @Override
     protected String translate(Language sLang, Language tLang, String text) throws MachineTranslateError {
-        String apiKey = getCredential(PROPERTY_API_KEY);
-        if (apiKey == null || apiKey.isEmpty()) {
-            if (temporaryKey == null) {
-                throw new MachineTranslateError(BUNDLE.getString("DEEPL_API_KEY_NOTFOUND"));
+        CompletableFuture<String> request = DeepLExecutor.submit(() -> translateNow(sLang, tLang, text));
+        InteractiveRequests interactive = InteractiveRequests.getInstance();
+        interactive.add(text, request);
+        try {
+            return request.get();
+        } catch (InterruptedException e) {
+            request.cancel(true);
+            throw handleInterruption(e);
+        } catch (CancellationException e) {
+            throw handleInterruption(new InterruptedException("DeepL request cancelled"));
+        } catch (ExecutionException e) {
+            throw toMachineTranslateError(e.getCause());
+        } finally {
+            interactive.remove(text, request);
+        }
+    }
+
+    /**
+     * Translates asynchronously on the request executor, which uses virtual
+     * threads when the Java runtime has them. The result is served from the
+     * cache when available, and stored in it otherwise.
+     * <p>
+     * Cancelling the returned future releases the request: a request not yet
+     * sent is dropped, and one waiting for DeepL no longer holds its caller.
+     *
+     * @param sLang source language.
+     * @param tLang target language.
+     * @param text text to translate.
+     * @return future of the translation.
+     */
+    public CompletableFuture<String> translateAsync(Language sLang, Language tLang, String text) {
+        String cached = getFromCache(sLang, tLang, text);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        return DeepLExecutor.submit(() -> {
+            String result = translateNow(sLang, tLang, text);
+            if (result != null) {
+                putToCache(sLang, tLang, text, result);
             }
-            apiKey = temporaryKey;
+            return result;
+        });
+    }
+
+    private static MachineTranslateError toMachineTranslateError(Throwable cause) {
+        if (cause instanceof MachineTranslateError) {
+            return (MachineTranslateError) cause;
         }
-        DeepLClientOptions deepLClientOptions = new DeepLClientOptions();
-        deepLClientOptions.setApiVersion(DeepLApiVersion.VERSION_2);
-        if (deepLServerUrl != null) {
-            // deepL server URL is automatically detected in the client library.
-            // we set custom url, eg. locahost, for a test purpose.
-            deepLClientOptions.setServerUrl(deepLServerUrl);
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        return new MachineTranslateError(cause.getMessage(), cause);
+    }
+
+    private String translateNow(Language sLang, Language tLang, String text) throws MachineTranslateError {
+        String sourceLang = getSourceLanguage(sLang);
+        String targetLang = getTargetLanguage(tLang);
+        return withKeyFailover(
+                sourceLang, targetLang, null, apiKey -> translateNow(apiKey, sLang, sourceLang, targetLang, text));
+    }
+
+    private String translateNow(String apiKey, Language sLang, String sourceLang, String targetLang, String text)
+            throws MachineTranslateError {
+        checkLanguagePair(apiKey, sourceLang, targetLang);
+        TextTranslationOptions textTranslationOptions = getTextTranslationOptions(apiKey, sourceLang, targetLang);
+        TranslationKey key = new TranslationKey(
+                sourceLang, targetLang, getOptionsFingerprint(textTranslationOptions), text);
+        XmlTagCodec.Encoded encoded = isXmlTagHandling(textTranslationOptions) ? XmlTagCodec.encode(text) : null;
+        String request = encoded == null ? text : encoded.getXml();
+        try {
+            return IN_FLIGHT.execute(key, () -> {
+                String cached = getFromDiskCache(key);
+                if (cached != null) {
+                    DeepLMetrics.getInstance().recordCacheHit();
+                    return cached;
+                }
+                DeepLMetrics.getInstance().recordCacheMiss();
+                if (isSentenceCache(textTranslationOptions)) {
+                    Map<String, String> translated = new HashMap<>();
+                    translateSentences(
+                            apiKey,
+                            sourceLang,
+                            targetLang,
+                            key.getOptions(),
+                            textTranslationOptions,
+                            sLang.getLocale(),
+                            Collections.singletonList(text),
+                            translated,
+                            true);
+                    String tr = translated.get(text);
+                    if (tr != null) {
+                        putToDiskCache(key, tr);
+                        return tr;
+                    }
+                }
+                SegmentTemplate template = isTemplateDedup() ? SegmentTemplate.of(text) : null;
+                if (template != null) {
+                    String tr = translateTemplate(
+                            apiKey, sourceLang, targetLang, key.getOptions(), textTranslationOptions, template);
+                    if (tr != null) {
+                        putToDiskCache(key, tr);
+                        return tr;
+                    }
+                }
+                DeepLTransport transport = getTransport(apiKey);
+                DeepLTransport.Result result;
+                try {
+                    result = callDeepL(
+                                    apiKey,
+                                    sourceLang,
+                                    targetLang,
+                                    request.length(),
+                                    () -> transport.translate(
+                                            Collections.singletonList(request),
+                                            sourceLang,
+                                            targetLang,
+                                            textTranslationOptions))
+                            .get(0);
+                } catch (DeepLException e) {
+                    throw handleDeepLError(sourceLang, targetLang, e);
+                } catch (InterruptedException e) {
+                    throw handleInterruption(e);
+                }
+                recordBilled(apiKey, result);
+                String tr = postProcess(result.getText(), text, encoded);
+                if (tr == null) {
+                    tr = translateAsPlainText(
+                                    apiKey,
+                                    sourceLang,
+                                    targetLang,
+                                    textTranslationOptions,
+                                    Collections.singletonList(text))
+                            .get(text);
+                }
+                putToDiskCache(key, tr);
+                return tr;
+            });
+        } catch (InterruptedException e) {
+            throw handleInterruption(e);
+        }
+    }
+
+    /**
+     * Translate many segments with as few requests as possible.
+     * <p>
+     * Segments already in the cache are not sent again, and duplicated
+     * segments are sent only once. The rest are packed into /v2/translate
+     * requests of up to 50 texts each, within the request size limit.
+     * Every new translation is stored in the cache.
+     *
+     * @param sLang source language.
+     * @param tLang target language.
+     * @param texts segments to translate.
+     * @return translations, in the same order as texts.
+     * @throws MachineTranslateError when a request fails.
+     */
+    public List<String> translateBatch(Language sLang, Language tLang, List<String> texts)
+            throws MachineTranslateError {
+        return translateBatch(sLang, tLang, texts, true, false);
+    }
+
+    /**
+     * Translates one chunk of bulk work such as prefetch. Unlike other
+     * requests, which keep a language pair on one key, the chunks are spread
+     * over all the keys in the rotation, in proportion to the quota they have
+     * left.
+     *
+     * @param sLang source language.
+     * @param tLang target language.
+     * @param texts segments to translate.
+     * @return translations, in the same order as texts.
+     * @throws MachineTranslateError when a request fails.
+     */
+    List<String> translateBulk(Language sLang, Language tLang, List<String> texts) throws MachineTranslateError {
+        return translateBatch(sLang, tLang, texts, true, true);
+    }
+
+    /**
+     * Translates the texts into several target languages at once.
+     * <p>
+     * The source side is prepared once: the source language is mapped,
+     * repeated texts are sent once and, with XML tag handling, the tags are
+     * encoded. The target languages are then translated in parallel, each
+     * with its own cache lookups and batches, as {@link #translateBatch}
+     * does.
+     *
+     * @param sLang source language.
+     * @param tLangs target languages.
+     * @param texts segments to translate.
+     * @return translations by target language, in the order of tLangs; each
+     *         list is in the same order as texts.
+     * @throws MachineTranslateError when the translation into a target
+     *             failed. The translations into the other targets are cached
+     *             all the same.
+     */
+    public Map<Language, List<String>> translateMulti(
+            Language sLang, Collection<Language> tLangs, List<String> texts) throws MachineTranslateError {
+        String sourceLang = getSourceLanguage(sLang);
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(texts));
+        Map<String, XmlTagCodec.Encoded> prepared = new HashMap<>();
+        if (Preferences.isPreferenceDefault(PROPERTY_XML_TAG_HANDLING, false)) {
+            for (String text : distinct) {
+                if (text != null && !text.isEmpty()) {
+                    prepared.put(text, XmlTagCodec.encode(text));
+                }
+            }
+        }
+        Map<Language, CompletableFuture<List<String>>> requests = new LinkedHashMap<>();
+        for (Language tLang : tLangs) {
+            String targetLang = getTargetLanguage(tLang);
+            requests.put(
+                    tLang,
+                    DeepLExecutor.submit(() -> withKeyFailover(
+                            sourceLang,
+                            targetLang,
+                            null,
+                            apiKey -> translateBatch(
+                                    apiKey, sLang, sourceLang, targetLang, distinct, true, prepared))));
+        }
+        Map<Language, List<String>> results = new LinkedHashMap<>();
+        MachineTranslateError error = null;
+        for (Map.Entry<Language, CompletableFuture<List<String>>> request : requests.entrySet()) {
+            List<String> translated;
+            try {
+                translated = request.getValue().get();
+            } catch (ExecutionException e) {
+                if (error == null) {
+                    error = toMachineTranslateError(e.getCause());
+                }
+                continue;
+            } catch (InterruptedException e) {
+                requests.values().forEach(r -> r.cancel(true));
+                throw handleInterruption(e);
+            }
+            Map<String, String> byText = new HashMap<>();
+            for (int i = 0; i < distinct.size(); i++) {
+                byText.put(distinct.get(i), translated.get(i));
+            }
+            List<String> translations = new ArrayList<>(texts.size());
+            for (String text : texts) {
+                translations.add(byText.get(text));
+            }
+            results.put(request.getKey(), translations);
+        }
+        if (error != null) {
+            throw error;
+        }
+        return results;
+    }
+
+    /**
+     * Translates one text into several target languages at once; see
+     * {@link #translateMulti(Language, Collection, List)}.
+     *
+     * @param sLang source language.
+     * @param tLangs target languages.
+     * @param text segment to translate.
+     * @return translations by target language, in the order of tLangs.
+     * @throws MachineTranslateError when the translation into a target
+     *             failed.
+     */
+    public Map<Language, String> translateMulti(Language sLang, Collection<Language> tLangs, String text)
+            throws MachineTranslateError {
+        Map<Language, String> results = new LinkedHashMap<>();
+        translateMulti(sLang, tLangs, Collections.singletonList(text))
+                .forEach((tLang, translations) -> results.put(tLang, translations.get(0)));
+        return results;
+    }
+
+    /**
+     * Translates the texts; with {@code memoryCache} false, new results go to
+     * the disk cache only, so that bulk work does not fill the memory cache.
+     * With {@code spread}, the key is chosen for the texts rather than for
+     * the language pair alone.
+     */
+    private List<String> translateBatch(
+            Language sLang, Language tLang, List<String> texts, boolean memoryCache, boolean spread)
+            throws MachineTranslateError {
+        String sourceLang = getSourceLanguage(sLang);
+        String targetLang = getTargetLanguage(tLang);
+        // The same chunk goes to the same key again, e.g. when a job is resumed.
+        String chunk = spread ? Integer.toHexString(texts.hashCode()) : null;
+        return withKeyFailover(
+                sourceLang,
+                targetLang,
+                chunk,
+                apiKey -> translateBatch(apiKey, sLang, sourceLang, targetLang, texts, memoryCache, null));
+    }
+
+    /**
+     * Translates the texts with the key.
+     *
+     * @param prepared XML encodings of the texts made beforehand, or null.
+     */
+    private List<String> translateBatch(
+            String apiKey,
+            Language sLang,
+            String sourceLang,
+            String targetLang,
+            List<String> texts,
+            boolean memoryCache,
+            Map<String, XmlTagCodec.Encoded> prepared)
+            throws MachineTranslateError {
+        TextTranslationOptions textTranslationOptions = getTextTranslationOptions(apiKey, sourceLang, targetLang);
+        String options = getOptionsFingerprint(textTranslationOptions);
+        String[] translations = new String[texts.size()];
+        Map<String, List<Integer>> pending = new LinkedHashMap<>();
+        for (int i = 0; i < texts.size(); i++) {
+            String text = texts.get(i);
+            if (text == null || text.isEmpty()) {
+                translations[i] = text;
+                continue;
+            }
+            String cached = getFromMemoryCache(new TranslationKey(sourceLang, targetLang, options, text));
+            if (cached != null) {
+                translations[i] = cached;
+            } else {
+                pending.computeIfAbsent(text, k -> new ArrayList<>()).add(i);
+            }
+        }
+        if (pending.isEmpty()) {
+            return Arrays.asList(translations);
+        }
+
+        checkLanguagePair(apiKey, sourceLang, targetLang);
+        List<String> misses = new ArrayList<>();
+        for (String text : pending.keySet()) {
+            TranslationKey key = new TranslationKey(sourceLang, targetLang, options, text);
+            String cached = getFromDiskCache(key);
+            if (cached != null) {
+                DeepLMetrics.getInstance().recordCacheHit();
+                if (memoryCache) {
+                    getMemoryCache().put(key, cached);
+                }
+                for (int index : pending.get(text)) {
+                    translations[index] = cached;
+                }
+            } else {
+                DeepLMetrics.getInstance().recordCacheMiss();
+                misses.add(text);
+            }
+        }
+
+        Map<String, String> translated = new HashMap<>();
+        List<String> direct = misses;
+        if (isSentenceCache(textTranslationOptions)) {
+            direct = translateSentences(
+                    apiKey,
+                    sourceLang,
+                    targetLang,
+                    options,
+                    textTranslationOptions,
+                    sLang.getLocale(),
+                    direct,
+                    translated,
+                    memoryCache);
+        }
+        if (isTemplateDedup()) {
+            direct = translateTemplates(
+                    apiKey, sourceLang, targetLang, options, textTranslationOptions, direct, translated);
+        }
+        translated.putAll(sendBatches(apiKey, sourceLang, targetLang, textTranslationOptions, direct, prepared));
+        for (String text : misses) {
+            String tr = translated.get(text);
+            TranslationKey key = new TranslationKey(sourceLang, targetLang, options, text);
+            if (memoryCache) {
+                getMemoryCache().put(key, tr);
+            }
+            putToDiskCache(key, tr);
+            for (int index : pending.get(text)) {
+                translations[index] = tr;
+            }
+        }
+        return Arrays.asList(translations);
+    }
+
+    /**
+     * Sends the texts in as few requests as possible, encoding their tags as
+     * needed.
+     */
+    private Map<String, String> sendBatches(
+            String apiKey,
+            String sourceLang,
+            String targetLang,
+            TextTranslationOptions textTranslationOptions,
+            List<String> texts)
+            throws MachineTranslateError {
+        return sendBatches(apiKey, sourceLang, targetLang, textTranslationOptions, texts, null);
+    }
+
+    /**
+     * Sends the texts in as few requests as possible.
+     *
+     * @param prepared XML encodings of the texts made beforehand, or null.
+     * @return post-processed translations by text.
+     */
+    private Map<String, String> sendBatches(
+            String apiKey,
+            String sourceLang,
+            String targetLang,
+            TextTranslationOptions textTranslationOptions,
+            List<String> texts,
+            Map<String, XmlTagCodec.Encoded> prepared)
+            throws MachineTranslateError {
+        Map<String, String> translations = new HashMap<>();
+        if (texts.isEmpty()) {
+            return translations;
+        }
+        boolean xmlTags = isXmlTagHandling(textTranslationOptions);
+        List<String> tagsLost = new ArrayList<>();
+        DeepLTransport transport = getTransport(apiKey);
+        List<List<String>> batches =
+                BatchPartitioner.partition(texts, BatchPartitioner.MAX_TEXTS, BatchPartitioner.MAX_REQUEST_BYTES);
+        for (List<String> batch : batches) {
+            List<XmlTagCodec.Encoded> encoded = new ArrayList<>(batch.size());
+            List<String> requests = new ArrayList<>(batch.size());
+            for (String text : batch) {
+                XmlTagCodec.Encoded e = null;
+                if (xmlTags) {
+                    e = prepared != null && prepared.containsKey(text) ? prepared.get(text) : XmlTagCodec.encode(text);
+                }
+                encoded.add(e);
+                requests.add(e == null ? text : e.getXml());
+            }
+            List<DeepLTransport.Result> results;
+            try {
+                results = callDeepL(
+                        apiKey,
+                        sourceLang,
+                        targetLang,
+                        requests.stream().mapToLong(String::length).sum(),
+                        () -> transport.translate(requests, sourceLang, targetLang, textTranslationOptions));
+            } catch (DeepLException e) {
+                throw handleDeepLError(sourceLang, targetLang, e);
+            } catch (InterruptedException e) {
+                throw handleInterruption(e);
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                recordBilled(apiKey, results.get(i));
+                String tr = postProcess(results.get(i).getText(), batch.get(i), encoded.get(i));
+                if (tr == null) {
+                    tagsLost.add(batch.get(i));
+                } else {
+                    translations.put(batch.get(i), tr);
+                }
+            }
+        }
+        if (!tagsLost.isEmpty()) {
+            translations.putAll(
+                    translateAsPlainText(apiKey, sourceLang, targetLang, textTranslationOptions, tagsLost));
+        }
+        return translations;
+    }
+
+    /**
+     * Translates texts again without XML tag handling, as if it were off.
+     * Used when DeepL did not return the tag elements of a text intact.
+     */
+    private Map<String, String> translateAsPlainText(
+            String apiKey,
+            String sourceLang,
+            String targetLang,
+            TextTranslationOptions textTranslationOptions,
+            List<String> texts)
+            throws MachineTranslateError {
+        Log.log("DeepL lost the tags of " + texts.size() + " texts, translating them as plain text");
+        TextTranslationOptions plain = new TextTranslationOptions();
+        if (textTranslationOptions.getSentenceSplittingMode() != null) {
+            plain.setSentenceSplittingMode(textTranslationOptions.getSentenceSplittingMode());
+        }
+        if (textTranslationOptions.getGlossaryId() != null) {
+            plain.setGlossary(textTranslationOptions.getGlossaryId());
+        }
+        return sendBatches(apiKey, sourceLang, targetLang, plain, texts, null);
+    }
+
+    /**
+     * Translates paragraphs sentence by sentence. Each sentence is looked up
+     * in the caches on its own; the missing ones are sent together and
+     * cached, so that a paragraph revised in one sentence costs only that
+     * sentence.
+     *
+     * @param locale the source locale, used to find sentence boundaries.
+     * @param translated receives the translations of the paragraphs.
+     * @param memoryCache whether new sentence translations go to the memory
+     *            cache too.
+     * @return the texts which still need a direct call: those with a single
+     *         sentence.
+     */
+    private List<String> translateSentences(
+            String apiKey,
+            String sourceLang,
+            String targetLang,
+            String options,
+            TextTranslationOptions textTranslationOptions,
+            Locale locale,
+            List<String> texts,
+            Map<String, String> translated,
+            boolean memoryCache)
+            throws MachineTranslateError {
+        List<String> direct = new ArrayList<>();
+        Map<String, SentenceSplitter.Split> splits = new LinkedHashMap<>();
+        Map<String, String> sentences = new HashMap<>();
+        Set<String> unknown = new LinkedHashSet<>();
+        for (String text : texts) {
+            SentenceSplitter.Split split = SentenceSplitter.split(text, locale);
+            if (split == null) {
+                direct.add(text);
+                continue;
+            }
+            splits.put(text, split);
+            for (String sentence : split.getSentences()) {
+                if (sentences.containsKey(sentence) || unknown.contains(sentence)) {
+                    continue;
+                }
+                TranslationKey key = new TranslationKey(sourceLang, targetLang, options, sentence);
+                String cached = getFromMemoryCache(key);
+                if (cached == null) {
+                    cached = getFromDiskCache(key);
+                }
+                if (cached != null) {
+                    sentences.put(sentence, cached);
+                } else {
+                    unknown.add(sentence);
+                }
+            }
+        }
+        Map<String, String> sent =
+                sendBatches(apiKey, sourceLang, targetLang, textTranslationOptions, new ArrayList<>(unknown));
+        for (Map.Entry<String, String> entry : sent.entrySet()) {
+            TranslationKey key = new TranslationKey(sourceLang, targetLang, options, entry.getKey());
+            if (memoryCache) {
+                getMemoryCache().put(key, entry.getValue());
+            }
+            putToDiskCache(key, entry.getValue());
+        }
+        sentences.putAll(sent);
+
+        long saved = -unknown.stream().mapToLong(String::length).sum();
+        for (Map.Entry<String, SentenceSplitter.Split> entry : splits.entrySet()) {
+            List<String> parts = new ArrayList<>();
+            for (String sentence : entry.getValue().getSentences()) {
+                parts.add(sentences.get(sentence));
+            }
+            translated.put(entry.getKey(), entry.getValue().join(parts));
+            saved += entry.getKey().length();
+        }
+        if (saved > 0) {
+            DeepLMetrics.getInstance().recordSentenceSaved(saved);
+        }
+        return direct;
+    }
+
+    /**
+     * Whether paragraphs are translated sentence by sentence, as set with
+     * {@value #PROPERTY_SENTENCE_CACHE}. It applies to projects without
+     * sentence segmentation only, and not with XML tag handling, where a tag
+     * pair may span sentences.
+     */
+    private boolean isSentenceCache(TextTranslationOptions options) {
+        if (!Preferences.isPreferenceDefault(PROPERTY_SENTENCE_CACHE, false) || isXmlTagHandling(options)) {
+            return false;
         }
         ProjectProperties projectProperties = getProjectProperties();
-        DeepLClient client = new DeepLClient(apiKey, deepLClientOptions);
+        return projectProperties == null || !projectProperties.isSentenceSegmentingEnabled();
+    }
 
-        TextTranslationOptions textTranslationOptions = new TextTranslationOptions();
+    /**
+     * Translates the texts with variable tokens through their templates, so
+     * that each template is sent once.
+     *
+     * @param translated receives the translations mapped back from templates.
+     * @return the texts which still need a direct call: those without
+     *         variable tokens and those whose mapping back failed.
+     */
+    private List<String> translateTemplates(
+            String apiKey,
+            String sourceLang,
+            String targetLang,
+            String options,
+            TextTranslationOptions textTranslationOptions,
+            List<String> texts,
+            Map<String, String> translated)
+            throws MachineTranslateError {
+        List<String> direct = new ArrayList<>();
+        Map<String, List<SegmentTemplate>> groups = new LinkedHashMap<>();
+        for (String text : texts) {
+            SegmentTemplate template = SegmentTemplate.of(text);
+            if (template == null) {
+                direct.add(text);
+            } else {
+                groups.computeIfAbsent(template.getTemplate(), k -> new ArrayList<>()).add(template);
+            }
+        }
+        Map<String, String> templateTranslations = new HashMap<>();
+        List<String> unknown = new ArrayList<>();
+        for (String template : groups.keySet()) {
+            String cached = getFromDiskCache(getTemplateKey(sourceLang, targetLang, options, template));
+            if (cached != null) {
+                templateTranslations.put(template, cached);
+            } else {
+                unknown.add(template);
+            }
+        }
+        Map<String, String> sent = sendBatches(apiKey, sourceLang, targetLang, textTranslationOptions, unknown);
+        sent.forEach((template, tr) -> putToDiskCache(getTemplateKey(sourceLang, targetLang, options, template), tr));
+        templateTranslations.putAll(sent);
 
-        if (projectProperties != null && projectProperties.isSentenceSegmentingEnabled()) {
-            textTranslationOptions.setSentenceSplittingMode(SentenceSplittingMode.All);
+        long saved = -unknown.stream().mapToLong(String::length).sum();
+        for (Map.Entry<String, List<SegmentTemplate>> group : groups.entrySet()) {
+            String tr = templateTranslations.get(group.getKey());
+            for (SegmentTemplate template : group.getValue()) {
+                String result = template.apply(tr);
+                if (result == null) {
+                    direct.add(template.getSource());
+                } else {
+                    translated.put(
+                            template.getSource(), postProcessor.cleanSpacesAroundTags(result, template.getSource()));
+                    saved += template.getSource().length();
+                }
+            }
+        }
+        if (saved > 0) {
+            DeepLMetrics.getInstance().recordTemplateSaved(saved);
+        }
+        return direct;
+    }
+
+    /**
+     * Translates one text through its template: the template translation is
+     * taken from the disk cache or requested once, then the tokens of the text
+     * are put back.
+     *
+     * @return the translation, or null when the mapping back failed.
+     */
+    private String translateTemplate(
+            String apiKey,
+            String sourceLang,
+            String targetLang,
+            String options,
+            TextTranslationOptions textTranslationOptions,
+            SegmentTemplate template)
+            throws MachineTranslateError {
+        TranslationKey key = getTemplateKey(sourceLang, targetLang, options, template.getTemplate());
+        String tr = getFromDiskCache(key);
+        boolean cached = tr != null;
+        if (!cached) {
+            tr = sendBatches(
+                            apiKey,
+                            sourceLang,
+                            targetLang,
+                            textTranslationOptions,
+                            Collections.singletonList(template.getTemplate()))
+                    .get(template.getTemplate());
+            putToDiskCache(key, tr);
         }
+        String result = template.apply(tr);
+        if (result == null) {
+            return null;
+        }
+        if (cached) {
+            DeepLMetrics.getInstance().recordTemplateSaved(template.getSource().length());
+        }
+        return postProcessor.cleanSpacesAroundTags(result, template.getSource());
+    }
 
-        TextResult result;
+    private static TranslationKey getTemplateKey(
+            String sourceLang, String targetLang, String options, String template) {
+        return new TranslationKey(sourceLang, targetLang, options + ",template", template);
+    }
+
+    private static boolean isTemplateDedup() {
+        return Preferences.isPreferenceDefault(PROPERTY_TEMPLATE_DEDUP, false);
+    }
+
+    /**
+     * Translates every untranslated entry of the open project and writes the
+     * results to {@value DeepLPretranslator#OUTPUT_FILE_NAME} in the tm/auto
+     * folder of the project.
+     * <p>
+     * The job keeps a checkpoint in the OmegaT configuration folder. When it
+     * stops on an error or because the character quota is used up, calling
+     * this method again resumes where it stopped, unless the source files of
+     * the project have changed since. {@link #cancelPretranslation()} or
+     * interrupting the calling thread stops the job as well. Only one job
+     * runs at a time.
+     * <p>
+     * The job runs on the calling thread; it is meant to be started from a
+     * script, see the README.
+     *
+     * @return number of segments translated by this call.
+     * @throws MachineTranslateError when no project is open or the job
+     *             stopped before the project was done.
+     */
+    public int pretranslateProject() throws MachineTranslateError {
+        IProject project = Core.getProject();
+        if (project == null || !project.isProjectLoaded()) {
+            throw new MachineTranslateError(getBundle().getString("DEEPL_PRETRANSLATE_NO_PROJECT"));
+        }
+        ProjectProperties properties = project.getProjectProperties();
+        Language sLang = properties.getSourceLanguage();
+        Language tLang = properties.getTargetLanguage();
         String sourceLang = getSourceLanguage(sLang);
         String targetLang = getTargetLanguage(tLang);
+        String apiKey = getApiKey(sourceLang, targetLang);
+        checkLanguagePair(apiKey, sourceLang, targetLang);
+        String options = getOptionsFingerprint(getTextTranslationOptions(apiKey, sourceLang, targetLang));
+
+        List<SourceTextEntry> entries = project.getAllEntries();
+        DeepLPretranslator.Source source = new DeepLPretranslator.Source() {
+            @Override
+            public int size() {
+                return entries.size();
+            }
+
+            @Override
+            public String get(int index) {
+                SourceTextEntry entry = entries.get(index);
+                TMXEntry info = project.getTranslationInfo(entry);
+                return info != null && info.isTranslated() ? null : entry.getSrcText();
+            }
+
+            @Override
+            public String getSourceText(int index) {
+                return entries.get(index).getSrcText();
+            }
+        };
+        DeepLPretranslator.Engine engine = new DeepLPretranslator.Engine() {
+            @Override
+            public List<String> translate(List<String> texts) throws MachineTranslateError {
+                return translateBatch(sLang, tLang, texts, false, true);
+            }
+
+            @Override
+            public boolean isQuotaAvailable(long characters) {
+                return isBackgroundQuotaAvailable(characters);
+            }
+        };
+        Path workDir = Paths.get(
+                StaticUtils.getConfigDir(),
+                "deepl",
+                "pretranslate-" + DeepLClientRegistry.getKeyHash(properties.getProjectRoot()));
+        Path output = Paths.get(properties.getTMAutoRoot(), DeepLPretranslator.OUTPUT_FILE_NAME);
+        DeepLPretranslator job = new DeepLPretranslator(
+                engine,
+                source,
+                workDir,
+                output,
+                sLang.getLanguage(),
+                tLang.getLanguage(),
+                options,
+                DeepLPretranslator.DEFAULT_PARALLELISM);
+        if (!PRETRANSLATION.compareAndSet(null, job)) {
+            throw new MachineTranslateError(getBundle().getString("DEEPL_PRETRANSLATE_RUNNING"));
+        }
+        DeepLPretranslator.Result result;
+        try {
+            result = job.run();
+        } catch (IOException e) {
+            throw new MachineTranslateError(e.getMessage(), e);
+        } finally {
+            PRETRANSLATION.compareAndSet(job, null);
+        }
+        if (result.getStatus() != DeepLPretranslator.Status.COMPLETED) {
+            Log.log("DeepL pretranslation stopped at entry " + result.getNextIndex() + ": " + result.getStatus());
+            throw new MachineTranslateError(
+                    MessageFormat.format(getBundle().getString("DEEPL_PRETRANSLATE_STOPPED"), result.getTranslated()),
+                    result.getError());
+        }
+        return result.getTranslated();
+    }
+
+    /**
+     * Stops the running pretranslation after the batches in flight. Its
+     * progress is kept, so {@link #pretranslateProject()} resumes it later.
+     *
+     * @return true when a job was running.
+     */
+    public static boolean cancelPretranslation() {
+        DeepLPretranslator job = PRETRANSLATION.get();
+        if (job == null) {
+            return false;
+        }
+        job.cancel();
+        return true;
+    }
+
+    private void recordBilled(String apiKey, DeepLTransport.Result result) {
+        DeepLClientRegistry.getInstance().getQuotaTracker(apiKey).recordBilled(result.getBilledCharacters());
+        DeepLMetrics.getInstance().recordBilled(result.getBilledCharacters());
+    }
+
+    /**
+     * Looks the text up in the plugin's own in-memory cache, under the
+     * options the text would be translated with now.
+     */
+    @Override
+    protected String getFromCache(Language sLang, Language tLang, String text) {
+        TranslationKey key = getCacheKey(sLang, tLang, text);
+        return key == null ? null : getFromMemoryCache(key);
+    }
+
+    @Override
+    protected String putToCache(Language sLang, Language tLang, String text, String result) {
+        TranslationKey key = getCacheKey(sLang, tLang, text);
+        if (key != null) {
+            getMemoryCache().put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * Builds the cache key of the text, or returns null when no API key is
+     * set and nothing can be cached.
+     */
+    private TranslationKey getCacheKey(Language sLang, Language tLang, String text) {
+        String sourceLang = getSourceLanguage(sLang);
+        String targetLang = getTargetLanguage(tLang);
+        String apiKey;
+        try {
+            apiKey = getApiKey(sourceLang, targetLang);
+        } catch (MachineTranslateError e) {
+            return null;
+        }
+        String options = getOptionsFingerprint(getTextTranslationOptions(apiKey, sourceLang, targetLang));
+        return new TranslationKey(sourceLang, targetLang, options, text);
+    }
+
+    /**
+     * Counts hits of the in-memory cache for the metrics.
+     */
+    private String getFromMemoryCache(TranslationKey key) {
+        String result = getMemoryCache().get(key);
+        if (result != null) {
+            DeepLMetrics.getInstance().recordCacheHit();
+        }
+        return result;
+    }
+
+    /**
+     * Returns a sink putting translations found in the project memories into
+     * the memory cache. Translations recorded with other options than the
+     * current ones are left out. Translations recorded without options, such
+     * as those of the project memory, are only taken while neither a glossary
+     * nor tag handling is in use, since they were made without them.
+     *
+     * @return the sink, or null when no API key is set.
+     */
+    DeepLCacheWarmer.Sink getWarmUpSink(Language sLang, Language tLang) {
+        String sourceLang = getSourceLanguage(sLang);
+        String targetLang = getTargetLanguage(tLang);
+        String apiKey;
+        try {
+            apiKey = getApiKey(sourceLang, targetLang);
+        } catch (MachineTranslateError e) {
+            return null;
+        }
+        TextTranslationOptions textTranslationOptions = getTextTranslationOptions(apiKey, sourceLang, targetLang);
+        String options = getOptionsFingerprint(textTranslationOptions);
+        boolean plain = !isXmlTagHandling(textTranslationOptions) && textTranslationOptions.getGlossaryId() == null;
+        DeepLMemoryCache cache = getMemoryCache();
+        return (source, translation, recorded) -> {
+            if (recorded == null ? !plain : !recorded.equals(options)) {
+                return false;
+            }
+            cache.put(new TranslationKey(sourceLang, targetLang, options, source), translation);
+            return true;
+        };
+    }
+
+    private synchronized DeepLMemoryCache getMemoryCache() {
+        if (memoryCache == null) {
+            int maxCharacters =
+                    Preferences.getPreferenceDefault(PROPERTY_MEMORY_CACHE_CHARS, DEFAULT_MEMORY_CACHE_CHARS);
+            int ttlMinutes = Preferences.getPreferenceDefault(PROPERTY_MEMORY_CACHE_TTL, 0);
+            memoryCache = new DeepLMemoryCache(Math.max(0, maxCharacters), ttlMinutes);
+        }
+        return memoryCache;
+    }
+
+    /**
+     * Tells whether background work such as prefetch may send the characters
+     * without eating into the quota reserved for interactive lookups
+     * ({@value #PROPERTY_QUOTA_RESERVE} percent of the limit).
+     * <p>
+     * The local count of billed characters is reconciled with the DeepL usage
+     * endpoint when it is stale; this call may therefore block on the network
+     * and must not be made on the interactive path.
+     *
+     * @param characters characters about to be sent.
+     * @return true when the work may proceed.
+     */
+    boolean isBackgroundQuotaAvailable(long characters) {
+        List<String> apiKeys;
+        try {
+            apiKeys = getApiKeys();
+        } catch (MachineTranslateError e) {
+            return false;
+        }
+        int reserve = Preferences.getPreferenceDefault(PROPERTY_QUOTA_RESERVE, DEFAULT_QUOTA_RESERVE);
+        for (String apiKey : apiKeys) {
+            if (apiKeys.size() > 1 && KEY_RING.isEjected(apiKey)) {
+                continue;
+            }
+            QuotaTracker tracker = DeepLClientRegistry.getInstance().getQuotaTracker(apiKey);
+            if (tracker.needsSync() && !syncUsage(apiKey)) {
+                return false;
+            }
+            if (tracker.allowBackground(characters, reserve / 100.0)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reconciles the quota tracker of the key with the DeepL usage endpoint.
+     *
+     * @return false when the thread was interrupted.
+     */
+    private boolean syncUsage(String apiKey) {
         try {
-            result = client.translateText(text, sourceLang, targetLang, textTranslationOptions);
+            Usage usage = getClient(apiKey).getUsage();
+            Usage.Detail detail = usage.getCharacter();
+            if (detail != null) {
+                DeepLClientRegistry.getInstance().getQuotaTracker(apiKey).update(detail.getCount(), detail.getLimit());
+            }
         } catch (DeepLException e) {
-            throw handleDeepLError(sourceLang, targetLang, e);
+            Log.log("DeepL usage query failed: " + e.getMessage());
+            DeepLClientRegistry.getInstance().getQuotaTracker(apiKey).syncFailed();
         } catch (InterruptedException e) {
-            throw new MachineTranslateError(BUNDLE.getString("DEEPL_INTERRUPTION_ERROR"), e);
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the configured API keys. Several keys are separated by commas.
+     *
+     * @throws MachineTranslateError when no key is set.
+     */
+    private List<String> getApiKeys() throws MachineTranslateError {
+        List<String> apiKeys = DeepLKeyRing.parse(getCredential(PROPERTY_API_KEY));
+        if (apiKeys.isEmpty()) {
+            apiKeys = DeepLKeyRing.parse(temporaryKey);
+        }
+        if (apiKeys.isEmpty()) {
+            throw new MachineTranslateError(getBundle().getString("DEEPL_API_KEY_NOTFOUND"));
+        }
+        return apiKeys;
+    }
+
+    /**
+     * Returns the API key for the language pair. With several keys, each pair
+     * stays on one key, chosen by the quota the keys have left; see
+     * {@link DeepLKeyRing}. Stale quota estimates are refreshed in the
+     * background.
+     */
+    private String getApiKey(String sourceLang, String targetLang) throws MachineTranslateError {
+        return selectApiKey(getApiKeys(), sourceLang, targetLang, null);
+    }
+
+    /**
+     * @param chunk what spreads bulk work of one language pair over the keys,
+     *            or null to keep the pair on one key.
+     */
+    private String selectApiKey(List<String> apiKeys, String sourceLang, String targetLang, String chunk) {
+        if (apiKeys.size() == 1) {
+            return apiKeys.get(0);
+        }
+        DeepLClientRegistry registry = DeepLClientRegistry.getInstance();
+        for (String apiKey : apiKeys) {
+            QuotaTracker tracker = registry.getQuotaTracker(apiKey);
+            if (tracker.needsSync() && tracker.startSync()) {
+                DeepLExecutor.submit(() -> syncUsage(apiKey)).whenComplete((r, e) -> tracker.endSync());
+            }
+        }
+        String route = sourceLang + ">" + targetLang;
+        return KEY_RING.select(
+                apiKeys,
+                chunk == null ? route : route + "#" + chunk,
+                apiKey -> registry.getQuotaTracker(apiKey).getEstimatedRemaining());
+    }
+
+    /**
+     * Runs the call with the key of the language pair, or of the chunk of
+     * bulk work. When the call takes the key out of the rotation, because its
+     * quota is used up or DeepL refuses it, the call is repeated with the next
+     * key.
+     */
+    private <T> T withKeyFailover(String sourceLang, String targetLang, String chunk, KeyedCall<T> call)
+            throws MachineTranslateError {
+        List<String> apiKeys = getApiKeys();
+        for (int attempt = 1; ; attempt++) {
+            String apiKey = selectApiKey(apiKeys, sourceLang, targetLang, chunk);
+            try {
+                return call.call(apiKey);
+            } catch (MachineTranslateError e) {
+                if (attempt >= apiKeys.size() || !KEY_RING.isEjected(apiKey)) {
+                    throw e;
+                }
+                Log.log("DeepL key " + DeepLClientRegistry.getKeyHash(apiKey) + " left the rotation: "
+                        + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * A call made with one API key.
+     */
+    private interface KeyedCall<T> {
+        T call(String apiKey) throws MachineTranslateError;
+    }
+
+    /**
+     * Fails without a request when DeepL does not support the language pair.
+     */
+    private void checkLanguagePair(String apiKey, String sourceLang, String targetLang)
+            throws MachineTranslateError {
+        DeepLLanguageTable table = getLanguageTable(apiKey);
+        if (!table.supportsSource(sourceLang) || !table.supportsTarget(targetLang)) {
+            throw new MachineTranslateError(MessageFormat.format(
+                    getBundle().getString("DEEPL_UNSUPPORTED_LANGUAGE_ERROR"), sourceLang, targetLang));
+        }
+    }
+
+    /**
+     * Returns the supported-language table of the API key, from memory, from
+     * the file under the configuration folder, or from DeepL, in that order.
+     */
+    private DeepLLanguageTable getLanguageTable(String apiKey) {
+        DeepLClientRegistry registry = DeepLClientRegistry.getInstance();
+        DeepLLanguageTable table = registry.getLanguageTable(apiKey);
+        if (table != null && !table.isExpired(System.currentTimeMillis())) {
+            return table;
+        }
+        synchronized (LANGUAGE_TABLE_LOCK) {
+            long now = System.currentTimeMillis();
+            table = registry.getLanguageTable(apiKey);
+            if (table != null && !table.isExpired(now)) {
+                return table;
+            }
+            Path file = Paths.get(StaticUtils.getConfigDir(), "deepl", DeepLLanguageTable.getFileName(apiKey));
+            try {
+                table = DeepLLanguageTable.load(file);
+            } catch (IOException e) {
+                Log.log("DeepL language table could not be read: " + e.getMessage());
+                table = null;
+            }
+            if (table == null || table.isExpired(now)) {
+                try {
+                    table = DeepLLanguageTable.fetch(getClient(apiKey), now);
+                } catch (DeepLException e) {
+                    Log.log("DeepL language table is not available: " + e.getMessage());
+                    table = DeepLLanguageTable.unknown(now);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return DeepLLanguageTable.unknown(now);
+                }
+                try {
+                    table.save(file);
+                } catch (IOException e) {
+                    Log.log("DeepL language table could not be saved: " + e.getMessage());
+                }
+            }
+            registry.putLanguageTable(apiKey, table);
+            return table;
+        }
+    }
+
+    private TextTranslationOptions getTextTranslationOptions(String apiKey, String sourceLang, String targetLang) {
+        ProjectProperties projectProperties = getProjectProperties();
+        TextTranslationOptions textTranslationOptions = new TextTranslationOptions();
+        if (projectProperties != null && projectProperties.isSentenceSegmentingEnabled()) {
+            textTranslationOptions.setSentenceSplittingMode(SentenceSplittingMode.All);
+        }
+        if (Preferences.isPreferenceDefault(PROPERTY_XML_TAG_HANDLING, false)) {
+            textTranslationOptions.setTagHandling(TAG_HANDLING_XML);
+        }
+        String glossaryId = getGlossaryId(projectProperties, apiKey, sourceLang, targetLang);
+        if (glossaryId != null) {
+            textTranslationOptions.setGlossary(glossaryId);
+        }
+        return textTranslationOptions;
+    }
+
+    /**
+     * Returns the DeepL glossary synced from the project glossary, when
+     * enabled with {@value DeepLGlossarySync#PROPERTY_GLOSSARY_ENABLED}.
+     */
+    private String getGlossaryId(
+            ProjectProperties projectProperties, String apiKey, String sourceLang, String targetLang) {
+        if (projectProperties == null
+                || projectProperties.getGlossaryRoot() == null
+                || !Preferences.isPreferenceDefault(DeepLGlossarySync.PROPERTY_GLOSSARY_ENABLED, false)) {
+            return null;
+        }
+        String fileName = "glossaries-" + DeepLClientRegistry.getKeyHash(apiKey) + ".properties";
+        Path stateFile = Paths.get(StaticUtils.getConfigDir(), "deepl", fileName);
+        DeepLGlossarySync sync = DeepLClientRegistry.getInstance().getGlossarySync(apiKey, stateFile);
+        File glossaryDir = new File(projectProperties.getGlossaryRoot());
+        return sync.getGlossaryId(getClient(apiKey), glossaryDir, sourceLang, targetLang);
+    }
+
+    private static boolean isXmlTagHandling(TextTranslationOptions options) {
+        return TAG_HANDLING_XML.equals(options.getTagHandling());
+    }
+
+    /**
+     * Describes the options which change the translation result, so that
+     * cached results are only reused with the same options.
+     */
+    private static String getOptionsFingerprint(TextTranslationOptions options) {
+        SentenceSplittingMode splitting = options.getSentenceSplittingMode();
+        String fingerprint = "split=" + (splitting == null ? "default" : splitting.name());
+        if (isXmlTagHandling(options)) {
+            fingerprint += ",tags=xml";
+        }
+        if (options.getGlossaryId() != null) {
+            // The glossary is edited in place, so its ID alone does not identify the entries.
+            String revision = DeepLClientRegistry.getInstance().getGlossaryRevision(options.getGlossaryId());
+            fingerprint += ",glossary=" + options.getGlossaryId() + (revision == null ? "" : "@" + revision);
+        }
+        return fingerprint;
+    }
+
+    private static DeepLDiskCache getDiskCache() {
+        if (!Preferences.isPreferenceDefault(PROPERTY_DISK_CACHE_ENABLED, true)) {
+            return null;
+        }
+        int maxMegabytes = Preferences.getPreferenceDefault(PROPERTY_DISK_CACHE_SIZE, DEFAULT_DISK_CACHE_SIZE);
+        Path file = Paths.get(StaticUtils.getConfigDir(), "deepl", "translations.cache");
+        return DeepLDiskCache.getShared(file, maxMegabytes * 1024L * 1024L);
+    }
+
+    private String getFromDiskCache(TranslationKey key) {
+        DeepLDiskCache cache = getDiskCache();
+        return cache == null ? null : cache.get(key);
+    }
+
+    private void putToDiskCache(TranslationKey key, String translation) {
+        DeepLDiskCache cache = getDiskCache();
+        if (cache == null) {
+            return;
+        }
+        try {
+            cache.put(key, translation);
+        } catch (IOException e) {
+            Log.log("DeepL disk cache write failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Converts a raw DeepL result into the translation shown to the user.
+     *
+     * @param translation text returned by DeepL.
+     * @param source source text sent.
+     * @return the translation.
+     */
+    String postProcess(String translation, String source) {
+        return postProcessor.process(translation, source);
+    }
+
+    /**
+     * Converts a raw DeepL result, restoring the tags directly when they were
+     * sent as XML elements.
+     *
+     * @return the translation, or null when DeepL did not return the tag
+     *         elements intact.
+     */
+    private String postProcess(String translation, String source, XmlTagCodec.Encoded encoded) {
+        if (encoded != null) {
+            return XmlTagCodec.decode(translation, encoded);
+        }
+        return postProcess(translation, source);
+    }
+
+    /**
+     * Returns the shared client for the API key.
+     *
+     * @param apiKey the DeepL API key.
+     * @return the client, reused across translation requests.
+     */
+    DeepLClient getClient(String apiKey) {
+        return DeepLClientRegistry.getInstance().getClient(apiKey, getServerUrl(), getReadTimeout());
+    }
+
+    /**
+     * Returns the server to call: the URL given to the test constructor, else
+     * {@value #PROPERTY_SERVER_URL}, for instance a shared proxy of the team.
+     *
+     * @return the server URL, or null to choose the Free or Pro server from
+     *         the API key.
+     */
+    private String getServerUrl() {
+        if (deepLServerUrl != null) {
+            return deepLServerUrl;
+        }
+        String url = Preferences.getPreferenceDefault(PROPERTY_SERVER_URL, "").trim();
+        return url.isEmpty() ? null : url;
+    }
+
+    /**
+     * Returns the transport chosen by {@value #PROPERTY_TRANSPORT}. The client
+     * library is the default; the HTTP/2 transport is opt-in.
+     *
+     * @param apiKey the DeepL API key.
+     * @return the transport for translation requests.
+     */
+    DeepLTransport getTransport(String apiKey) {
+        String name = Preferences.getPreferenceDefault(PROPERTY_TRANSPORT, DeepLTransport.LIBRARY);
+        if (DeepLTransport.HTTP.equals(name)) {
+            HttpClient httpClient = DeepLClientRegistry.getInstance().getHttpClient(getConnectTimeout());
+            return new DeepLHttpTransport(httpClient, apiKey, getServerUrl(), getReadTimeout());
+        }
+        return new DeepLLibraryTransport(getClient(apiKey));
+    }
+
+    /**
+     * Returns the timeout for a DeepL response, {@value #PROPERTY_READ_TIMEOUT}.
+     * The client library applies a single timeout to connecting and reading,
+     * so it is given this one; the HTTP transport applies it to reading only.
+     */
+    static Duration getReadTimeout() {
+        return Duration.ofSeconds(
+                Math.max(1, Preferences.getPreferenceDefault(PROPERTY_READ_TIMEOUT, DEFAULT_READ_TIMEOUT)));
+    }
+
+    /**
+     * Returns the timeout for connecting to DeepL,
+     * {@value #PROPERTY_CONNECT_TIMEOUT}. It bounds the connections of the
+     * HTTP transport and the availability probes, which only need to know
+     * whether DeepL answers.
+     */
+    static Duration getConnectTimeout() {
+        return Duration.ofSeconds(
+                Math.max(1, Preferences.getPreferenceDefault(PROPERTY_CONNECT_TIMEOUT, DEFAULT_CONNECT_TIMEOUT)));
+    }
+
+    private CircuitBreaker getCircuitBreaker(String apiKey) {
+        int threshold = Preferences.getPreferenceDefault(PROPERTY_CIRCUIT_THRESHOLD, DEFAULT_CIRCUIT_THRESHOLD);
+        int probe = Preferences.getPreferenceDefault(PROPERTY_CIRCUIT_PROBE, DEFAULT_CIRCUIT_PROBE);
+        return DeepLClientRegistry.getInstance().getCircuitBreaker(apiKey, getServerUrl(), threshold, probe * 1000L);
+    }
+
+    /**
+     * Runs a DeepL call under the rate limit of the API key, retrying it while
+     * DeepL throttles it, until the request deadline. The call is recorded in
+     * the metrics. While the circuit breaker of the key is open, the call
+     * fails at once, and a connection failure is only retried as long as
+     * {@link CircuitBreaker#isRetryAllowed()}.
+     */
+    private <T> T callDeepL(
+            String apiKey, String sourceLang, String targetLang, long characters, RetryPolicy.DeepLCall<T> call)
+            throws DeepLException, InterruptedException {
+        int maxRate = Preferences.getPreferenceDefault(PROPERTY_RATE_LIMIT, DEFAULT_RATE_LIMIT);
+        int deadline = Preferences.getPreferenceDefault(PROPERTY_REQUEST_DEADLINE, DEFAULT_REQUEST_DEADLINE);
+        AdaptiveRateLimiter limiter = DeepLClientRegistry.getInstance().getRateLimiter(apiKey, maxRate);
+        RetryPolicy policy = new RetryPolicy(RETRY_BASE_DELAY_MILLIS, RETRY_MAX_DELAY_MILLIS, deadline * 1000L);
+        CircuitBreaker breaker = getCircuitBreaker(apiKey);
+        breaker.check();
+        DeepLMetrics metrics = DeepLMetrics.getInstance();
+        long start = metrics.requestStarted(characters);
+        try {
+            return policy.execute(limiter, breaker::isRetryAllowed, () -> {
+                breaker.check();
+                try {
+                    T result = call.call();
+                    breaker.onSuccess();
+                    return result;
+                } catch (ConnectionException | DeepLTransport.ServerErrorException e) {
+                    breaker.onConnectionFailure();
+                    throw e;
+                } catch (QuotaExceededException e) {
+                    KEY_RING.eject(apiKey, DeepLKeyRing.QUOTA_EJECTION_MINUTES);
+                    throw e;
+                } catch (AuthorizationException e) {
+                    KEY_RING.eject(apiKey, DeepLKeyRing.AUTH_EJECTION_MINUTES);
+                    throw e;
+                }
+            });
+        } finally {
+            metrics.requestFinished(sourceLang, targetLang, start);
         }
-        String tr = result.getText();
-        tr = BaseTranslate.unescapeHTML(tr);
-        return cleanSpacesAroundTags(tr, text);
     }
 
     private DeepLLanguage getDeepLLanguage() {
@@ -181,17 +1556,45 @@ public class DeepLTranslate2 extends BaseCachedTranslate {
         while (cause != null) {
             if (cause instanceof UnsupportedEncodingException) {
                 // DeepL client failed to bulid URL string.
-                return new MachineTranslateError(BUNDLE.getString("DEEPL_ENCODING_ERROR"), e);
+                DeepLMetrics.getInstance().recordError(DeepLMetrics.ErrorClass.ENCODING);
+                return new MachineTranslateError(getBundle().getString("DEEPL_ENCODING_ERROR"), e);
             }
             if (cause instanceof ConnectionException) {
                 // DeepL client failed to connect to the server.
-                return new MachineTranslateError(BUNDLE.getString("DEEPL_CONNECTION_ERROR"), e);
+                DeepLMetrics.getInstance().recordError(DeepLMetrics.ErrorClass.CONNECTION);
+                return new MachineTranslateError(getBundle().getString("DEEPL_CONNECTION_ERROR"), e);
+            }
+            if (cause instanceof QuotaExceededException) {
+                // HTTP 456: the character quota of the account is used up.
+                DeepLMetrics.getInstance().recordError(DeepLMetrics.ErrorClass.QUOTA);
+                return new MachineTranslateError(getBundle().getString("DEEPL_QUOTA_ERROR"), e);
+            }
+            if (cause instanceof TooManyRequestsException) {
+                // HTTP 429: still throttled when the retries ran out.
+                DeepLMetrics.getInstance().recordError(DeepLMetrics.ErrorClass.TOO_MANY_REQUESTS);
+                return new MachineTranslateError(getBundle().getString("DEEPL_TOO_MANY_REQUESTS_ERROR"), e);
+            }
+            if (cause instanceof CircuitBreaker.OpenException) {
+                // Too many connection failures in a row: fail fast until a probe succeeds.
+                DeepLMetrics.getInstance().recordError(DeepLMetrics.ErrorClass.UNAVAILABLE);
+                return new MachineTranslateError(getBundle().getString("DEEPL_UNAVAILABLE_ERROR"), e);
+            }
+            if (cause instanceof RetryPolicy.DeadlineExceededException) {
+                // Throttling kept the request waiting past its deadline.
+                DeepLMetrics.getInstance().recordError(DeepLMetrics.ErrorClass.DEADLINE);
+                return new MachineTranslateError(getBundle().getString("DEEPL_DEADLINE_ERROR"), e);
             }
             cause = cause.getCause();
         }
         // Unknown DeepL error.
+        DeepLMetrics.getInstance().recordError(DeepLMetrics.ErrorClass.GENERAL);
         return new MachineTranslateError(
-                MessageFormat.format(BUNDLE.getString("DEEPL_GENERAL_ERROR"), sourceLang, targetLang), e);
+                MessageFormat.format(getBundle().getString("DEEPL_GENERAL_ERROR"), sourceLang, targetLang), e);
+    }
+
+    private MachineTranslateError handleInterruption(InterruptedException e) {
+        DeepLMetrics.getInstance().recordError(DeepLMetrics.ErrorClass.INTERRUPTED);
+        return new MachineTranslateError(getBundle().getString("DEEPL_INTERRUPTION_ERROR"), e);
     }
 
     // Allow override for testing
@@ -217,11 +1620,19 @@ public class DeepLTranslate2 extends BaseCachedTranslate {
             protected void onConfirm() {
                 String key = panel.valueField1.getText().trim();
                 boolean temporary = panel.temporaryCheckBox.isSelected();
+                List<String> previousKeys = DeepLKeyRing.parse(getCredential(PROPERTY_API_KEY));
                 setCredential(PROPERTY_API_KEY, key, temporary);
+                List<String> keys = DeepLKeyRing.parse(key);
+                for (String previousKey : previousKeys) {
+                    if (!keys.contains(previousKey)) {
+                        DeepLClientRegistry.getInstance().invalidate(previousKey);
+                    }
+                }
+                KEY_RING.reset();
             }
         };
 
-        dialog.panel.valueLabel1.setText(BUNDLE.getString("MT_ENGINE_DEEPL_API_KEY_LABEL"));
+        dialog.panel.valueLabel1.setText(getBundle().getString("MT_ENGINE_DEEPL_API_KEY_LABEL"));
         dialog.panel.valueField1.setText(getCredential(PROPERTY_API_KEY));
 
         dialog.panel.valueLabel2.setVisible(false);
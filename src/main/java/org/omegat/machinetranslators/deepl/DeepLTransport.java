@@ -0,0 +1,115 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.omegat.machinetranslators.deepl;
+
+import com.deepl.api.DeepLException;
+import com.deepl.api.TextTranslationOptions;
+import java.util.List;
+
+/**
+ * Sends translation requests to DeepL.
+ * <p>
+ * Two transports exist: {@link DeepLLibraryTransport} goes through the
+ * deepl-java client and is the default, and {@link DeepLHttpTransport}, which
+ * is opt-in, talks to the API over the JDK HTTP client with HTTP/2 and a
+ * shared connection pool. Both
+ * report failures with the exception types of the client library, plus
+ * {@link ServerErrorException} for 5xx responses, so retry, circuit breaker
+ * and error handling work the same with either.
+ *
+ * @author Hiroshi Miura
+ */
+interface DeepLTransport {
+
+    /**
+     * Name of the HTTP/2 transport in {@value DeepLTranslate2#PROPERTY_TRANSPORT}.
+     */
+    String HTTP = "http";
+
+    /**
+     * Name of the client library transport in
+     * {@value DeepLTranslate2#PROPERTY_TRANSPORT}.
+     */
+    String LIBRARY = "library";
+
+    /**
+     * Translates the texts in one request.
+     *
+     * @param texts texts to translate.
+     * @param sourceLang DeepL source language code.
+     * @param targetLang DeepL target language code.
+     * @param options translation options.
+     * @return one result per text, in order.
+     * @throws DeepLException when DeepL reports an error or cannot be reached.
+     * @throws InterruptedException when interrupted while waiting.
+     */
+    List<Result> translate(List<String> texts, String sourceLang, String targetLang, TextTranslationOptions options)
+            throws DeepLException, InterruptedException;
+
+    /**
+     * A 5xx response: DeepL had a transient failure and the request may be
+     * sent again.
+     */
+    final class ServerErrorException extends DeepLException {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        ServerErrorException(String message, int status, Throwable cause) {
+            super(message, cause);
+            this.status = status;
+        }
+
+        /**
+         * @return the HTTP status, or -1 when the client library did not
+         *         tell it.
+         */
+        int getStatus() {
+            return status;
+        }
+    }
+
+    /**
+     * Translation of one text.
+     */
+    final class Result {
+        private final String text;
+        private final int billedCharacters;
+
+        Result(String text, int billedCharacters) {
+            this.text = text;
+            this.billedCharacters = billedCharacters;
+        }
+
+        String getText() {
+            return text;
+        }
+
+        int getBilledCharacters() {
+            return billedCharacters;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package org.omegat.machinetranslators.deepl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import org.omegat.core.CoreEvents;
+import org.omegat.core.data.SourceTextEntry;
+import org.omegat.core.events.IEntryEventListener;
+
+/**
+ * Cancels the interactive requests of the segment the user leaves.
+ * <p>
+ * OmegaT asks the engines for the source text of the active entry. When
+ * another entry is activated, the requests still pending for the source
+ * text of the entry left behind are cancelled, so that they stop waiting for
+ * the rate limit and are not retried. Requests for any other text, such as
+ * those of scripts or of other callers, are left alone.
+ * <p>
+ * One listener serves all engine instances. It is registered when the first
+ * request is tracked and removed when the plugin is unloaded.
+ *
+ * @author Hiroshi Miura
+ */
+final class InteractiveRequests implements IEntryEventListener {
+
+    private static InteractiveRequests instance;
+
+    private final Map<String, List<Future<?>>> pending = new HashMap<>();
+    private String activeText;
+
+    private InteractiveRequests() {}
+
+    /**
+     * Returns the shared instance, registering it for entry events on first
+     * use.
+     */
+    static synchronized InteractiveRequests getInstance() {
+        if (instance == null) {
+            instance = new InteractiveRequests();
+            CoreEvents.registerEntryEventListener(instance);
+        }
+        return instance;
+    }
+
+    /**
+     * Stops listening for entry events.
+     */
+    static synchronized void shutdown() {
+        if (instance != null) {
+            CoreEvents.unregisterEntryEventListener(instance);
+            instance = null;
+        }
+    }
+
+    /**
+     * Tracks a request until it completes.
+     *
+     * @param text source text of the request.
+     * @param request the pending request.
+     */
+    synchronized void add(String text, Future<?> request) {
+        pending.computeIfAbsent(text, t -> new ArrayList<>()).add(request);
+    }
+
+    /**
+     * Stops tracking a completed request.
+     */
+    synchronized void remove(String text, Future<?> request) {
+        List<Future<?>> requests = pending.get(text);
+        if (requests != null && requests.remove(request) && requests.isEmpty()) {
+            pending.remove(text);
+        }
+    }
+
+    @Override
+    public void onNewFile(String activeFileName) {}
+
+    @Override
+    public void onEntryActivated(SourceTextEntry newEntry) {
+        activate(newEntry == null ? null : newEntry.getSrcText());
+    }
+
+    /**
+     * Cancels the requests of the previous active text, unless it is the
+     * same as the new one.
+     *
+     * @param text source text of the entry activated, or null.
+     */
+    void activate(String text) {
+        List<Future<?>> stale = Collections.emptyList();
+        synchronized (this) {
+            if (activeText != null && !activeText.equals(text)) {
+                stale = pending.remove(activeText);
+            }
+            activeText = text;
+        }
+        if (stale != null) {
+            stale.forEach(request -> request.cancel(true));
+        }
+    }
+}
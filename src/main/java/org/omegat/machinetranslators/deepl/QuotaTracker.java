@@ -0,0 +1,157 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.omegat.machinetranslators.deepl;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local account of the characters billed to one API key.
+ * <p>
+ * Every response adds its {@code billed_characters} to a running counter.
+ * The counter is reconciled with the usage reported by DeepL from time to
+ * time, and in between the remaining quota is estimated from the last
+ * reported usage and the characters billed since. Background work asks
+ * {@link #allowBackground(long, double)} before sending, so that it stops
+ * before the quota is exhausted and leaves the rest for interactive lookups.
+ * When the usage query fails, it is not repeated before the sync interval has
+ * passed.
+ *
+ * @author Hiroshi Miura
+ */
+final class QuotaTracker {
+
+    private static final long SYNC_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(5);
+    private static final int SYNC_FRACTION = 10;
+
+    private final AtomicLong totalBilled = new AtomicLong();
+    private final AtomicLong billedSinceSync = new AtomicLong();
+    private final AtomicBoolean syncing = new AtomicBoolean();
+    private volatile long reportedCount = -1;
+    private volatile long reportedLimit = -1;
+    private volatile long lastSync;
+    private volatile long lastFailure;
+    private volatile boolean failed;
+
+    /**
+     * Adds billed characters reported by a translation response.
+     *
+     * @param characters billed characters.
+     */
+    void recordBilled(long characters) {
+        totalBilled.addAndGet(characters);
+        billedSinceSync.addAndGet(characters);
+    }
+
+    /**
+     * @return characters billed through this tracker since it was created.
+     */
+    long getBilledCharacters() {
+        return totalBilled.get();
+    }
+
+    /**
+     * Tells whether the local estimate should be reconciled with DeepL: when
+     * no usage was reported yet, when the last report is old, or when the
+     * characters billed since exceed a tenth of the remaining quota. After a
+     * failed query, not before the sync interval has passed.
+     *
+     * @return true when usage should be fetched.
+     */
+    boolean needsSync() {
+        if (failed && System.nanoTime() - lastFailure < SYNC_INTERVAL_NANOS) {
+            return false;
+        }
+        if (reportedLimit < 0 || System.nanoTime() - lastSync > SYNC_INTERVAL_NANOS) {
+            return true;
+        }
+        long remaining = reportedLimit - reportedCount;
+        return billedSinceSync.get() * SYNC_FRACTION > remaining;
+    }
+
+    /**
+     * Claims a usage query made in the background, so that only one runs at
+     * a time.
+     *
+     * @return false when another query is running.
+     */
+    boolean startSync() {
+        return syncing.compareAndSet(false, true);
+    }
+
+    void endSync() {
+        syncing.set(false);
+    }
+
+    /**
+     * Records the usage reported by DeepL.
+     *
+     * @param count characters used in the current billing period.
+     * @param limit character limit, or 0 or less when there is none.
+     */
+    synchronized void update(long count, long limit) {
+        reportedCount = count;
+        reportedLimit = limit > 0 ? limit : Long.MAX_VALUE;
+        billedSinceSync.set(0);
+        lastSync = System.nanoTime();
+        failed = false;
+    }
+
+    /**
+     * Records a failed usage query, so that the next one waits for the sync
+     * interval.
+     */
+    void syncFailed() {
+        lastFailure = System.nanoTime();
+        failed = true;
+    }
+
+    /**
+     * @return estimated remaining characters, or -1 when unknown.
+     */
+    long getEstimatedRemaining() {
+        if (reportedLimit < 0) {
+            return -1;
+        }
+        return Math.max(0, reportedLimit - reportedCount - billedSinceSync.get());
+    }
+
+    /**
+     * Tells whether background work may send more characters.
+     *
+     * @param characters characters about to be sent.
+     * @param reserveRatio fraction of the limit kept for interactive lookups.
+     * @return false when the work would eat into the reserve.
+     */
+    boolean allowBackground(long characters, double reserveRatio) {
+        long limit = reportedLimit;
+        if (limit < 0 || limit == Long.MAX_VALUE) {
+            return true;
+        }
+        long reserve = (long) (limit * reserveRatio);
+        return getEstimatedRemaining() - characters > reserve;
+    }
+}
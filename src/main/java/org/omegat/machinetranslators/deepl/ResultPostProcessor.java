@@ -0,0 +1,281 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package org.omegat.machinetranslators.deepl;
+
+import java.util.function.BinaryOperator;
+
+/**
+ * Turns a raw DeepL result into the translation shown to the user: HTML
+ * entities are unescaped and the spaces DeepL adds around OmegaT tags are
+ * removed, as {@code BaseTranslate.unescapeHTML} followed by
+ * {@code BaseTranslate.cleanSpacesAroundTags} does.
+ * <p>
+ * Instead of a chain of string replacements and regular expression loops,
+ * the result is decoded into a per-thread buffer and the buffer is compacted
+ * in place in one walk. A result that needs no change is returned as it is.
+ * The chain's outcome depends on the order of its replacements when a run of
+ * several whitespace characters touches a tag; such rare results are passed
+ * to the upstream implementation instead.
+ *
+ * @author Hiroshi Miura
+ */
+final class ResultPostProcessor {
+
+    /** Buffers above this capacity are not kept for the next result. */
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(StringBuilder::new);
+
+    private final BinaryOperator<String> upstream;
+
+    /**
+     * @param upstream upstream tag clean-up, taking the translation and the
+     *            source, used for the results the single walk cannot handle.
+     */
+    ResultPostProcessor(BinaryOperator<String> upstream) {
+        this.upstream = upstream;
+    }
+
+    /**
+     * Unescapes HTML entities and cleans the spaces around tags.
+     *
+     * @param translation text returned by DeepL.
+     * @param source source text sent.
+     * @return the translation.
+     */
+    String process(String translation, String source) {
+        return run(translation, source, true);
+    }
+
+    /**
+     * Cleans the spaces around tags only.
+     *
+     * @param translation translated text.
+     * @param source source text.
+     * @return the translation.
+     */
+    String cleanSpacesAroundTags(String translation, String source) {
+        return run(translation, source, false);
+    }
+
+    private String run(String translation, String source, boolean unescape) {
+        StringBuilder buffer = BUFFER.get();
+        buffer.setLength(0);
+        boolean changed = unescape ? decode(translation, buffer) : append(translation, buffer);
+        int length = buffer.length();
+        int written = 0;
+        // Index of the whitespace after the last tag, and whether it goes.
+        int spaceAfterTag = -1;
+        boolean dropAfterTag = false;
+        boolean previousSpace = false;
+        for (int i = 0; i < length; i++) {
+            char c = buffer.charAt(i);
+            if (isSpace(c)) {
+                int nextTagEnd = tagEnd(buffer, i + 1, length);
+                if (nextTagEnd > 0 && previousSpace) {
+                    return fallback(translation, source, unescape);
+                }
+                boolean drop = i == spaceAfterTag && dropAfterTag;
+                if (!drop && nextTagEnd > 0) {
+                    drop = !contains(source, buffer, i, nextTagEnd);
+                }
+                if (drop) {
+                    changed = true;
+                } else {
+                    buffer.setCharAt(written++, c);
+                }
+                previousSpace = true;
+                continue;
+            }
+            if (c == '<') {
+                int end = tagEnd(buffer, i, length);
+                if (end > 0 && end < length && isSpace(buffer.charAt(end))) {
+                    if (end + 1 < length && isSpace(buffer.charAt(end + 1))) {
+                        return fallback(translation, source, unescape);
+                    }
+                    spaceAfterTag = end;
+                    dropAfterTag = !contains(source, buffer, i, end + 1);
+                }
+            }
+            buffer.setCharAt(written++, c);
+            previousSpace = false;
+        }
+        if (!changed) {
+            release(buffer);
+            return translation;
+        }
+        buffer.setLength(written);
+        String result = buffer.toString();
+        release(buffer);
+        return result;
+    }
+
+    private String fallback(String translation, String source, boolean unescape) {
+        StringBuilder buffer = BUFFER.get();
+        buffer.setLength(0);
+        String text = translation;
+        if (unescape && decode(translation, buffer)) {
+            text = buffer.toString();
+        }
+        release(buffer);
+        return upstream.apply(text, source);
+    }
+
+    private static boolean append(String text, StringBuilder buffer) {
+        buffer.append(text);
+        return false;
+    }
+
+    /**
+     * Decodes the entities known to {@code BaseTranslate.unescapeHTML} in the
+     * same way as its replacements in sequence; {@code &amp;#39;} thus
+     * becomes an apostrophe.
+     *
+     * @return true when an entity was decoded.
+     */
+    private static boolean decode(String text, StringBuilder buffer) {
+        int start = text.indexOf('&');
+        if (start < 0) {
+            buffer.append(text);
+            return false;
+        }
+        buffer.append(text, 0, start);
+        boolean changed = false;
+        int length = text.length();
+        int i = start;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (c != '&') {
+                buffer.append(c);
+                i++;
+            } else if (text.startsWith("&quot;", i)) {
+                buffer.append('"');
+                i += 6;
+                changed = true;
+            } else if (text.startsWith("&nbsp;", i)) {
+                buffer.append(' ');
+                i += 6;
+                changed = true;
+            } else if (text.startsWith("&lt;", i)) {
+                buffer.append('<');
+                i += 4;
+                changed = true;
+            } else if (text.startsWith("&gt;", i)) {
+                buffer.append('>');
+                i += 4;
+                changed = true;
+            } else if (text.startsWith("&amp;#39;", i)) {
+                buffer.append('\'');
+                i += 9;
+                changed = true;
+            } else if (text.startsWith("&amp;", i)) {
+                buffer.append('&');
+                i += 5;
+                changed = true;
+            } else if (text.startsWith("&#39;", i)) {
+                buffer.append('\'');
+                i += 5;
+                changed = true;
+            } else {
+                buffer.append(c);
+                i++;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Matches an OmegaT tag such as {@code <b0>}, {@code </b0>} or
+     * {@code <x1/>}.
+     *
+     * @return index just past the tag starting at start, or -1.
+     */
+    private static int tagEnd(CharSequence text, int start, int length) {
+        int i = start;
+        if (i >= length || text.charAt(i) != '<') {
+            return -1;
+        }
+        i++;
+        if (i < length && text.charAt(i) == '/') {
+            i++;
+        }
+        int letters = i;
+        while (i < length && isAsciiLetter(text.charAt(i))) {
+            i++;
+        }
+        int digits = i;
+        while (i < length && text.charAt(i) >= '0' && text.charAt(i) <= '9') {
+            i++;
+        }
+        if (letters == digits || digits == i) {
+            return -1;
+        }
+        if (i < length && text.charAt(i) == '/') {
+            i++;
+        }
+        return i < length && text.charAt(i) == '>' ? i + 1 : -1;
+    }
+
+    /**
+     * @return whether source contains the characters of text between from
+     *         and to.
+     */
+    private static boolean contains(String source, CharSequence text, int from, int to) {
+        int count = to - from;
+        char first = text.charAt(from);
+        int last = source.length() - count;
+        for (int i = source.indexOf(first); i >= 0 && i <= last; i = source.indexOf(first, i + 1)) {
+            int j = 1;
+            while (j < count && source.charAt(i + j) == text.charAt(from + j)) {
+                j++;
+            }
+            if (j == count) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    /**
+     * Whitespace as matched by {@code \s} in a Java regular expression.
+     */
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static void release(StringBuilder buffer) {
+        if (buffer.capacity() > MAX_RETAINED_CAPACITY) {
+            BUFFER.remove();
+        } else {
+            buffer.setLength(0);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.omegat.machinetranslators.deepl;
+
+import com.deepl.api.ConnectionException;
+import com.deepl.api.DeepLException;
+import com.deepl.api.TooManyRequestsException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Runs DeepL calls through an {@link AdaptiveRateLimiter}, retrying throttled
+ * calls, calls which could not connect and calls which got a 5xx response,
+ * with jittered exponential backoff until a per-call deadline.
+ * <p>
+ * The client library's own retries are disabled in
+ * {@link DeepLClientRegistry}, so that throttling is seen here and fed back to
+ * the limiter.
+ *
+ * @author Hiroshi Miura
+ */
+final class RetryPolicy {
+
+    /**
+     * A call to the DeepL API.
+     *
+     * @param <T> result type.
+     */
+    @FunctionalInterface
+    interface DeepLCall<T> {
+        T call() throws DeepLException, InterruptedException;
+    }
+
+    /**
+     * Thrown when a call could not complete before its deadline.
+     */
+    static final class DeadlineExceededException extends DeepLException {
+        private static final long serialVersionUID = 1L;
+
+        DeadlineExceededException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    private final long baseDelayNanos;
+    private final long maxDelayNanos;
+    private final long deadlineNanos;
+
+    /**
+     * @param baseDelayMillis delay before the first retry.
+     * @param maxDelayMillis upper bound of a single backoff delay.
+     * @param deadlineMillis time budget of one call, retries included.
+     */
+    RetryPolicy(long baseDelayMillis, long maxDelayMillis, long deadlineMillis) {
+        baseDelayNanos = TimeUnit.MILLISECONDS.toNanos(baseDelayMillis);
+        maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        deadlineNanos = TimeUnit.MILLISECONDS.toNanos(deadlineMillis);
+    }
+
+    /**
+     * Runs the call, retrying it while it is throttled, cannot connect or
+     * gets a server error.
+     *
+     * @param limiter the rate limiter of the API key.
+     * @param call the call.
+     * @return the call result.
+     * @throws DeepLException the last error, or a
+     *             {@link DeadlineExceededException} when the deadline passed.
+     * @throws InterruptedException when interrupted while waiting.
+     */
+    <T> T execute(AdaptiveRateLimiter limiter, DeepLCall<T> call) throws DeepLException, InterruptedException {
+        return execute(limiter, () -> true, call);
+    }
+
+    /**
+     * Runs the call, retrying it while it is throttled, and while it cannot
+     * connect or gets a server error as long as the caller allows it.
+     *
+     * @param limiter the rate limiter of the API key.
+     * @param retryConnection tells, after a connection failure or server
+     *            error, whether to try again.
+     * @param call the call.
+     * @return the call result.
+     * @throws DeepLException the last error, or a
+     *             {@link DeadlineExceededException} when the deadline passed.
+     * @throws InterruptedException when interrupted while waiting.
+     */
+    <T> T execute(AdaptiveRateLimiter limiter, BooleanSupplier retryConnection, DeepLCall<T> call)
+            throws DeepLException, InterruptedException {
+        long deadline = System.nanoTime() + deadlineNanos;
+        DeepLException last = null;
+        for (int attempt = 0; ; attempt++) {
+            if (!limiter.acquire(deadline)) {
+                throw new DeadlineExceededException("DeepL request deadline exceeded", last);
+            }
+            try {
+                T result = call.call();
+                limiter.onSuccess();
+                return result;
+            } catch (TooManyRequestsException | ConnectionException | DeepLTransport.ServerErrorException e) {
+                last = e;
+                long retryAfter = getRetryAfterNanos(e);
+                if (e instanceof TooManyRequestsException) {
+                    limiter.onThrottled(retryAfter);
+                } else if (!retryConnection.getAsBoolean()) {
+                    throw e;
+                }
+                long delay = Math.max(retryAfter, backoff(attempt));
+                if (System.nanoTime() + delay - deadline > 0) {
+                    throw e;
+                }
+                TimeUnit.NANOSECONDS.sleep(delay);
+            }
+        }
+    }
+
+    /**
+     * Returns the exponential backoff for the attempt with "equal jitter":
+     * half of the delay is fixed and the other half random.
+     */
+    long backoff(int attempt) {
+        long delay = baseDelayNanos << Math.min(attempt, 20);
+        if (delay <= 0 || delay > maxDelayNanos) {
+            delay = maxDelayNanos;
+        }
+        long half = delay / 2;
+        return half + ThreadLocalRandom.current().nextLong(half + 1);
+    }
+
+    /**
+     * Returns the delay the server asked for in a Retry-After header. Only
+     * the HTTP transport reads it; the client library does not expose
+     * response headers, so no delay is known for its exceptions.
+     */
+    private static long getRetryAfterNanos(DeepLException e) {
+        if (e instanceof DeepLHttpTransport.ThrottledException) {
+            return ((DeepLHttpTransport.ThrottledException) e).getRetryAfterNanos();
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.omegat.machinetranslators.deepl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A segment with its variable tokens masked, so that segments which differ
+ * only in numbers, URLs, OmegaT tags or message placeholders share one
+ * translation.
+ * <p>
+ * Every token is replaced by a placeholder {@code {N}}, numbered in order of
+ * appearance. The translation of the template is mapped back by putting the
+ * original tokens in place of the placeholders, wherever the translation
+ * moved them. The mapping fails when a placeholder is lost or repeated.
+ *
+ * @author Hiroshi Miura
+ */
+final class SegmentTemplate {
+
+    /**
+     * Variable tokens: message placeholders, OmegaT tags, URLs and stand-alone
+     * numbers. Numbers glued to letters, as in "MP3" or "2nd", are kept.
+     */
+    private static final Pattern VARIABLE = Pattern.compile("\\{\\d+}"
+            + "|</?[A-Za-z]+\\d+/?>"
+            + "|(?:https?|ftp)://[^\\s<>\"]+"
+            + "|(?<![\\p{L}\\d])\\d+(?:[.,]\\d+)*(?![\\p{L}\\d])");
+
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{(\\d+)}");
+
+    /**
+     * Characters which end a sentence rather than a URL.
+     */
+    private static final String URL_TRAILER = ".,;:!?)]'";
+
+    private final String source;
+    private final String template;
+    private final List<String> values;
+
+    private SegmentTemplate(String source, String template, List<String> values) {
+        this.source = source;
+        this.template = template;
+        this.values = values;
+    }
+
+    /**
+     * Masks the variable tokens of the text.
+     *
+     * @param text source text.
+     * @return the template, or null when the text has no variable token.
+     */
+    static SegmentTemplate of(String text) {
+        Matcher m = VARIABLE.matcher(text);
+        List<String> values = new ArrayList<>();
+        StringBuilder sb = new StringBuilder(text.length());
+        int last = 0;
+        while (last < text.length() && m.find(last)) {
+            int end = m.end();
+            if (m.group().contains("://")) {
+                while (URL_TRAILER.indexOf(text.charAt(end - 1)) >= 0) {
+                    end--;
+                }
+            }
+            sb.append(text, last, m.start()).append('{').append(values.size()).append('}');
+            values.add(text.substring(m.start(), end));
+            last = end;
+        }
+        if (values.isEmpty()) {
+            return null;
+        }
+        sb.append(text, last, text.length());
+        return new SegmentTemplate(text, sb.toString(), Collections.unmodifiableList(values));
+    }
+
+    String getSource() {
+        return source;
+    }
+
+    String getTemplate() {
+        return template;
+    }
+
+    List<String> getValues() {
+        return values;
+    }
+
+    /**
+     * Puts the original tokens into the translation of the template.
+     *
+     * @param translation translation of {@link #getTemplate()}.
+     * @return the translation of the source, or null when the placeholders
+     *         of the translation do not match the tokens one to one.
+     */
+    String apply(String translation) {
+        if (translation == null) {
+            return null;
+        }
+        boolean[] used = new boolean[values.size()];
+        Matcher m = PLACEHOLDER.matcher(translation);
+        StringBuilder sb = new StringBuilder(translation.length() + source.length());
+        int last = 0;
+        while (m.find()) {
+            int index;
+            try {
+                index = Integer.parseInt(m.group(1));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            if (index >= values.size() || used[index]) {
+                return null;
+            }
+            used[index] = true;
+            sb.append(translation, last, m.start()).append(values.get(index));
+            last = m.end();
+        }
+        for (boolean u : used) {
+            if (!u) {
+                return null;
+            }
+        }
+        sb.append(translation, last, translation.length());
+        return sb.toString();
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.omegat.machinetranslators.deepl;
+
+import java.text.BreakIterator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Splits a paragraph into sentences, so that each sentence can be cached
+ * and translated on its own.
+ * <p>
+ * Sentence boundaries come from the JDK {@link BreakIterator} for the source
+ * locale. The whitespace between sentences is kept aside and put back when
+ * the translations are joined.
+ *
+ * @author Hiroshi Miura
+ */
+final class SentenceSplitter {
+
+    /**
+     * A paragraph split into sentences and the whitespace around them.
+     */
+    static final class Split {
+        private final List<String> sentences;
+        private final List<String> gaps;
+
+        private Split(List<String> sentences, List<String> gaps) {
+            this.sentences = Collections.unmodifiableList(sentences);
+            this.gaps = gaps;
+        }
+
+        /**
+         * @return the sentences, without surrounding whitespace.
+         */
+        List<String> getSentences() {
+            return sentences;
+        }
+
+        /**
+         * Joins translations of the sentences with the original whitespace.
+         *
+         * @param translations one translation per sentence, in order.
+         * @return the translated paragraph.
+         */
+        String join(List<String> translations) {
+            StringBuilder sb = new StringBuilder(gaps.get(0));
+            for (int i = 0; i < sentences.size(); i++) {
+                sb.append(translations.get(i)).append(gaps.get(i + 1));
+            }
+            return sb.toString();
+        }
+    }
+
+    private SentenceSplitter() {}
+
+    /**
+     * Splits the text into sentences.
+     *
+     * @param text the paragraph.
+     * @param locale the source locale, or null for the root locale.
+     * @return the split, or null when the text holds less than two
+     *         sentences.
+     */
+    static Split split(String text, Locale locale) {
+        BreakIterator iterator = BreakIterator.getSentenceInstance(locale == null ? Locale.ROOT : locale);
+        iterator.setText(text);
+        List<String> sentences = new ArrayList<>();
+        List<String> gaps = new ArrayList<>();
+        StringBuilder gap = new StringBuilder();
+        int start = iterator.first();
+        for (int end = iterator.next(); end != BreakIterator.DONE; start = end, end = iterator.next()) {
+            int from = start;
+            int to = end;
+            while (from < to && Character.isWhitespace(text.charAt(from))) {
+                from++;
+            }
+            while (to > from && Character.isWhitespace(text.charAt(to - 1))) {
+                to--;
+            }
+            gap.append(text, start, from);
+            if (from < to) {
+                gaps.add(gap.toString());
+                gap.setLength(0);
+                sentences.add(text.substring(from, to));
+            }
+            gap.append(text, to, end);
+        }
+        if (sentences.size() < 2) {
+            return null;
+        }
+        gaps.add(gap.toString());
+        return new Split(sentences, gaps);
+    }
+}
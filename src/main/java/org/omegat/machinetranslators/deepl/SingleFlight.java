@@ -0,0 +1,140 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.omegat.machinetranslators.deepl;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import org.omegat.core.machinetranslators.MachineTranslateError;
+
+/**
+ * Coalesces concurrent calls for the same key into one execution.
+ * <p>
+ * The first caller for a key runs the call; callers arriving while it is in
+ * flight wait for it and receive the same result or the same error. The key
+ * is released as soon as the call completes, so later callers run it again.
+ * <p>
+ * When the first caller is interrupted, for instance because its request was
+ * cancelled, the interruption is its own: the callers waiting for it run the
+ * call again, one of them taking the lead.
+ *
+ * @param <K> key type.
+ * @param <V> result type.
+ * @author Hiroshi Miura
+ */
+final class SingleFlight<K, V> {
+
+    /**
+     * A call which may fail with a translation error.
+     *
+     * @param <V> result type.
+     */
+    @FunctionalInterface
+    interface Call<V> {
+        V call() throws MachineTranslateError;
+    }
+
+    /**
+     * Completes the shared future when its caller was interrupted, telling
+     * the waiting callers to run the call themselves.
+     */
+    private static final class Abandoned extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        Abandoned() {
+            super(null, null, false, false);
+        }
+    }
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Runs the call, or joins the call already running for the key.
+     *
+     * @param key the key identifying equivalent calls.
+     * @param call the call to run.
+     * @return the result of the shared call.
+     * @throws MachineTranslateError when the shared call failed.
+     * @throws InterruptedException when interrupted while waiting for another
+     *             caller's call.
+     */
+    V execute(K key, Call<V> call) throws MachineTranslateError, InterruptedException {
+        while (true) {
+            CompletableFuture<V> future = new CompletableFuture<>();
+            CompletableFuture<V> running = inFlight.putIfAbsent(key, future);
+            if (running == null) {
+                return lead(key, future, call);
+            }
+            try {
+                return await(running);
+            } catch (Abandoned e) {
+                // The leader was interrupted: try again.
+            }
+        }
+    }
+
+    private V lead(K key, CompletableFuture<V> future, Call<V> call) throws MachineTranslateError {
+        try {
+            V result = call.call();
+            inFlight.remove(key, future);
+            future.complete(result);
+            return result;
+        } catch (MachineTranslateError | RuntimeException e) {
+            inFlight.remove(key, future);
+            future.completeExceptionally(isInterruption(e) ? new Abandoned() : e);
+            throw e;
+        }
+    }
+
+    private static boolean isInterruption(Exception e) {
+        return Thread.currentThread().isInterrupted() || e.getCause() instanceof InterruptedException;
+    }
+
+    private V await(CompletableFuture<V> running) throws MachineTranslateError, InterruptedException {
+        try {
+            return running.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Abandoned) {
+                throw (Abandoned) cause;
+            }
+            if (cause instanceof MachineTranslateError) {
+                throw (MachineTranslateError) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * @return number of calls currently in flight.
+     */
+    int inFlightCount() {
+        return inFlight.size();
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.omegat.machinetranslators.deepl;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Identifies one translation request: DeepL language codes, the translation
+ * options that change the result, and the source text.
+ *
+ * @author Hiroshi Miura
+ */
+final class TranslationKey {
+
+    private static final char SEPARATOR = '\u0000';
+
+    private final String sourceLang;
+    private final String targetLang;
+    private final String options;
+    private final String text;
+    private final int hash;
+
+    /**
+     * @param sourceLang DeepL source language code.
+     * @param targetLang DeepL target language code.
+     * @param options fingerprint of the translation options.
+     * @param text source text.
+     */
+    TranslationKey(String sourceLang, String targetLang, String options, String text) {
+        this.sourceLang = sourceLang;
+        this.targetLang = targetLang;
+        this.options = options;
+        this.text = text;
+        int h = sourceLang.hashCode();
+        h = 31 * h + targetLang.hashCode();
+        h = 31 * h + options.hashCode();
+        hash = 31 * h + text.hashCode();
+    }
+
+    String getSourceLang() {
+        return sourceLang;
+    }
+
+    String getTargetLang() {
+        return targetLang;
+    }
+
+    String getOptions() {
+        return options;
+    }
+
+    String getText() {
+        return text;
+    }
+
+    /**
+     * Returns the serialized form of the key, as stored by persistent caches.
+     *
+     * @return UTF-8 bytes of the key.
+     */
+    byte[] toBytes() {
+        String encoded = sourceLang + SEPARATOR + targetLang + SEPARATOR + options + SEPARATOR + text;
+        return encoded.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TranslationKey)) {
+            return false;
+        }
+        TranslationKey that = (TranslationKey) o;
+        return hash == that.hash
+                && text.equals(that.text)
+                && sourceLang.equals(that.sourceLang)
+                && targetLang.equals(that.targetLang)
+                && options.equals(that.options);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return sourceLang + "->" + targetLang + " [" + options + "] " + text;
+    }
+}
@@ -0,0 +1,312 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package org.omegat.machinetranslators.deepl;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Converts OmegaT tags to XML elements for DeepL's {@code tag_handling=xml}
+ * mode, and back.
+ * <p>
+ * A pair of OmegaT tags such as {@code <b0>...</b0>} becomes an element
+ * {@code <t i="N">...</t>}, so that DeepL sees which words the pair encloses;
+ * a standalone tag such as {@code <x1/>}, and a tag whose partner is missing
+ * or crosses another pair, becomes an empty element {@code <t i="N"/>}. N is
+ * the position of the tag in the source, and the rest of the text is escaped.
+ * DeepL then moves the elements with the words they belong to, and does not
+ * bill them as text.
+ *
+ * @author Hiroshi Miura
+ */
+final class XmlTagCodec {
+
+    private static final String ELEMENT_START = "<t i=\"";
+    private static final String EMPTY_ELEMENT_END = "\"/>";
+    private static final String START_TAG_END = "\">";
+    private static final String END_TAG = "</t>";
+
+    private XmlTagCodec() {}
+
+    /**
+     * Source text prepared for DeepL, with the tags it replaced.
+     */
+    static final class Encoded {
+        private final String xml;
+        private final List<String> tags;
+        private final int[] ends;
+
+        Encoded(String xml, List<String> tags, int[] ends) {
+            this.xml = xml;
+            this.tags = tags;
+            this.ends = ends;
+        }
+
+        String getXml() {
+            return xml;
+        }
+
+        List<String> getTags() {
+            return tags;
+        }
+
+        /**
+         * @return the position of the end tag closing the start tag at the
+         *         position, or -1 when the tag is sent as an empty element.
+         */
+        int getEnd(int index) {
+            return ends[index];
+        }
+    }
+
+    /**
+     * Encodes the OmegaT tags of a source text as XML elements.
+     *
+     * @param text source text.
+     * @return the XML text to send and the tags it replaced.
+     */
+    static Encoded encode(String text) {
+        List<String> tags = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        int length = text.length();
+        for (int i = text.indexOf('<'); i >= 0; i = text.indexOf('<', i + 1)) {
+            int end = omegatTagEnd(text, i);
+            if (end > 0) {
+                positions.add(i);
+                tags.add(text.substring(i, end));
+                i = end - 1;
+            }
+        }
+        int[] ends = pair(tags);
+        boolean[] closing = new boolean[tags.size()];
+        for (int end : ends) {
+            if (end >= 0) {
+                closing[end] = true;
+            }
+        }
+        StringBuilder sb = new StringBuilder(text.length() + 16);
+        int tag = 0;
+        int i = 0;
+        while (i < length) {
+            if (tag < tags.size() && i == positions.get(tag)) {
+                if (closing[tag]) {
+                    sb.append(END_TAG);
+                } else {
+                    sb.append(ELEMENT_START).append(tag).append(ends[tag] >= 0 ? START_TAG_END : EMPTY_ELEMENT_END);
+                }
+                i += tags.get(tag).length();
+                tag++;
+                continue;
+            }
+            char c = text.charAt(i);
+            if (c == '<') {
+                sb.append("&lt;");
+            } else if (c == '>') {
+                sb.append("&gt;");
+            } else if (c == '&') {
+                sb.append("&amp;");
+            } else {
+                sb.append(c);
+            }
+            i++;
+        }
+        return new Encoded(sb.toString(), tags, ends);
+    }
+
+    /**
+     * Matches end tags with the start tags they close. Only properly nested
+     * pairs are matched, so that the elements sent are well-formed.
+     */
+    private static int[] pair(List<String> tags) {
+        int[] ends = new int[tags.size()];
+        Arrays.fill(ends, -1);
+        Deque<Integer> open = new ArrayDeque<>();
+        for (int i = 0; i < tags.size(); i++) {
+            String tag = tags.get(i);
+            if (tag.endsWith("/>")) {
+                continue;
+            }
+            if (tag.charAt(1) != '/') {
+                open.push(i);
+            } else if (!open.isEmpty() && tags.get(open.peek()).substring(1).equals(tag.substring(2))) {
+                ends[open.pop()] = i;
+            }
+        }
+        return ends;
+    }
+
+    /**
+     * Restores the OmegaT tags and unescapes the text of a DeepL result.
+     *
+     * @param xml text returned by DeepL.
+     * @param encoded the source as sent by {@link #encode(String)}.
+     * @return the translation with OmegaT tags, or null when DeepL dropped,
+     *         repeated or invented an element, or broke a pair.
+     */
+    static String decode(String xml, Encoded encoded) {
+        List<String> tags = encoded.getTags();
+        boolean[] seen = new boolean[tags.size()];
+        Deque<Integer> open = new ArrayDeque<>();
+        StringBuilder sb = new StringBuilder(xml.length() + 16);
+        int length = xml.length();
+        int i = 0;
+        while (i < length) {
+            char c = xml.charAt(i);
+            if (c == '<') {
+                if (xml.startsWith(END_TAG, i)) {
+                    if (open.isEmpty()) {
+                        return null;
+                    }
+                    int end = encoded.getEnd(open.pop());
+                    if (seen[end]) {
+                        return null;
+                    }
+                    seen[end] = true;
+                    sb.append(tags.get(end));
+                    i += END_TAG.length();
+                    continue;
+                }
+                if (!xml.startsWith(ELEMENT_START, i)) {
+                    return null;
+                }
+                int start = i + ELEMENT_START.length();
+                int j = start;
+                int index = 0;
+                while (j < length && j - start < 9 && Character.isDigit(xml.charAt(j))) {
+                    index = index * 10 + (xml.charAt(j) - '0');
+                    j++;
+                }
+                if (j == start || index >= tags.size() || seen[index]) {
+                    return null;
+                }
+                seen[index] = true;
+                boolean paired = encoded.getEnd(index) >= 0;
+                if (paired && xml.startsWith(START_TAG_END, j)) {
+                    open.push(index);
+                    i = j + START_TAG_END.length();
+                } else if (!paired && xml.startsWith(EMPTY_ELEMENT_END, j)) {
+                    i = j + EMPTY_ELEMENT_END.length();
+                } else {
+                    return null;
+                }
+                sb.append(tags.get(index));
+                continue;
+            } else if (c == '&') {
+                int semicolon = xml.indexOf(';', i + 1);
+                if (semicolon > 0 && semicolon - i <= 10) {
+                    int decoded = decodeEntity(xml, i + 1, semicolon);
+                    if (decoded >= 0) {
+                        sb.appendCodePoint(decoded);
+                        i = semicolon + 1;
+                        continue;
+                    }
+                }
+            }
+            sb.append(c);
+            i++;
+        }
+        if (!open.isEmpty()) {
+            return null;
+        }
+        for (boolean found : seen) {
+            if (!found) {
+                return null;
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns the end of the OmegaT tag starting at the position, or -1. OmegaT
+     * tags are letters followed by digits, as in {@code <b0>}, {@code </b0>}
+     * and {@code <x1/>}.
+     */
+    private static int omegatTagEnd(String text, int start) {
+        int length = text.length();
+        int i = start + 1;
+        if (i < length && text.charAt(i) == '/') {
+            i++;
+        }
+        int letters = i;
+        while (i < length && isAsciiLetter(text.charAt(i))) {
+            i++;
+        }
+        if (i == letters) {
+            return -1;
+        }
+        int digits = i;
+        while (i < length && text.charAt(i) >= '0' && text.charAt(i) <= '9') {
+            i++;
+        }
+        if (i == digits) {
+            return -1;
+        }
+        if (i < length && text.charAt(i) == '/') {
+            i++;
+        }
+        if (i < length && text.charAt(i) == '>') {
+            return i + 1;
+        }
+        return -1;
+    }
+
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static int decodeEntity(String xml, int start, int end) {
+        String name = xml.substring(start, end);
+        switch (name) {
+            case "amp":
+                return '&';
+            case "lt":
+                return '<';
+            case "gt":
+                return '>';
+            case "quot":
+                return '"';
+            case "apos":
+                return '\'';
+            default:
+                break;
+        }
+        if (name.length() > 1 && name.charAt(0) == '#') {
+            try {
+                int codePoint = name.charAt(1) == 'x' || name.charAt(1) == 'X'
+                        ? Integer.parseInt(name.substring(2), 16)
+                        : Integer.parseInt(name.substring(1));
+                return Character.isValidCodePoint(codePoint) ? codePoint : -1;
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+}
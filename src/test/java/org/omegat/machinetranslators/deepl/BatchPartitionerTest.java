@@ -0,0 +1,83 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.omegat.machinetranslators.deepl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class BatchPartitionerTest {
+
+    @Test
+    void testSplitByCount() {
+        List<String> texts = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            texts.add("segment " + i);
+        }
+        List<List<String>> batches =
+                BatchPartitioner.partition(texts, BatchPartitioner.MAX_TEXTS, BatchPartitioner.MAX_REQUEST_BYTES);
+        assertEquals(3, batches.size());
+        assertEquals(50, batches.get(0).size());
+        assertEquals(50, batches.get(1).size());
+        assertEquals(20, batches.get(2).size());
+        assertEquals("segment 0", batches.get(0).get(0));
+        assertEquals("segment 119", batches.get(2).get(19));
+    }
+
+    @Test
+    void testSplitBySize() {
+        String large = String.join("", Collections.nCopies(400, "a"));
+        List<String> texts = Collections.nCopies(10, large);
+        List<List<String>> batches = BatchPartitioner.partition(texts, BatchPartitioner.MAX_TEXTS, 1000);
+        assertEquals(5, batches.size());
+        for (List<String> batch : batches) {
+            assertEquals(2, batch.size());
+        }
+    }
+
+    @Test
+    void testOversizedTextIsAlone() {
+        String large = String.join("", Collections.nCopies(2000, "a"));
+        List<List<String>> batches = BatchPartitioner.partition(List.of("a", large, "b"), 50, 1000);
+        assertEquals(3, batches.size());
+        assertEquals(List.of(large), batches.get(1));
+    }
+
+    @Test
+    void testEncodedLength() {
+        for (String text : List.of("source text", "a&b=c", "Größe", "日本語", "emoji 😀", "<x0/>")) {
+            int expected = URLEncoder.encode(text, StandardCharsets.UTF_8).length();
+            assertEquals(expected, BatchPartitioner.encodedLength(text), text);
+        }
+        assertTrue(BatchPartitioner.partition(List.of(), 50, 1000).isEmpty());
+    }
+}
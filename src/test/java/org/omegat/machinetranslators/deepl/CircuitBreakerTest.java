@@ -0,0 +1,119 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package org.omegat.machinetranslators.deepl;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.deepl.api.DeepLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+public class CircuitBreakerTest {
+
+    @Test
+    void testOpensAfterConsecutiveFailures() {
+        CircuitBreaker breaker = new CircuitBreaker(3, TimeUnit.HOURS.toMillis(1), () -> null);
+        breaker.onConnectionFailure();
+        breaker.onConnectionFailure();
+        breaker.onSuccess();
+        breaker.onConnectionFailure();
+        breaker.onConnectionFailure();
+        // A success in between resets the count.
+        assertDoesNotThrow(breaker::check);
+        breaker.onConnectionFailure();
+        assertTrue(breaker.isOpen());
+        assertThrows(CircuitBreaker.OpenException.class, breaker::check);
+    }
+
+    @Test
+    void testOnlyFirstFailureOfStreakIsRetried() {
+        CircuitBreaker breaker = new CircuitBreaker(5, TimeUnit.HOURS.toMillis(1), () -> null);
+        breaker.onConnectionFailure();
+        assertTrue(breaker.isRetryAllowed());
+        breaker.onConnectionFailure();
+        assertFalse(breaker.isRetryAllowed());
+        breaker.onSuccess();
+        breaker.onConnectionFailure();
+        assertTrue(breaker.isRetryAllowed());
+
+        // A breaker opening on the first failure leaves nothing to retry.
+        CircuitBreaker strict = new CircuitBreaker(1, TimeUnit.HOURS.toMillis(1), () -> null);
+        strict.onConnectionFailure();
+        assertFalse(strict.isRetryAllowed());
+    }
+
+    @Test
+    void testProbeClosesBreaker() throws Exception {
+        AtomicBoolean reachable = new AtomicBoolean(false);
+        AtomicInteger probes = new AtomicInteger();
+        CircuitBreaker breaker = new CircuitBreaker(1, 50, () -> {
+            probes.incrementAndGet();
+            if (!reachable.get()) {
+                throw new IllegalStateException("unreachable");
+            }
+            return null;
+        });
+        breaker.onConnectionFailure();
+        assertTrue(breaker.isOpen());
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (probes.get() < 3 && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(probes.get() >= 3);
+        assertTrue(breaker.isOpen());
+
+        reachable.set(true);
+        while (breaker.isOpen() && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertFalse(breaker.isOpen());
+        assertDoesNotThrow(breaker::check);
+    }
+
+    @Test
+    void testServerErrorKeepsBreakerOpen() throws Exception {
+        AtomicInteger probes = new AtomicInteger();
+        CircuitBreaker breaker = new CircuitBreaker(1, 50, () -> {
+            probes.incrementAndGet();
+            // What the client library throws for a 503.
+            throw new DeepLException("Service unavailable, message: maintenance");
+        });
+        breaker.onConnectionFailure();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (probes.get() < 3 && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(probes.get() >= 3);
+        assertTrue(breaker.isOpen());
+        breaker.retire();
+    }
+}
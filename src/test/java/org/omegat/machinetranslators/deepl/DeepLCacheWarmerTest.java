@@ -0,0 +1,105 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.omegat.machinetranslators.deepl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class DeepLCacheWarmerTest {
+
+    private static final String HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<!DOCTYPE tmx SYSTEM \"tmx11.dtd\">\n"
+            + "<tmx version=\"1.4\">\n";
+
+    private static void write(Path file, String tool, String body) throws Exception {
+        Files.createDirectories(file.getParent());
+        Files.write(
+                file,
+                (HEADER + "<header creationtool=\"" + tool + "\" srclang=\"en\"/>\n<body>\n" + body
+                                + "</body>\n</tmx>\n")
+                        .getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String tu(String attributes, String source, String target) {
+        return "<tu" + attributes + ">\n"
+                + "<tuv xml:lang=\"en-US\"><seg>" + source + "</seg></tuv>\n"
+                + "<tuv xml:lang=\"de-DE\"><seg>" + target + "</seg></tuv>\n"
+                + "</tu>\n";
+    }
+
+    @Test
+    void testDeepLUnitsAreLoaded(@TempDir Path tmRoot) throws Exception {
+        write(
+                tmRoot.resolve("project.tmx"),
+                "OmegaT",
+                tu(" creationid=\"DeepL\"", "Open", "Öffnen")
+                        + tu(" creationid=\"translator\" changeid=\"DeepL\"", "Save", "Speichern")
+                        + tu(" creationid=\"translator\"", "Close", "Zumachen")
+                        + tu(" creationid=\"DeepL\"", "<bpt i=\"0\" x=\"0\">&lt;b0&gt;</bpt>Bold"
+                                + "<ept i=\"0\">&lt;/b0&gt;</ept>", "<bpt i=\"0\" x=\"0\">&lt;b0&gt;</bpt>Fett"
+                                + "<ept i=\"0\">&lt;/b0&gt;</ept>"));
+        write(tmRoot.resolve("mt/deepl.tmx"), "DeepL connector", tu("", "Print", "Drucken"));
+        write(tmRoot.resolve("mt/other.tmx"), "Other engine", tu("", "Copy", "Kopieren"));
+        write(
+                tmRoot.resolve("auto/" + DeepLPretranslator.OUTPUT_FILE_NAME),
+                "OmegaT DeepL connector",
+                "<tu creationid=\"DeepL\"><prop type=\"x-deepl-options\">current</prop>"
+                        + "<tuv xml:lang=\"EN\"><seg>Cut</seg></tuv><tuv xml:lang=\"DE\"><seg>Ausschneiden</seg></tuv>"
+                        + "</tu>\n<tu creationid=\"DeepL\"><prop type=\"x-deepl-options\">formal</prop>"
+                        + "<tuv xml:lang=\"EN\"><seg>Paste</seg></tuv><tuv xml:lang=\"DE\"><seg>Einfügen</seg></tuv>"
+                        + "</tu>\n");
+        Files.write(tmRoot.resolve("broken.tmx"), "<tmx><body><tu".getBytes(StandardCharsets.UTF_8));
+
+        Map<String, String> loaded = new LinkedHashMap<>();
+        long count = DeepLCacheWarmer.warm(tmRoot, "EN-US", "DE-DE", (source, translation, options) -> {
+            if (options != null && !options.equals("current")) {
+                return false;
+            }
+            loaded.put(source, translation);
+            return true;
+        });
+        assertEquals(5, count);
+        Map<String, String> expected = new LinkedHashMap<>();
+        expected.put("Cut", "Ausschneiden");
+        expected.put("Print", "Drucken");
+        expected.put("Open", "Öffnen");
+        expected.put("Save", "Speichern");
+        expected.put("<b0>Bold</b0>", "<b0>Fett</b0>");
+        assertEquals(expected, loaded);
+    }
+
+    @Test
+    void testMissingFolder(@TempDir Path dir) throws Exception {
+        assertEquals(0, DeepLCacheWarmer.warm(dir.resolve("tm"), "EN", "DE", (source, translation, options) -> true));
+    }
+}
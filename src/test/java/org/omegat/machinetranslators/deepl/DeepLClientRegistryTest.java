@@ -0,0 +1,79 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package org.omegat.machinetranslators.deepl;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class DeepLClientRegistryTest {
+
+    @Test
+    void testRateLimiterFollowsPreference() {
+        DeepLClientRegistry registry = DeepLClientRegistry.getInstance();
+        AdaptiveRateLimiter limiter = registry.getRateLimiter("deepl8registry8rate", 20);
+        assertSame(limiter, registry.getRateLimiter("deepl8registry8rate", 20));
+        // The rate was changed in the options.
+        AdaptiveRateLimiter changed = registry.getRateLimiter("deepl8registry8rate", 5);
+        assertNotSame(limiter, changed);
+        assertSame(changed, registry.getRateLimiter("deepl8registry8rate", 5));
+    }
+
+    @Test
+    void testCircuitBreakerFollowsPreferences() {
+        DeepLClientRegistry registry = DeepLClientRegistry.getInstance();
+        CircuitBreaker breaker = registry.getCircuitBreaker("deepl8registry8breaker", null, 1, 60_000);
+        assertSame(breaker, registry.getCircuitBreaker("deepl8registry8breaker", null, 1, 60_000));
+        breaker.onConnectionFailure();
+        assertTrue(breaker.isOpen());
+
+        // The threshold was changed in the options: the old breaker is retired.
+        CircuitBreaker changed = registry.getCircuitBreaker("deepl8registry8breaker", null, 3, 60_000);
+        assertNotSame(breaker, changed);
+        assertFalse(breaker.isOpen());
+        assertFalse(changed.isOpen());
+        assertNotSame(changed, registry.getCircuitBreaker("deepl8registry8breaker", "http://localhost:1", 3, 60_000));
+        registry.invalidate("deepl8registry8breaker");
+    }
+
+    @Test
+    void testInvalidateAllRetiresCircuitBreakers() {
+        DeepLClientRegistry registry = DeepLClientRegistry.getInstance();
+        CircuitBreaker breaker = registry.getCircuitBreaker("deepl8registry8all", null, 1, 60_000);
+        breaker.onConnectionFailure();
+        assertTrue(breaker.isOpen());
+
+        // The retired breaker stops probing and lets requests through.
+        registry.invalidateAll();
+        assertFalse(breaker.isOpen());
+        assertNotSame(breaker, registry.getCircuitBreaker("deepl8registry8all", null, 1, 60_000));
+        registry.invalidate("deepl8registry8all");
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.omegat.machinetranslators.deepl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class DeepLDiskCacheTest {
+
+    @TempDir
+    Path tmpDir;
+
+    private static TranslationKey key(String text) {
+        return new TranslationKey("DE", "EN-US", "split=default", text);
+    }
+
+    @Test
+    void testSurvivesReopen() throws Exception {
+        Path file = tmpDir.resolve("translations.cache");
+        try (DeepLDiskCache cache = DeepLDiskCache.open(file, 1024 * 1024)) {
+            cache.put(key("Hallo Welt"), "Hello World");
+            cache.put(key("Guten Tag"), "Good day");
+            cache.put(key("Hallo Welt"), "Hello world!");
+        }
+        try (DeepLDiskCache cache = DeepLDiskCache.open(file, 1024 * 1024)) {
+            assertEquals(2, cache.size());
+            assertEquals("Hello world!", cache.get(key("Hallo Welt")));
+            assertEquals("Good day", cache.get(key("Guten Tag")));
+            assertNull(cache.get(key("Unbekannt")));
+            // Options are part of the key.
+            assertNull(cache.get(new TranslationKey("DE", "EN-US", "split=All", "Guten Tag")));
+        }
+    }
+
+    @Test
+    void testSharedCacheIsOpenedOnce() throws Exception {
+        Path file = tmpDir.resolve("translations.cache");
+        try {
+            DeepLDiskCache cache = DeepLDiskCache.getShared(file, 1024 * 1024);
+            assertNotNull(cache);
+            cache.put(key("Hallo Welt"), "Hello World");
+            // A second engine instance gets the same cache instead of a lock failure.
+            assertSame(cache, DeepLDiskCache.getShared(file, 1024 * 1024));
+        } finally {
+            DeepLDiskCache.closeShared();
+        }
+        // The file is released on close.
+        try (DeepLDiskCache cache = DeepLDiskCache.open(file, 1024 * 1024)) {
+            assertEquals("Hello World", cache.get(key("Hallo Welt")));
+        }
+    }
+
+    @Test
+    void testInterruptedCallerKeepsCacheOpen() throws Exception {
+        Path file = tmpDir.resolve("translations.cache");
+        try (DeepLDiskCache cache = DeepLDiskCache.open(file, 1024 * 1024)) {
+            cache.put(key("eins"), "one");
+            // A cancelled request thread must not close the file for everyone.
+            Thread.currentThread().interrupt();
+            cache.put(key("zwei"), "two");
+            assertEquals("one", cache.get(key("eins")));
+            assertTrue(Thread.interrupted());
+            assertEquals("two", cache.get(key("zwei")));
+            cache.put(key("drei"), "three");
+            assertEquals(3, cache.size());
+        }
+        try (DeepLDiskCache cache = DeepLDiskCache.open(file, 1024 * 1024)) {
+            assertEquals("three", cache.get(key("drei")));
+        }
+    }
+
+    @Test
+    void testTornWriteIsDropped() throws Exception {
+        Path file = tmpDir.resolve("translations.cache");
+        try (DeepLDiskCache cache = DeepLDiskCache.open(file, 1024 * 1024)) {
+            cache.put(key("eins"), "one");
+            cache.put(key("zwei"), "two");
+        }
+        long size = Files.size(file);
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            // Cut the last record in the middle and flip a byte in its payload.
+            raf.setLength(size - 2);
+            raf.seek(size - 4);
+            raf.write(0x55);
+        }
+        try (DeepLDiskCache cache = DeepLDiskCache.open(file, 1024 * 1024)) {
+            assertEquals("one", cache.get(key("eins")));
+            assertNull(cache.get(key("zwei")));
+            cache.put(key("drei"), "three");
+        }
+        try (DeepLDiskCache cache = DeepLDiskCache.open(file, 1024 * 1024)) {
+            assertEquals("one", cache.get(key("eins")));
+            assertEquals("three", cache.get(key("drei")));
+        }
+    }
+
+    @Test
+    void testEvictsOldestOverLimit() throws Exception {
+        Path file = tmpDir.resolve("translations.cache");
+        long limit = 8 * 1024;
+        try (DeepLDiskCache cache = DeepLDiskCache.open(file, limit)) {
+            for (int i = 0; i < 500; i++) {
+                cache.put(key("segment number " + i), "translation number " + i);
+            }
+            assertTrue(Files.size(file) <= limit);
+            assertNull(cache.get(key("segment number 0")));
+            assertEquals("translation number 499", cache.get(key("segment number 499")));
+        }
+        try (DeepLDiskCache cache = DeepLDiskCache.open(file, limit)) {
+            assertEquals("translation number 499", cache.get(key("segment number 499")));
+        }
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package org.omegat.machinetranslators.deepl;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.containing;
+import static com.github.tomakehurst.wiremock.client.WireMock.notContaining;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.deepl.api.DeepLClient;
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.junit5.WireMockRuntimeInfo;
+import com.github.tomakehurst.wiremock.junit5.WireMockTest;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@WireMockTest
+public class DeepLGlossarySyncTest {
+
+    private static final String FIRST_ID = "def3a26b-3e84-45b3-84ae-0c0aaf3525f7";
+    private static final String SECOND_ID = "0a6a4b9e-ec2b-4e6a-a2f6-6e4c1b1d2c3e";
+
+    @Test
+    void testReadEntries(@TempDir Path dir) throws Exception {
+        Files.write(
+                dir.resolve("glossary.txt"),
+                ("\uFEFF# comment\n"
+                                + "cat\tKatze\tanimal\n"
+                                + "dog\tHund\n"
+                                + "cat\tKater\n"
+                                + "no target\n"
+                                + " \tleer\n")
+                        .getBytes(StandardCharsets.UTF_8));
+        Files.createDirectories(dir.resolve("sub"));
+        Files.write(dir.resolve("sub").resolve("more.tab"), "bird\tVogel\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(dir.resolve("ignored.tbx"), "fish\tFisch\n".getBytes(StandardCharsets.UTF_8));
+
+        Map<String, String> entries = DeepLGlossarySync.readEntries(dir.toFile());
+        assertEquals(3, entries.size());
+        assertEquals("Katze", entries.get("cat"));
+        assertEquals("Hund", entries.get("dog"));
+        assertEquals("Vogel", entries.get("bird"));
+    }
+
+    @Test
+    void testGlossaryLanguage() {
+        assertEquals("EN", DeepLGlossarySync.getGlossaryLanguage("EN-US"));
+        assertEquals("ZH", DeepLGlossarySync.getGlossaryLanguage("ZH-HANS"));
+        assertEquals("DE", DeepLGlossarySync.getGlossaryLanguage("DE"));
+    }
+
+    @Test
+    void testUploadOnlyWhenEntriesChange(WireMockRuntimeInfo wireMockRuntimeInfo, @TempDir Path dir)
+            throws Exception {
+        String key = "deepl8glossary8key";
+        WireMock.stubFor(WireMock.post(WireMock.urlPathEqualTo("/v3/glossaries"))
+                .withRequestBody(containing("Katze"))
+                .willReturn(glossaryResponse(FIRST_ID, 201)));
+        WireMock.stubFor(WireMock.patch(WireMock.urlPathEqualTo("/v3/glossaries/" + FIRST_ID))
+                .willReturn(glossaryResponse(FIRST_ID, 200)));
+        WireMock.stubFor(WireMock.put(WireMock.urlPathEqualTo("/v3/glossaries/" + FIRST_ID + "/dictionaries"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{ \"source_lang\": \"en\", \"target_lang\": \"de\", \"entry_count\": 2 }")));
+
+        String url = String.format("http://localhost:%d", wireMockRuntimeInfo.getHttpPort());
+        DeepLClient client = DeepLClientRegistry.getInstance().getClient(key, url);
+        File glossaryDir = dir.resolve("glossary").toFile();
+        Files.createDirectories(glossaryDir.toPath());
+        Path glossaryFile = glossaryDir.toPath().resolve("glossary.txt");
+        Files.write(glossaryFile, "cat\tKatze\ndog\tHund\n".getBytes(StandardCharsets.UTF_8));
+        Path stateFile = dir.resolve("glossaries.properties");
+
+        DeepLGlossarySync sync = new DeepLGlossarySync(stateFile);
+        assertEquals(FIRST_ID, sync.sync(client, glossaryDir, "EN", "DE"));
+        assertEquals(FIRST_ID, sync.sync(client, glossaryDir, "EN", "DE"));
+        WireMock.verify(1, WireMock.postRequestedFor(WireMock.urlPathEqualTo("/v3/glossaries")));
+        String revision = sync.getRevision(FIRST_ID);
+        assertNotNull(revision);
+
+        // A new session uses the stored ID of the unchanged files without any request.
+        DeepLGlossarySync restarted = new DeepLGlossarySync(stateFile);
+        assertEquals(FIRST_ID, restarted.getGlossaryId(client, glossaryDir, "EN", "DE"));
+        assertEquals(FIRST_ID, restarted.sync(client, glossaryDir, "EN", "DE"));
+        assertEquals(revision, restarted.getRevision(FIRST_ID));
+        WireMock.verify(1, WireMock.postRequestedFor(WireMock.urlPathEqualTo("/v3/glossaries")));
+
+        // An added entry is sent alone, and the glossary keeps its ID.
+        Files.write(glossaryFile, "cat\tKatze\ndog\tHund\nbird\tVogel\n".getBytes(StandardCharsets.UTF_8));
+        assertEquals(FIRST_ID, restarted.sync(client, glossaryDir, "EN", "DE"));
+        WireMock.verify(1, WireMock.postRequestedFor(WireMock.urlPathEqualTo("/v3/glossaries")));
+        WireMock.verify(
+                1,
+                WireMock.patchRequestedFor(WireMock.urlPathEqualTo("/v3/glossaries/" + FIRST_ID))
+                        .withRequestBody(containing("Vogel"))
+                        .withRequestBody(notContaining("Katze")));
+        assertNotEquals(revision, restarted.getRevision(FIRST_ID));
+
+        // A removed entry replaces the dictionary.
+        Files.write(glossaryFile, "cat\tKatze\nbird\tVogel\n".getBytes(StandardCharsets.UTF_8));
+        assertEquals(FIRST_ID, restarted.sync(client, glossaryDir, "EN", "DE"));
+        WireMock.verify(
+                1,
+                WireMock.putRequestedFor(WireMock.urlPathEqualTo("/v3/glossaries/" + FIRST_ID + "/dictionaries"))
+                        .withRequestBody(containing("Katze"))
+                        .withRequestBody(notContaining("Hund")));
+        WireMock.verify(1, WireMock.postRequestedFor(WireMock.urlPathEqualTo("/v3/glossaries")));
+        WireMock.verify(0, WireMock.deleteRequestedFor(WireMock.urlPathEqualTo("/v3/glossaries/" + FIRST_ID)));
+    }
+
+    @Test
+    void testSharedGlossaryIsNotEdited(WireMockRuntimeInfo wireMockRuntimeInfo, @TempDir Path dir)
+            throws Exception {
+        String key = "deepl8shared8glossary8key";
+        WireMock.stubFor(WireMock.post(WireMock.urlPathEqualTo("/v3/glossaries"))
+                .inScenario("shared")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willSetStateTo("uploaded")
+                .willReturn(glossaryResponse(FIRST_ID, 201)));
+        WireMock.stubFor(WireMock.post(WireMock.urlPathEqualTo("/v3/glossaries"))
+                .inScenario("shared")
+                .whenScenarioStateIs("uploaded")
+                .willReturn(glossaryResponse(SECOND_ID, 201)));
+
+        String url = String.format("http://localhost:%d", wireMockRuntimeInfo.getHttpPort());
+        DeepLClient client = DeepLClientRegistry.getInstance().getClient(key, url);
+        File first = dir.resolve("first").toFile();
+        File second = dir.resolve("second").toFile();
+        Files.createDirectories(first.toPath());
+        Files.createDirectories(second.toPath());
+        Files.write(first.toPath().resolve("glossary.txt"), "cat\tKatze\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(second.toPath().resolve("glossary.txt"), "cat\tKatze\n".getBytes(StandardCharsets.UTF_8));
+
+        DeepLGlossarySync sync = new DeepLGlossarySync(dir.resolve("glossaries.properties"));
+        assertEquals(FIRST_ID, sync.sync(client, first, "EN", "DE"));
+        // The same entries in another project share the glossary.
+        assertEquals(FIRST_ID, sync.sync(client, second, "EN", "DE"));
+
+        // A change in one project does not edit the glossary the other one uses.
+        Files.write(first.toPath().resolve("glossary.txt"), "cat\tKater\n".getBytes(StandardCharsets.UTF_8));
+        assertEquals(SECOND_ID, sync.sync(client, first, "EN", "DE"));
+        WireMock.verify(0, WireMock.patchRequestedFor(WireMock.urlPathEqualTo("/v3/glossaries/" + FIRST_ID)));
+        WireMock.verify(0, WireMock.deleteRequestedFor(WireMock.urlPathEqualTo("/v3/glossaries/" + FIRST_ID)));
+    }
+
+    @Test
+    void testEmptyGlossaryIsNotUploaded(WireMockRuntimeInfo wireMockRuntimeInfo, @TempDir Path dir)
+            throws Exception {
+        String url = String.format("http://localhost:%d", wireMockRuntimeInfo.getHttpPort());
+        DeepLClient client = DeepLClientRegistry.getInstance().getClient("deepl8empty8key", url);
+        DeepLGlossarySync sync = new DeepLGlossarySync(dir.resolve("glossaries.properties"));
+        assertNull(sync.sync(client, dir.resolve("missing").toFile(), "EN", "DE"));
+        WireMock.verify(0, WireMock.postRequestedFor(WireMock.urlPathEqualTo("/v3/glossaries")));
+    }
+
+    private static ResponseDefinitionBuilder glossaryResponse(String id, int status) {
+        return WireMock.aResponse()
+                .withStatus(status)
+                .withHeader("Content-Type", "application/json")
+                .withBody("{ \"glossary_id\": \"" + id + "\", \"name\": \"OmegaT\", "
+                        + "\"dictionaries\": [ { \"source_lang\": \"en\", \"target_lang\": \"de\", "
+                        + "\"entry_count\": 2 } ], \"creation_time\": \"2026-01-15T10:00:00.000Z\" }");
+    }
+}
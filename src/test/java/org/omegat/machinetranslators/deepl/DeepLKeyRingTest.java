@@ -0,0 +1,92 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.omegat.machinetranslators.deepl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class DeepLKeyRingTest {
+
+    private static final List<String> KEYS = List.of("key-a", "key-b", "key-c");
+
+    @Test
+    void testParse() {
+        assertEquals(List.of("key-a", "key-b:fx", "key-c"), DeepLKeyRing.parse(" key-a, key-b:fx;\nkey-c,key-a "));
+        assertEquals(List.of(), DeepLKeyRing.parse(null));
+        assertEquals(List.of(), DeepLKeyRing.parse(" , "));
+    }
+
+    @Test
+    void testRoutesAreStableAndFollowQuota() {
+        DeepLKeyRing ring = new DeepLKeyRing();
+        Map<String, Long> remaining = Map.of("key-a", 3_000_000L, "key-b", 1_000_000L, "key-c", 0L);
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 4000; i++) {
+            String route = "EN>" + i;
+            String key = ring.select(KEYS, route, remaining::get);
+            assertEquals(key, ring.select(KEYS, route, remaining::get));
+            counts.merge(key, 1, Integer::sum);
+        }
+        // Routes are spread in proportion to the remaining quota, 3 to 1.
+        assertTrue(counts.get("key-a") > 2700 && counts.get("key-a") < 3300, counts.toString());
+        assertTrue(counts.getOrDefault("key-c", 0) < 40, counts.toString());
+    }
+
+    @Test
+    void testEjectionMovesOnlyTheRoutesOfTheKey() {
+        DeepLKeyRing ring = new DeepLKeyRing();
+        Map<String, String> before = new HashMap<>();
+        for (int i = 0; i < 300; i++) {
+            before.put("EN>" + i, ring.select(KEYS, "EN>" + i, key -> -1));
+        }
+        ring.eject("key-b", DeepLKeyRing.QUOTA_EJECTION_MINUTES);
+        for (Map.Entry<String, String> entry : before.entrySet()) {
+            String after = ring.select(KEYS, entry.getKey(), key -> -1);
+            assertNotEquals("key-b", after);
+            if (!entry.getValue().equals("key-b")) {
+                assertEquals(entry.getValue(), after);
+            }
+        }
+        ring.reset();
+        before.forEach((route, key) -> assertEquals(key, ring.select(KEYS, route, k -> -1)));
+    }
+
+    @Test
+    void testAllKeysEjected() {
+        DeepLKeyRing ring = new DeepLKeyRing();
+        ring.eject("key-a", 30);
+        ring.eject("key-b", DeepLKeyRing.AUTH_EJECTION_MINUTES);
+        ring.eject("key-c", 20);
+        assertEquals("key-c", ring.select(KEYS, "EN>DE", key -> -1));
+        assertEquals("key-a", ring.select(List.of("key-a"), "EN>DE", key -> -1));
+    }
+}
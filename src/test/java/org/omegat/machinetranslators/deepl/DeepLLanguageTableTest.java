@@ -0,0 +1,89 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package org.omegat.machinetranslators.deepl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class DeepLLanguageTableTest {
+
+    @Test
+    void testSupportedLanguages() {
+        DeepLLanguageTable table =
+                DeepLLanguageTable.of(Arrays.asList("de", "EN", "ZH"), Arrays.asList("DE", "EN-US", "ZH"), 0);
+        assertTrue(table.supportsSource("DE"));
+        assertTrue(table.supportsSource("EN"));
+        assertFalse(table.supportsSource("JA"));
+        assertTrue(table.supportsTarget("EN-US"));
+        assertFalse(table.supportsTarget("EN-GB"));
+        // Regional variants of a listed base language are accepted.
+        assertTrue(table.supportsTarget("ZH-HANS"));
+        assertFalse(table.supportsTarget("JA"));
+    }
+
+    @Test
+    void testUnknownTableAcceptsEverything() {
+        DeepLLanguageTable table = DeepLLanguageTable.unknown(1000);
+        assertTrue(table.isUnknown());
+        assertTrue(table.supportsSource("XX"));
+        assertTrue(table.supportsTarget("XX"));
+        assertFalse(table.isExpired(1000 + DeepLLanguageTable.RETRY_MILLIS - 1));
+        assertTrue(table.isExpired(1000 + DeepLLanguageTable.RETRY_MILLIS));
+    }
+
+    @Test
+    void testSaveAndLoad(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("deepl").resolve(DeepLLanguageTable.getFileName("key"));
+        assertNull(DeepLLanguageTable.load(file));
+        DeepLLanguageTable.of(Arrays.asList("DE", "EN"), Arrays.asList("DE", "EN-US"), 5000).save(file);
+        DeepLLanguageTable loaded = DeepLLanguageTable.load(file);
+        assertNotNull(loaded);
+        assertFalse(loaded.isUnknown());
+        assertTrue(loaded.supportsSource("EN"));
+        assertFalse(loaded.supportsSource("JA"));
+        assertTrue(loaded.supportsTarget("EN-US"));
+        assertFalse(loaded.isExpired(5000 + DeepLLanguageTable.TTL_MILLIS - 1));
+        assertTrue(loaded.isExpired(5000 + DeepLLanguageTable.TTL_MILLIS));
+    }
+
+    @Test
+    void testFileNameDoesNotContainKey() {
+        String name = DeepLLanguageTable.getFileName("secret8api8key");
+        assertFalse(name.contains("secret"));
+        assertEquals(name, DeepLLanguageTable.getFileName("secret8api8key"));
+        assertNotEquals(name, DeepLLanguageTable.getFileName("other8api8key"));
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.omegat.machinetranslators.deepl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+public class DeepLMemoryCacheTest {
+
+    private static TranslationKey key(String options, String text) {
+        return new TranslationKey("DE", "EN-US", options, text);
+    }
+
+    @Test
+    void testOptionsArePartOfTheKey() {
+        DeepLMemoryCache cache = new DeepLMemoryCache(1000, 0);
+        cache.put(key("split=default", "Hallo"), "Hello");
+        assertEquals("Hello", cache.get(key("split=default", "Hallo")));
+        assertNull(cache.get(key("split=All", "Hallo")));
+        assertNull(cache.get(key("split=default,tags=xml", "Hallo")));
+        assertEquals(1, cache.stats().hitCount());
+        assertEquals(2, cache.stats().missCount());
+    }
+
+    @Test
+    void testEvictionByCharacters() {
+        DeepLMemoryCache cache = new DeepLMemoryCache(100, 0);
+        for (int i = 0; i < 10; i++) {
+            // 6 + 24 characters per entry
+            cache.put(key("split=default", "text " + i), "x".repeat(24));
+        }
+        cache.cleanUp();
+        int present = 0;
+        for (int i = 0; i < 10; i++) {
+            if (cache.get(key("split=default", "text " + i)) != null) {
+                present++;
+            }
+        }
+        assertTrue(present <= 3, "entries kept: " + present);
+        assertTrue(cache.stats().evictionCount() >= 7);
+    }
+
+    @Test
+    void testTimeToLive() {
+        AtomicLong now = new AtomicLong();
+        DeepLMemoryCache cache = new DeepLMemoryCache(1000, 60, now::get);
+        cache.put(key("split=default", "Hallo"), "Hello");
+        now.addAndGet(TimeUnit.MINUTES.toNanos(59));
+        assertEquals("Hello", cache.get(key("split=default", "Hallo")));
+        now.addAndGet(TimeUnit.MINUTES.toNanos(2));
+        assertNull(cache.get(key("split=default", "Hallo")));
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.omegat.machinetranslators.deepl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.junit.jupiter.api.Test;
+
+public class DeepLMetricsTest {
+
+    @Test
+    void testHistogramBuckets() {
+        for (long micros = 0; micros < 1_000_000; micros = micros * 3 / 2 + 1) {
+            int index = LatencyHistogram.bucketIndex(micros);
+            assertTrue(LatencyHistogram.bucketLowerBound(index) <= micros, Long.toString(micros));
+            assertTrue(LatencyHistogram.bucketLowerBound(index + 1) > micros, Long.toString(micros));
+        }
+    }
+
+    @Test
+    void testHistogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertTrue(Double.isNaN(histogram.percentileMillis(50)));
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+        assertEquals(100, histogram.count());
+        // Buckets are a quarter of a power of two wide.
+        assertEquals(50, histogram.percentileMillis(50), 50 * 0.25);
+        assertEquals(95, histogram.percentileMillis(95), 95 * 0.25);
+        assertEquals(99, histogram.percentileMillis(99), 99 * 0.25);
+    }
+
+    @Test
+    void testRegisteredOverJmx() throws Exception {
+        DeepLMetrics metrics = DeepLMetrics.getInstance();
+        DeepLMetrics.register();
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(DeepLMetrics.OBJECT_NAME);
+            assertTrue(server.isRegistered(name));
+            long before = (Long) server.getAttribute(name, "RequestCount");
+            long start = metrics.requestStarted(10);
+            assertEquals(1, (Integer) server.getAttribute(name, "InFlightRequests"));
+            metrics.requestFinished("DE", "EN-US", start);
+            metrics.recordError(DeepLMetrics.ErrorClass.QUOTA);
+            assertEquals(before + 1, (Long) server.getAttribute(name, "RequestCount"));
+            assertEquals(0, (Integer) server.getAttribute(name, "InFlightRequests"));
+            assertTrue(metrics.getLatencyP99Millis().containsKey("DE->EN-US"));
+            assertTrue(metrics.getErrorCounts().get("QUOTA") >= 1);
+        } finally {
+            DeepLMetrics.unregister();
+        }
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(new ObjectName(DeepLMetrics.OBJECT_NAME)));
+    }
+}
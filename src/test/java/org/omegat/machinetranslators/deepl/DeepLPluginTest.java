@@ -0,0 +1,130 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package org.omegat.machinetranslators.deepl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class DeepLPluginTest {
+
+    /**
+     * Class loader of its own, so that the classes loaded by the other tests
+     * do not hide what registration loads.
+     */
+    private static final class IsolatedLoader extends URLClassLoader {
+        IsolatedLoader(URL[] urls) {
+            super(urls, ClassLoader.getPlatformClassLoader());
+        }
+
+        boolean isLoaded(String name) {
+            return findLoadedClass(name) != null;
+        }
+    }
+
+    @Test
+    void testRegistrationIsCheap() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName metrics = new ObjectName(DeepLMetrics.OBJECT_NAME);
+        // Other tests of this JVM may have registered the metrics already.
+        boolean registered = server.isRegistered(metrics);
+        DeepLMetrics.unregister();
+        Set<Thread> threadsBefore = Thread.getAllStackTraces().keySet();
+        try (IsolatedLoader loader = new IsolatedLoader(getClassPath())) {
+            // OmegaT itself is up when it loads the plugins.
+            Class.forName("org.omegat.core.Core", true, loader);
+            loader.loadClass(DeepLPlugin.class.getName()).getMethod("loadPlugins").invoke(null);
+
+            assertFalse(server.isRegistered(metrics));
+            List<String> started = Thread.getAllStackTraces().keySet().stream()
+                    .filter(thread -> !threadsBefore.contains(thread))
+                    .map(Thread::getName)
+                    .filter(name -> name.startsWith("DeepL"))
+                    .collect(Collectors.toList());
+            assertEquals(Collections.emptyList(), started);
+            assertTrue(loader.isLoaded(DeepLTranslate2.class.getName()));
+            assertFalse(loader.isLoaded(DeepLTranslate2.class.getName() + "$BundleHolder"));
+            assertFalse(loader.isLoaded(DeepLMetrics.class.getName()));
+            assertFalse(loader.isLoaded(DeepLExecutor.class.getName()));
+            assertFalse(loader.isLoaded(DeepLClientRegistry.class.getName()));
+            assertFalse(loader.isLoaded(DeepLMemoryCache.class.getName()));
+            assertFalse(loader.isLoaded(DeepLDiskCache.class.getName()));
+            assertFalse(loader.isLoaded(DeepLCacheWarmer.class.getName()));
+            assertFalse(loader.isLoaded("com.deepl.api.DeepLClient"));
+        } finally {
+            if (registered) {
+                DeepLMetrics.register();
+            }
+        }
+    }
+
+    @Test
+    void testUnloadReleasesResources(@TempDir Path tmpDir) throws Exception {
+        Path file = tmpDir.resolve("translations.cache");
+        assertNotNull(DeepLDiskCache.getShared(file, 1024 * 1024));
+        CircuitBreaker breaker = new CircuitBreaker(1, TimeUnit.HOURS.toMillis(1), () -> null);
+        breaker.onConnectionFailure();
+        Thread probe = Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> "DeepL probe".equals(thread.getName()))
+                .findFirst()
+                .orElseThrow();
+
+        DeepLPlugin.unloadPlugins();
+
+        probe.join(TimeUnit.SECONDS.toMillis(10));
+        assertFalse(probe.isAlive());
+        // The lock on the cache file is released.
+        try (DeepLDiskCache cache = DeepLDiskCache.open(file, 1024 * 1024)) {
+            assertEquals(0, cache.size());
+        }
+    }
+
+    private static URL[] getClassPath() throws Exception {
+        List<URL> urls = new ArrayList<>();
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            urls.add(new File(entry).toURI().toURL());
+        }
+        return urls.toArray(new URL[0]);
+    }
+}
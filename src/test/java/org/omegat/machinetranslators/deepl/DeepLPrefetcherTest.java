@@ -0,0 +1,167 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package org.omegat.machinetranslators.deepl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.omegat.core.machinetranslators.MachineTranslateError;
+
+public class DeepLPrefetcherTest {
+
+    /**
+     * Records the batches it is asked to translate.
+     */
+    private static class FakeEngine implements DeepLPrefetcher.Engine {
+        final List<List<String>> batches = Collections.synchronizedList(new ArrayList<>());
+        boolean quotaAvailable = true;
+
+        @Override
+        public List<String> translate(List<String> texts) throws MachineTranslateError {
+            batches.add(texts);
+            return texts;
+        }
+
+        @Override
+        public boolean isQuotaAvailable(long characters) {
+            return quotaAvailable;
+        }
+    }
+
+    private static DeepLPrefetcher.Entries entries(Set<Integer> translated, String... texts) {
+        return new DeepLPrefetcher.Entries() {
+            @Override
+            public int size() {
+                return texts.length;
+            }
+
+            @Override
+            public String getSourceText(int index) {
+                return texts[index];
+            }
+
+            @Override
+            public boolean isTranslated(int index) {
+                return translated.contains(index);
+            }
+        };
+    }
+
+    private static DeepLPrefetcher.Entries entries(String... texts) {
+        return entries(Collections.emptySet(), texts);
+    }
+
+    private final DeepLPrefetcher prefetcher = new DeepLPrefetcher();
+
+    @AfterEach
+    void tearDown() {
+        prefetcher.cancel();
+    }
+
+    @Test
+    void testDepth() throws Exception {
+        FakeEngine engine = new FakeEngine();
+        prefetcher.schedule(engine, entries("a", "b", "c", "d", "e"), 0, "a", 3, 5000).get(5, TimeUnit.SECONDS);
+        assertEquals(Collections.singletonList(Arrays.asList("b", "c", "d")), engine.batches);
+    }
+
+    @Test
+    void testRepeatedTextUsesActiveEntry() throws Exception {
+        FakeEngine engine = new FakeEngine();
+        prefetcher
+                .schedule(engine, entries("same", "b", "same", "c", "d"), 2, "same", 2, 5000)
+                .get(5, TimeUnit.SECONDS);
+        assertEquals(Collections.singletonList(Arrays.asList("c", "d")), engine.batches);
+    }
+
+    @Test
+    void testLookupOfOtherTextIsIgnored() throws Exception {
+        FakeEngine engine = new FakeEngine();
+        prefetcher.schedule(engine, entries("a", "b", "c"), 0, "b", 2, 5000).get(5, TimeUnit.SECONDS);
+        prefetcher.schedule(engine, entries("a", "b", "c"), -1, "a", 2, 5000).get(5, TimeUnit.SECONDS);
+        assertTrue(engine.batches.isEmpty());
+    }
+
+    @Test
+    void testCharacterBudget() throws Exception {
+        FakeEngine engine = new FakeEngine();
+        prefetcher.schedule(engine, entries("a", "1234", "5678", "90"), 0, "a", 10, 9).get(5, TimeUnit.SECONDS);
+        assertEquals(Collections.singletonList(Arrays.asList("1234", "5678")), engine.batches);
+    }
+
+    @Test
+    void testTranslatedEntriesAreSkipped() throws Exception {
+        FakeEngine engine = new FakeEngine();
+        DeepLPrefetcher.Entries entries = entries(Set.of(1, 3), "a", "b", "c", "d", "e", "f");
+        prefetcher.schedule(engine, entries, 0, "a", 3, 5000).get(5, TimeUnit.SECONDS);
+        assertEquals(Collections.singletonList(Arrays.asList("c", "e", "f")), engine.batches);
+    }
+
+    @Test
+    void testSkippedWhenQuotaIsLow() throws Exception {
+        FakeEngine engine = new FakeEngine();
+        engine.quotaAvailable = false;
+        prefetcher.schedule(engine, entries("a", "b", "c"), 0, "a", 2, 5000).get(5, TimeUnit.SECONDS);
+        assertTrue(engine.batches.isEmpty());
+    }
+
+    @Test
+    void testPreviousRoundIsCancelled() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        FakeEngine blocking = new FakeEngine() {
+            @Override
+            public List<String> translate(List<String> texts) throws MachineTranslateError {
+                started.countDown();
+                try {
+                    Thread.sleep(TimeUnit.SECONDS.toMillis(10));
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+                return super.translate(texts);
+            }
+        };
+        Future<?> first = prefetcher.schedule(blocking, entries("a", "b", "c"), 0, "a", 2, 5000);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        FakeEngine engine = new FakeEngine();
+        prefetcher.schedule(engine, entries("a", "b", "c"), 1, "b", 2, 5000).get(5, TimeUnit.SECONDS);
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        assertTrue(first.isCancelled());
+        assertEquals(Collections.singletonList(Collections.singletonList("c")), engine.batches);
+    }
+}
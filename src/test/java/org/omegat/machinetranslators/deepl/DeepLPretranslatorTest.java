@@ -0,0 +1,252 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.omegat.machinetranslators.deepl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.deepl.api.QuotaExceededException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.omegat.core.machinetranslators.MachineTranslateError;
+
+public class DeepLPretranslatorTest {
+
+    /**
+     * Upper-cases the texts. Fails with a quota error on the chunk holding the
+     * given text.
+     */
+    private static final class FakeEngine implements DeepLPretranslator.Engine {
+        private final String failOn;
+        private final List<String> received = Collections.synchronizedList(new ArrayList<>());
+
+        FakeEngine(String failOn) {
+            this.failOn = failOn;
+        }
+
+        @Override
+        public List<String> translate(List<String> texts) throws MachineTranslateError {
+            if (texts.contains(failOn)) {
+                throw new MachineTranslateError("quota", new QuotaExceededException("Quota exceeded"));
+            }
+            try {
+                // Let chunks finish out of order.
+                Thread.sleep(ThreadLocalRandom.current().nextInt(5));
+            } catch (InterruptedException e) {
+                throw new MachineTranslateError("interrupted", e);
+            }
+            received.addAll(texts);
+            List<String> result = new ArrayList<>();
+            for (String text : texts) {
+                result.add(text.toUpperCase(Locale.ROOT));
+            }
+            return result;
+        }
+
+        @Override
+        public boolean isQuotaAvailable(long characters) {
+            return true;
+        }
+    }
+
+    private static DeepLPretranslator.Source source(int size, String prefix) {
+        return new DeepLPretranslator.Source() {
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public String get(int index) {
+                // Every tenth entry is already translated.
+                return index % 10 == 9 ? null : getSourceText(index);
+            }
+
+            @Override
+            public String getSourceText(int index) {
+                return prefix + text(index);
+            }
+        };
+    }
+
+    private static String text(int index) {
+        return "segment <b0>" + index + "</b0> & more";
+    }
+
+    private static DeepLPretranslator pretranslator(DeepLPretranslator.Engine engine, int size, Path dir) {
+        return pretranslator(engine, source(size, ""), dir);
+    }
+
+    private static DeepLPretranslator pretranslator(
+            DeepLPretranslator.Engine engine, DeepLPretranslator.Source source, Path dir) {
+        return new DeepLPretranslator(
+                engine,
+                source,
+                dir.resolve("work"),
+                dir.resolve("tm").resolve("auto").resolve(DeepLPretranslator.OUTPUT_FILE_NAME),
+                "en-US",
+                "de-DE",
+                "split=default",
+                4);
+    }
+
+    private static String readTmx(Path dir) throws Exception {
+        Path tmx = dir.resolve("tm").resolve("auto").resolve(DeepLPretranslator.OUTPUT_FILE_NAME);
+        return new String(Files.readAllBytes(tmx), StandardCharsets.UTF_8);
+    }
+
+    private static int countUnits(String tmx) {
+        int count = 0;
+        for (int i = tmx.indexOf("<tu "); i >= 0; i = tmx.indexOf("<tu ", i + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    @Test
+    void testWholeProject(@TempDir Path dir) throws Exception {
+        FakeEngine engine = new FakeEngine(null);
+        DeepLPretranslator.Result result = pretranslator(engine, 500, dir).run();
+        assertEquals(DeepLPretranslator.Status.COMPLETED, result.getStatus());
+        assertEquals(450, result.getTranslated());
+        assertEquals(500, result.getNextIndex());
+        assertEquals(450, engine.received.size());
+
+        String tmx = readTmx(dir);
+        assertEquals(450, countUnits(tmx));
+        assertTrue(tmx.contains("<tuv xml:lang=\"en-US\"><seg>segment &lt;b0&gt;0&lt;/b0&gt; &amp; more</seg></tuv>"));
+        assertTrue(tmx.contains("<tuv xml:lang=\"de-DE\"><seg>SEGMENT &lt;B0&gt;0&lt;/B0&gt; &amp; MORE</seg></tuv>"));
+        assertTrue(tmx.contains("creationid=\"DeepL\""));
+        // Units are written in project order although chunks finish out of order.
+        assertTrue(tmx.indexOf(">segment &lt;b0&gt;100&lt;") < tmx.indexOf(">segment &lt;b0&gt;200&lt;"));
+        // The job is done: nothing is left to resume.
+        assertFalse(Files.exists(dir.resolve("work").resolve("checkpoint.properties")));
+    }
+
+    @Test
+    void testResumeAfterQuotaStop(@TempDir Path dir) throws Exception {
+        // Entry 300 is the 271st text, in the sixth chunk.
+        FakeEngine first = new FakeEngine(text(300));
+        DeepLPretranslator.Result stopped = pretranslator(first, 1000, dir).run();
+        assertEquals(DeepLPretranslator.Status.QUOTA_EXHAUSTED, stopped.getStatus());
+        assertEquals(5 * DeepLPretranslator.CHUNK_SIZE, stopped.getTranslated());
+        assertTrue(stopped.getError() instanceof MachineTranslateError);
+        // The work done so far is already usable.
+        assertEquals(stopped.getTranslated(), countUnits(readTmx(dir)));
+
+        FakeEngine second = new FakeEngine(null);
+        DeepLPretranslator.Result resumed = pretranslator(second, 1000, dir).run();
+        assertEquals(DeepLPretranslator.Status.COMPLETED, resumed.getStatus());
+        assertEquals(900 - stopped.getTranslated(), resumed.getTranslated());
+        // Nothing translated before the stop is sent again.
+        assertEquals(resumed.getTranslated(), second.received.size());
+        assertFalse(second.received.contains(text(0)));
+        assertTrue(second.received.contains(text(300)));
+        assertEquals(900, countUnits(readTmx(dir)));
+    }
+
+    @Test
+    void testCheckpointOfOtherOptionsIsDiscarded(@TempDir Path dir) throws Exception {
+        pretranslator(new FakeEngine(text(200)), 300, dir).run();
+        FakeEngine engine = new FakeEngine(null);
+        DeepLPretranslator.Result result = new DeepLPretranslator(
+                        engine,
+                        source(300, ""),
+                        dir.resolve("work"),
+                        dir.resolve("tm").resolve("auto").resolve(DeepLPretranslator.OUTPUT_FILE_NAME),
+                        "en-US",
+                        "de-DE",
+                        "split=default,tags=xml",
+                        4)
+                .run();
+        assertEquals(DeepLPretranslator.Status.COMPLETED, result.getStatus());
+        assertEquals(270, result.getTranslated());
+        assertEquals(270, countUnits(readTmx(dir)));
+    }
+
+    @Test
+    void testCheckpointOfOtherEntriesIsDiscarded(@TempDir Path dir) throws Exception {
+        DeepLPretranslator.Result stopped = pretranslator(new FakeEngine(text(200)), 300, dir).run();
+        assertEquals(DeepLPretranslator.Status.QUOTA_EXHAUSTED, stopped.getStatus());
+
+        // The source files changed: the same number of entries, other texts.
+        FakeEngine engine = new FakeEngine(null);
+        DeepLPretranslator.Result result = pretranslator(engine, source(300, "new "), dir).run();
+        assertEquals(DeepLPretranslator.Status.COMPLETED, result.getStatus());
+        assertEquals(270, result.getTranslated());
+        assertTrue(engine.received.contains("new " + text(0)));
+        String tmx = readTmx(dir);
+        assertEquals(270, countUnits(tmx));
+        assertFalse(tmx.contains("<seg>segment"));
+    }
+
+    @Test
+    void testCancel(@TempDir Path dir) throws Exception {
+        FakeEngine first = new FakeEngine(null);
+        List<DeepLPretranslator> jobs = new ArrayList<>();
+        DeepLPretranslator.Engine engine = new DeepLPretranslator.Engine() {
+            @Override
+            public List<String> translate(List<String> texts) throws MachineTranslateError {
+                // Cancelled while the first chunks are in flight.
+                jobs.get(0).cancel();
+                return first.translate(texts);
+            }
+
+            @Override
+            public boolean isQuotaAvailable(long characters) {
+                return true;
+            }
+        };
+        jobs.add(pretranslator(engine, 1000, dir));
+        DeepLPretranslator.Result cancelled = jobs.get(0).run();
+        assertEquals(DeepLPretranslator.Status.CANCELLED, cancelled.getStatus());
+        assertTrue(cancelled.getNextIndex() < 1000);
+        assertTrue(Files.exists(dir.resolve("work").resolve("checkpoint.properties")));
+
+        FakeEngine second = new FakeEngine(null);
+        DeepLPretranslator.Result resumed = pretranslator(second, 1000, dir).run();
+        assertEquals(DeepLPretranslator.Status.COMPLETED, resumed.getStatus());
+        assertEquals(900, cancelled.getTranslated() + resumed.getTranslated());
+        assertEquals(900, countUnits(readTmx(dir)));
+    }
+
+    @Test
+    void testJournalEscaping() {
+        String text = "a\tb\\n\nc\r";
+        assertFalse(DeepLPretranslator.escape(text).contains("\t"));
+        assertFalse(DeepLPretranslator.escape(text).contains("\n"));
+        assertEquals(text, DeepLPretranslator.unescape(DeepLPretranslator.escape(text)));
+    }
+}
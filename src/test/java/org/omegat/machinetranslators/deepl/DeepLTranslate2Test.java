@@ -27,19 +27,41 @@ package org.omegat.machinetranslators.deepl;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.containing;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import com.deepl.api.DeepLClient;
 import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.http.Fault;
 import com.github.tomakehurst.wiremock.junit5.WireMockRuntimeInfo;
 import com.github.tomakehurst.wiremock.junit5.WireMockTest;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import org.apache.commons.io.FileUtils;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.omegat.core.data.ProjectProperties;
+import org.omegat.core.machinetranslators.MachineTranslateError;
 import org.omegat.util.Language;
 import org.omegat.util.Preferences;
 import org.omegat.util.PreferencesImpl;
@@ -207,6 +229,948 @@ public class DeepLTranslate2Test {
         assertEquals("Hallo Welt!", result);
     }
 
+    @Test
+    void testClientReusedAcrossCalls(WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+        String key = "deepl8reuse8key";
+
+        WireMock.stubFor(WireMock.post(WireMock.urlPathEqualTo("/v2/translate"))
+                .withHeader("Authorization", WireMock.equalTo("DeepL-Auth-Key " + key))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{ \"translations\":[ "
+                                + "{ \"detected_source_language\": \"DE\", \"text\": \"Hello World!\", \"billed_characters\": 11 }"
+                                + " ] }")));
+        WireMock.stubFor(
+                WireMock.get(WireMock.anyUrl()).willReturn(WireMock.aResponse().withStatus(404)));
+
+        int port = wireMockRuntimeInfo.getHttpPort();
+        String url = String.format("http://localhost:%d", port);
+        DeepLTranslate2 deepLTranslate = new DeepLTranslate2TestStub(url, key);
+        DeepLClient client = deepLTranslate.getClient(key);
+        deepLTranslate.translate(new Language("de"), new Language("en"), "first text");
+        deepLTranslate.translate(new Language("de"), new Language("en"), "second text");
+        assertSame(client, deepLTranslate.getClient(key));
+        WireMock.verify(2, WireMock.postRequestedFor(WireMock.urlPathEqualTo("/v2/translate")));
+
+        DeepLClientRegistry.getInstance().invalidate(key);
+        assertNotSame(client, deepLTranslate.getClient(key));
+    }
+
+    @Test
+    void testBatchTranslation(WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+        String key = "deepl8batch8key";
+
+        WireMock.stubFor(WireMock.post(WireMock.urlPathEqualTo("/v2/translate"))
+                .withHeader("Authorization", WireMock.equalTo("DeepL-Auth-Key " + key))
+                .withRequestBody(containing("text=first+text&text=second+text"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{ \"translations\":[ "
+                                + "{ \"detected_source_language\": \"DE\", \"text\": \"First\", \"billed_characters\": 10 },"
+                                + "{ \"detected_source_language\": \"DE\", \"text\": \"Second\", \"billed_characters\": 11 }"
+                                + " ] }")));
+        WireMock.stubFor(
+                WireMock.get(WireMock.anyUrl()).willReturn(WireMock.aResponse().withStatus(404)));
+
+        int port = wireMockRuntimeInfo.getHttpPort();
+        String url = String.format("http://localhost:%d", port);
+        DeepLTranslate2 deepLTranslate = new DeepLTranslate2TestStub(url, key);
+        Language sLang = new Language("de");
+        Language tLang = new Language("en");
+        List<String> result =
+                deepLTranslate.translateBatch(sLang, tLang, List.of("first text", "second text", "first text"));
+        assertEquals(List.of("First", "Second", "First"), result);
+        WireMock.verify(1, WireMock.postRequestedFor(WireMock.urlPathEqualTo("/v2/translate")));
+
+        // Translations are served from the cache afterwards.
+        assertEquals("Second", deepLTranslate.getCachedTranslation(sLang, tLang, "second text"));
+        assertEquals(
+                List.of("Second", "First"),
+                deepLTranslate.translateBatch(sLang, tLang, List.of("second text", "first text")));
+        WireMock.verify(1, WireMock.postRequestedFor(WireMock.urlPathEqualTo("/v2/translate")));
+    }
+
+    @Test
+    void testMultiTargetTranslation(WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+        String key = "deepl8multi8key";
+
+        WireMock.stubFor(WireMock.post(WireMock.urlPathEqualTo("/v2/translate"))
+                .withHeader("Authorization", WireMock.equalTo("DeepL-Auth-Key " + key))
+                .withRequestBody(containing("target_lang=DE"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{ \"translations\":[ "
+                                + "{ \"detected_source_language\": \"EN\", \"text\": \"Hallo\", \"billed_characters\": 5 },"
+                                + "{ \"detected_source_language\": \"EN\", \"text\": \"Welt\", \"billed_characters\": 5 }"
+                                + " ] }")));
+        WireMock.stubFor(WireMock.post(WireMock.urlPathEqualTo("/v2/translate"))
+                .withHeader("Authorization", WireMock.equalTo("DeepL-Auth-Key " + key))
+                .withRequestBody(containing("target_lang=FR"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{ \"translations\":[ "
+                                + "{ \"detected_source_language\": \"EN\", \"text\": \"Bonjour\", \"billed_characters\": 5 },"
+                                + "{ \"detected_source_language\": \"EN\", \"text\": \"Monde\", \"billed_characters\": 5 }"
+                                + " ] }")));
+        WireMock.stubFor(
+                WireMock.get(WireMock.anyUrl()).willReturn(WireMock.aResponse().withStatus(404)));
+
+        int port = wireMockRuntimeInfo.getHttpPort();
+        String url = String.format("http://localhost:%d", port);
+        DeepLTranslate2 deepLTranslate = new DeepLTranslate2TestStub(url, key);
+        Language sLang = new Language("en");
+        Language de = new Language("de");
+        Language fr = new Language("fr");
+        Map<Language, List<String>> result =
+                deepLTranslate.translateMulti(sLang, List.of(de, fr), List.of("Hello", "World", "Hello"));
+        assertEquals(List.of(de, fr), List.copyOf(result.keySet()));
+        assertEquals(List.of("Hallo", "Welt", "Hallo"), result.get(de));
+        assertEquals(List.of("Bonjour", "Monde", "Bonjour"), result.get(fr));
+        // One request per target language, each sending the repeated text once.
+        WireMock.verify(2, WireMock.postRequestedFor(WireMock.urlPathEqualTo("/v2/translate")));
+        WireMock.verify(2, WireMock.postRequestedFor(WireMock.urlPathEqualTo("/v2/translate"))
+                .withRequestBody(containing("text=Hello&text=World&")));
+
+        // Both targets are cached afterwards.
+        assertEquals("Monde", deepLTranslate.getCachedTranslation(sLang, fr, "World"));
+        assertEquals(Map.of(de, "Welt", fr, "Monde"), deepLTranslate.translateMulti(sLang, List.of(de, fr), "World"));
+        WireMock.verify(2, WireMock.postRequestedFor(WireMock.urlPathEqualTo("/v2/translate")));
+    }
+
+    @Test
+    void testConcurrentIdenticalRequestsShareOneCall(WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+        String key = "deepl8flight8key";
+
+        WireMock.stubFor(WireMock.post(WireMock.urlPathEqualTo("/v2/translate"))
+                .withHeader("Authorization", WireMock.equalTo("DeepL-Auth-Key " + key))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(200)
+                        .withFixedDelay(500)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{ \"translations\":[ "
+                                + "{ \"detected_source_language\": \"DE\", \"text\": \"Hello World!\", \"billed_characters\": 11 }"
+                                + " ] }")));
+        WireMock.stubFor(
+                WireMock.get(WireMock.anyUrl()).willReturn(WireMock.aResponse().withStatus(404)));
+
+        int port = wireMockRuntimeInfo.getHttpPort();
+        String url = String.format("http://localhost:%d", port);
+        DeepLTranslate2 deepLTranslate = new DeepLTranslate2TestStub(url, key);
+        int callers = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return deepLTranslate.translate(new Language("de"), new Language("en"), "shared text");
+                }));
+            }
+            start.countDown();
+            for (Future<String> future : futures) {
+                assertEquals("Hello World!", future.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        WireMock.verify(1, WireMock.postRequestedFor(WireMock.urlPathEqualTo("/v2/translate")));
+    }
+
+    @Test
+    void testConcurrentIdenticalRequestsShareError(WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+        String key = "deepl8flight8error";
+
+        WireMock.stubFor(WireMock.post(WireMock.urlPathEqualTo("/v2/translate"))
+                .willReturn(WireMock.aResponse().withStatus(403).withFixedDelay(500)));
+        WireMock.stubFor(
+                WireMock.get(WireMock.anyUrl()).willReturn(WireMock.aResponse().withStatus(404)));
+
+        int port = wireMockRuntimeInfo.getHttpPort();
+        String url = String.format("http://localhost:%d", port);
+        DeepLTranslate2 deepLTranslate = new DeepLTranslate2TestStub(url, key);
+        int callers = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return deepLTranslate.translate(new Language("de"), new Language("en"), "failing text");
+                }));
+            }
+            start.countDown();
+            for (Future<String> future : futures) {
+                ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+                assertInstanceOf(MachineTranslateError.class, e.getCause());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        WireMock.verify(1, WireMock.postRequestedFor(WireMock.urlPathEqualTo("/v2/translate")));
+    }
+
+    @Test
+    void testRetryAfterThrottling(WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+        String key = "deepl8throttle8key";
+
+        WireMock.stubFor(WireMock.post(WireMock.urlPathEqualTo("/v2/translate"))
+                .inScenario("throttling")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(WireMock.aResponse().withStatus(429).withHeader("Retry-After", "1"))
+                .willSetStateTo("recovered"));
+        WireMock.stubFor(WireMock.post(WireMock.urlPathEqualTo("/v2/translate"))
+                .inScenario("throttling")
+                .whenScenarioStateIs("recovered")
+                .willReturn(WireMock.aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{ \"translations\":[ "
+                                + "{ \"detected_source_language\": \"DE\", \"text\": \"Hello World!\", \"billed_characters\": 11 }"
+                                + " ] }")));
+        WireMock.stubFor(
+                WireMock.get(WireMock.anyUrl()).willReturn(WireMock.aResponse().withStatus(404)));
+
+        int port = wireMockRuntimeInfo.getHttpPort();
+        String url = String.format("http://localhost:%d", port);
+        DeepLTranslate2 deepLTranslate = new DeepLTranslate2TestStub(url, key);
+        String result = deepLTranslate.translate(new Language("de"), new Language("en"), "throttled text");
+        assertEquals("Hello World!", result);
+        WireMock.verify(2, WireMock.postRequestedFor(WireMock.urlPathEqualTo("/v2/translate")));
+    }
+
+    @Test
+    void testRetryAfterServerError(WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+        String key = "deepl8server8error8key";
+
+        WireMock.stubFor(WireMock.post(WireMock.urlPathEqualTo("/v2/translate"))
+                .inScenario("server error")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(WireMock.aResponse().withStatus(502))
+                .willSetStateTo("recovered"));
+        WireMock.stubFor(WireMock.post(WireMock.urlPathEqualTo("/v2/translate"))
+                .inScenario("server error")
+                .whenScenarioStateIs("recovered")
+                .willReturn(WireMock.aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{ \"translations\":[ "
+                                + "{ \"detected_source_language\": \"DE\", \"text\": \"Hello World!\", \"billed_characters\": 11 }"
+                                + " ] }")));
+        WireMock.stubFor(
+                WireMock.get(WireMock.anyUrl()).willReturn(WireMock.aResponse().withStatus(404)));
+
+        int port = wireMockRuntimeInfo.getHttpPort();
+        String url = String.format("http://localhost:%d", port);
+        DeepLTranslate2 deepLTranslate = new DeepLTranslate2TestStub(url, key);
+        String result = deepLTranslate.translate(new Language("de"), new Language("en"), "server error text");
+        assertEquals("Hello World!", result);
+        WireMock.verify(2, WireMock.postRequestedFor(WireMock.urlPathEqualTo("/v2/translate")));
+    }
+
+    @Test
+    void testThrottlingGivesUpAtDeadline(WireMockRuntimeInfo wireMockRuntimeInfo) {
+        String key = "deepl8deadline8key";
+        Preferences.setPreference(DeepLTranslate2.PROPERTY_REQUEST_DEADLINE, 2);
+
+        WireMock.stubFor(WireMock.post(WireMock.urlPathEqualTo("/v2/translate"))
+                .willReturn(WireMock.aResponse().withStatus(429)));
+        WireMock.stubFor(
+                WireMock.get(WireMock.anyUrl()).willReturn(WireMock.aResponse().withStatus(404)));
+
+        int port = wireMockRuntimeInfo.getHttpPort();
+        String url = String.format("http://localhost:%d", port);
+        DeepLTranslate2 deepLTranslate = new DeepLTranslate2TestStub(url, key);
+        long start = System.nanoTime();
+        assertThrows(
+                MachineTranslateError.class,
+                () -> deepLTranslate.translate(new Language("de"), new Language("en"), "always throttled"));
+        assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 5);
+        assertTrue(WireMock.findAll(WireMock.postRequestedFor(WireMock.urlPathEqualTo("/v2/translate")))
+                        .size()
+                > 1);
+    }
+
+    @Test
+    void testQuotaBlocksBackgroundWork(WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+        String key = "deepl8quota8key";
+
+        WireMock.stubFor(WireMock.post(WireMock.urlPathEqualTo("/v2/translate"))
+                .withHeader("Authorization", WireMock.equalTo("DeepL-Auth-Key " + key))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{ \"translations\":[ "
+                                + "{ \"detected_source_language\": \"DE\", \"text\": \"Hello World!\", \"billed_characters\": 11 }"
+                                + " ] }")));
+        WireMock.stubFor(
+                WireMock.get(WireMock.anyUrl()).willReturn(WireMock.aResponse().withStatus(404)));
+        WireMock.stubFor(WireMock.get(WireMock.urlPathEqualTo("/v2/usage"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{ \"character_count\": 0, \"character_limit\": 1000 }")));
+
+        int port = wireMockRuntimeInfo.getHttpPort();
+        String url = String.format("http://localhost:%d", port);
+        DeepLTranslate2 deepLTranslate = new DeepLTranslate2TestStub(url, key);
+        assertTrue(deepLTranslate.isBackgroundQuotaAvailable(900));
+        assertFalse(deepLTranslate.isBackgroundQuotaAvailable(960));
+        // Interactive lookups are never blocked; they bill 11 characters here,
+        // leaving 989 of which 50 are kept in reserve.
+        assertEquals("Hello World!", deepLTranslate.translate(new Language("de"), new Language("en"), "source text"));
+        assertTrue(deepLTranslate.isBackgroundQuotaAvailable(938));
+        assertFalse(deepLTranslate.isBackgroundQuotaAvailable(939));
+        QuotaTracker tracker = DeepLClientRegistry.getInstance().getQuotaTracker(key);
+        assertEquals(11, tracker.getBilledCharacters());
+        WireMock.verify(1, WireMock.getRequestedFor(WireMock.urlPathEqualTo("/v2/usage")));
+    }
+
+    @Test
+    void testFailedUsageQueryIsNotRepeated(WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+        String key = "deepl8usage8failed8key";
+        WireMock.stubFor(WireMock.get(WireMock.urlPathEqualTo("/v2/usage"))
+                .willReturn(WireMock.aResponse().withStatus(403)));
+
+        int port = wireMockRuntimeInfo.getHttpPort();
+        String url = String.format("http://localhost:%d", port);
+        DeepLTranslate2 deepLTranslate = new DeepLTranslate2TestStub(url, key);
+        for (int i = 0; i < 5; i++) {
+            deepLTranslate.isBackgroundQuotaAvailable(100);
+        }
+        WireMock.verify(1, WireMock.getRequestedFor(WireMock.urlPathEqualTo("/v2/usage")));
+    }
+
+    @Test
+    void testXmlTagHandling(WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+        String key = "deepl8xml8key";
+        Preferences.setPreference(DeepLTranslate2.PROPERTY_XML_TAG_HANDLING, true);
+
+        WireMock.stubFor(WireMock.post(WireMock.urlPathEqualTo("/v2/translate"))
+                .withHeader("Authorization", WireMock.equalTo("DeepL-Auth-Key " + key))
+                .withRequestBody(containing("tag_handling=xml"))
+                .withRequestBody(containing("text=Press+%3Ct+i%3D%220%22%3ESave%3C%2Ft%3E+%26amp%3B+go"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{ \"translations\":[ { \"detected_source_language\": \"EN\", "
+                                + "\"text\": \"Klicken Sie <t i=\\\"0\\\">Speichern</t> &amp; los\", "
+                                + "\"billed_characters\": 14 } ] }")));
+
+        int port = wireMockRuntimeInfo.getHttpPort();
+        String url = String.format("http://localhost:%d", port);
+        DeepLTranslate2 deepLTranslate = new DeepLTranslate2TestStub(url, key);
+        String result = deepLTranslate.translate(new Language("en"), new Language("de"), "Press <b0>Save</b0> & go");
+        assertEquals("Klicken Sie <b0>Speichern</b0> & los", result);
+    }
+
+    @Test
+    void testXmlTagHandlingFallsBackWhenTagsAreLost(WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+        String key = "deepl8xml8lost8key";
+        Preferences.setPreference(DeepLTranslate2.PROPERTY_XML_TAG_HANDLING, true);
+
+        WireMock.stubFor(WireMock.post(WireMock.urlPathEqualTo("/v2/translate"))
+                .withRequestBody(containing("tag_handling=xml"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{ \"translations\":[ { \"detected_source_language\": \"EN\", "
+                                + "\"text\": \"Klicken Sie Speichern &amp; los\", \"billed_characters\": 14 } ] }")));
+        WireMock.stubFor(WireMock.post(WireMock.urlPathEqualTo("/v2/translate"))
+                .withRequestBody(WireMock.notContaining("tag_handling"))
+                .withRequestBody(containing("text=Press+%3Cb0%3ESave%3C%2Fb0%3E+%26+go"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{ \"translations\":[ { \"detected_source_language\": \"EN\", "
+                                + "\"text\": \"Klicken Sie <b0>Speichern</b0> & los\", \"billed_characters\": 24 } ] }")));
+
+        int port = wireMockRuntimeInfo.getHttpPort();
+        String url = String.format("http://localhost:%d", port);
+        DeepLTranslate2 deepLTranslate = new DeepLTranslate2TestStub(url, key);
+        String result = deepLTranslate.translate(new Language("en"), new Language("de"), "Press <b0>Save</b0> & go");
+        assertEquals("Klicken Sie <b0>Speichern</b0> & los", result);
+        WireMock.verify(2, WireMock.postRequestedFor(WireMock.urlPathEqualTo("/v2/translate")));
+    }
+
+    @Test
+    void testWarmUpSkipsUnitsWithoutOptionsWhenTagsAreHandled(WireMockRuntimeInfo wireMockRuntimeInfo)
+            throws Exception {
+        String key = "deepl8warm8xml8key";
+        int port = wireMockRuntimeInfo.getHttpPort();
+        String url = String.format("http://localhost:%d", port);
+        DeepLCacheWarmer.Sink sink =
+                new DeepLTranslate2TestStub(url, key).getWarmUpSink(new Language("en"), new Language("de"));
+        assertTrue(sink.accept("Open", "Öffnen", null));
+
+        // Units of the project memory were not translated with XML tag handling.
+        Preferences.setPreference(DeepLTranslate2.PROPERTY_XML_TAG_HANDLING, true);
+        WireMock.stubFor(WireMock.post(WireMock.urlPathEqualTo("/v2/translate"))
+                .withRequestBody(containing("tag_handling=xml"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{ \"translations\":[ { \"detected_source_language\": \"EN\", "
+                                + "\"text\": \"Aufmachen\", \"billed_characters\": 4 } ] }")));
+        DeepLTranslate2 deepLTranslate = new DeepLTranslate2TestStub(url, key);
+        sink = deepLTranslate.getWarmUpSink(new Language("en"), new Language("de"));
+        assertFalse(sink.accept("Open", "Öffnen", null));
+        assertEquals("Aufmachen", deepLTranslate.translate(new Language("en"), new Language("de"), "Open"));
+        WireMock.verify(1, WireMock.postRequestedFor(WireMock.urlPathEqualTo("/v2/translate")));
+    }
+
+    @Test
+    void testTemplateDeduplication(WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+        String key = "deepl8template8key";
+        Preferences.setPreference(DeepLTranslate2.PROPERTY_TEMPLATE_DEDUP, true);
+
+        WireMock.stubFor(WireMock.post(WireMock.urlPathEqualTo("/v2/translate"))
+                .withHeader("Authorization", WireMock.equalTo("DeepL-Auth-Key " + key))
+                .withRequestBody(containing("text=Page+%7B0%7D+of+%7B1%7D"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{ \"translations\":[ "
+                                + "{ \"detected_source_language\": \"EN\", \"text\": \"Seite {0} von {1}\", \"billed_characters\": 15 }"
+                                + " ] }")));
+        WireMock.stubFor(
+                WireMock.get(WireMock.anyUrl()).willReturn(WireMock.aResponse().withStatus(404)));
+
+        int port = wireMockRuntimeInfo.getHttpPort();
+        String url = String.format("http://localhost:%d", port);
+        DeepLTranslate2 deepLTranslate = new DeepLTranslate2TestStub(url, key);
+        Language sLang = new Language("en");
+        Language tLang = new Language("de");
+        long saved = DeepLMetrics.getInstance().getTemplateCharactersSaved();
+        List<String> result = deepLTranslate.translateBatch(
+                sLang, tLang, List.of("Page 1 of 10", "Page 2 of 10", "Page 11 of 12"));
+        assertEquals(List.of("Seite 1 von 10", "Seite 2 von 10", "Seite 11 von 12"), result);
+        WireMock.verify(1, WireMock.postRequestedFor(WireMock.urlPathEqualTo("/v2/translate")));
+        // Three segments of 37 characters cost one template of 15 characters.
+        assertEquals(saved + 37 - 15, DeepLMetrics.getInstance().getTemplateCharactersSaved());
+
+        // A later segment of the same template needs no request.
+        assertEquals("Seite 7 von 9", deepLTranslate.translate(sLang, tLang, "Page 7 of 9"));
+        WireMock.verify(1, WireMock.postRequestedFor(WireMock.urlPathEqualTo("/v2/translate")));
+    }
+
+    @Test
+    void testTemplateMismatchFallsBackToDirectCall(WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+        String key = "deepl8template8fallback8key";
+        Preferences.setPreference(DeepLTranslate2.PROPERTY_TEMPLATE_DEDUP, true);
+
+        // The placeholder {1} is lost in the template translation.
+        WireMock.stubFor(WireMock.post(WireMock.urlPathEqualTo("/v2/translate"))
+                .withHeader("Authorization", WireMock.equalTo("DeepL-Auth-Key " + key))
+                .withRequestBody(containing("text=Page+%7B0%7D+of+%7B1%7D"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{ \"translations\":[ "
+                                + "{ \"detected_source_language\": \"EN\", \"text\": \"Seite {0}\", \"billed_characters\": 15 }"
+                                + " ] }")));
+        WireMock.stubFor(WireMock.post(WireMock.urlPathEqualTo("/v2/translate"))
+                .withHeader("Authorization", WireMock.equalTo("DeepL-Auth-Key " + key))
+                .withRequestBody(containing("text=Page+1+of+10"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{ \"translations\":[ "
+                                + "{ \"detected_source_language\": \"EN\", \"text\": \"Seite 1 von 10\", \"billed_characters\": 12 }"
+                                + " ] }")));
+        WireMock.stubFor(
+                WireMock.get(WireMock.anyUrl()).willReturn(WireMock.aResponse().withStatus(404)));
+
+        int port = wireMockRuntimeInfo.getHttpPort();
+        String url = String.format("http://localhost:%d", port);
+        DeepLTranslate2 deepLTranslate = new DeepLTranslate2TestStub(url, key);
+        String result = deepLTranslate.translate(new Language("en"), new Language("de"), "Page 1 of 10");
+        assertEquals("Seite 1 von 10", result);
+        WireMock.verify(2, WireMock.postRequestedFor(WireMock.urlPathEqualTo("/v2/translate")));
+    }
+
+    @Test
+    void testSentenceCacheSendsOnlyChangedSentences(WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+        String key = "deepl8sentence8key";
+        Preferences.setPreference(DeepLTranslate2.PROPERTY_SENTENCE_CACHE, true);
+
+        WireMock.stubFor(WireMock.post(WireMock.urlPathEqualTo("/v2/translate"))
+                .withHeader("Authorization", WireMock.equalTo("DeepL-Auth-Key " + key))
+                .withRequestBody(containing("text=Open+the+file."))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{ \"translations\":[ "
+                                + "{ \"detected_source_language\": \"EN\", \"text\": \"Öffnen Sie die Datei.\", \"billed_characters\": 14 },"
+                                + "{ \"detected_source_language\": \"EN\", \"text\": \"Speichern Sie sie.\", \"billed_characters\": 11 }"
+                                + " ] }")));
+        WireMock.stubFor(WireMock.post(WireMock.urlPathEqualTo("/v2/translate"))
+                .withHeader("Authorization", WireMock.equalTo("DeepL-Auth-Key " + key))
+                .withRequestBody(containing("text=Close+it."))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{ \"translations\":[ "
+                                + "{ \"detected_source_language\": \"EN\", \"text\": \"Schließen Sie sie.\", \"billed_characters\": 9 }"
+                                + " ] }")));
+        WireMock.stubFor(
+                WireMock.get(WireMock.anyUrl()).willReturn(WireMock.aResponse().withStatus(404)));
+
+        int port = wireMockRuntimeInfo.getHttpPort();
+        String url = String.format("http://localhost:%d", port);
+        DeepLTranslate2 deepLTranslate = new DeepLTranslate2TestStub(url, key);
+        Language sLang = new Language("en");
+        Language tLang = new Language("de");
+        assertEquals(
+                List.of("Öffnen Sie die Datei.  Speichern Sie sie."),
+                deepLTranslate.translateBatch(sLang, tLang, List.of("Open the file.  Save it.")));
+
+        // Only the revised sentence is sent; the first one comes from the cache.
+        long saved = DeepLMetrics.getInstance().getSentenceCharactersSaved();
+        assertEquals(
+                "Öffnen Sie die Datei. Schließen Sie sie.",
+                deepLTranslate.translate(sLang, tLang, "Open the file. Close it."));
+        WireMock.verify(2, WireMock.postRequestedFor(WireMock.urlPathEqualTo("/v2/translate")));
+        WireMock.verify(0, WireMock.postRequestedFor(WireMock.urlPathEqualTo("/v2/translate"))
+                .withRequestBody(containing("text=Close+it."))
+                .withRequestBody(containing("text=Open")));
+        assertEquals(saved + 24 - 9, DeepLMetrics.getInstance().getSentenceCharactersSaved());
+    }
+
+    @Test
+    void testExhaustedKeyLeavesTheRotation(WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+        String exhausted = "deepl8exhausted8key";
+        String spare = "deepl8spare8key";
+
+        WireMock.stubFor(WireMock.post(WireMock.urlPathEqualTo("/v2/translate"))
+                .withHeader("Authorization", WireMock.equalTo("DeepL-Auth-Key " + exhausted))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(456)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{\"message\":\"Quota Exceeded\"}")));
+        WireMock.stubFor(WireMock.post(WireMock.urlPathEqualTo("/v2/translate"))
+                .withHeader("Authorization", WireMock.equalTo("DeepL-Auth-Key " + spare))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{ \"translations\":[ "
+                                + "{ \"detected_source_language\": \"EN\", \"text\": \"Hallo\", \"billed_characters\": 5 }"
+                                + " ] }")));
+        WireMock.stubFor(
+                WireMock.get(WireMock.anyUrl()).willReturn(WireMock.aResponse().withStatus(404)));
+
+        int port = wireMockRuntimeInfo.getHttpPort();
+        String url = String.format("http://localhost:%d", port);
+        DeepLTranslate2 deepLTranslate = new DeepLTranslate2TestStub(url, exhausted + "," + spare);
+        Language sLang = new Language("en");
+        Language tLang = new Language("de");
+        // Whichever key the language pair is routed to, the request succeeds.
+        assertEquals("Hallo", deepLTranslate.translate(sLang, tLang, "Hello"));
+        assertEquals(List.of("Hallo"), deepLTranslate.translateBatch(sLang, tLang, List.of("Hi")));
+        // The exhausted key is asked once at most, then left alone.
+        int asked = WireMock.findAll(WireMock.postRequestedFor(WireMock.urlPathEqualTo("/v2/translate"))
+                        .withHeader("Authorization", WireMock.equalTo("DeepL-Auth-Key " + exhausted)))
+                .size();
+        assertTrue(asked <= 1);
+        WireMock.verify(2, WireMock.postRequestedFor(WireMock.urlPathEqualTo("/v2/translate"))
+                .withHeader("Authorization", WireMock.equalTo("DeepL-Auth-Key " + spare)));
+    }
+
+    @Test
+    void testBulkWorkIsSpreadOverKeys(WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+        String first = "deepl8bulk8first8key";
+        String second = "deepl8bulk8second8key";
+
+        WireMock.stubFor(WireMock.post(WireMock.urlPathEqualTo("/v2/translate"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{ \"translations\":[ "
+                                + "{ \"detected_source_language\": \"EN\", \"text\": \"Hallo\", \"billed_characters\": 5 }"
+                                + " ] }")));
+        WireMock.stubFor(
+                WireMock.get(WireMock.anyUrl()).willReturn(WireMock.aResponse().withStatus(404)));
+
+        int port = wireMockRuntimeInfo.getHttpPort();
+        String url = String.format("http://localhost:%d", port);
+        DeepLTranslate2 deepLTranslate = new DeepLTranslate2TestStub(url, first + "," + second);
+        Language sLang = new Language("en");
+        Language tLang = new Language("de");
+        for (int i = 0; i < 20; i++) {
+            assertEquals(List.of("Hallo"), deepLTranslate.translateBulk(sLang, tLang, List.of("Chunk " + i)));
+        }
+        // A single language pair uses both keys.
+        int firstCount = WireMock.findAll(WireMock.postRequestedFor(WireMock.urlPathEqualTo("/v2/translate"))
+                        .withHeader("Authorization", WireMock.equalTo("DeepL-Auth-Key " + first)))
+                .size();
+        assertTrue(firstCount > 0 && firstCount < 20);
+
+        // Interactive lookups keep the pair on one key.
+        WireMock.resetRequests();
+        for (int i = 0; i < 5; i++) {
+            assertEquals("Hallo", deepLTranslate.translate(sLang, tLang, "Lookup " + i));
+        }
+        int lookups = WireMock.findAll(WireMock.postRequestedFor(WireMock.urlPathEqualTo("/v2/translate"))
+                        .withHeader("Authorization", WireMock.equalTo("DeepL-Auth-Key " + first)))
+                .size();
+        assertTrue(lookups == 0 || lookups == 5);
+    }
+
+    @Test
+    void testChangedOptionsMissTheCache(WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+        String key = "deepl8options8key";
+
+        WireMock.stubFor(WireMock.post(WireMock.urlPathEqualTo("/v2/translate"))
+                .withHeader("Authorization", WireMock.equalTo("DeepL-Auth-Key " + key))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{ \"translations\":[ "
+                                + "{ \"detected_source_language\": \"EN\", \"text\": \"Hallo\", \"billed_characters\": 5 }"
+                                + " ] }")));
+        WireMock.stubFor(WireMock.post(WireMock.urlPathEqualTo("/v2/translate"))
+                .withHeader("Authorization", WireMock.equalTo("DeepL-Auth-Key " + key))
+                .withRequestBody(containing("tag_handling=xml"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{ \"translations\":[ "
+                                + "{ \"detected_source_language\": \"EN\", \"text\": \"Hallo (xml)\", \"billed_characters\": 5 }"
+                                + " ] }")));
+        WireMock.stubFor(
+                WireMock.get(WireMock.anyUrl()).willReturn(WireMock.aResponse().withStatus(404)));
+
+        int port = wireMockRuntimeInfo.getHttpPort();
+        String url = String.format("http://localhost:%d", port);
+        DeepLTranslate2 deepLTranslate = new DeepLTranslate2TestStub(url, key);
+        Language sLang = new Language("en");
+        Language tLang = new Language("de");
+        assertEquals("Hallo", deepLTranslate.getTranslation(sLang, tLang, "Hello"));
+        assertEquals("Hallo", deepLTranslate.getCachedTranslation(sLang, tLang, "Hello"));
+
+        // Other options: the cached translation is not returned.
+        Preferences.setPreference(DeepLTranslate2.PROPERTY_XML_TAG_HANDLING, true);
+        assertNull(deepLTranslate.getCachedTranslation(sLang, tLang, "Hello"));
+        assertEquals("Hallo (xml)", deepLTranslate.getTranslation(sLang, tLang, "Hello"));
+        WireMock.verify(2, WireMock.postRequestedFor(WireMock.urlPathEqualTo("/v2/translate")));
+    }
+
+    @Test
+    void testUnsupportedLanguagePairFailsWithoutRequest(WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+        String key = "deepl8lang8key";
+
+        WireMock.stubFor(WireMock.get(WireMock.urlPathEqualTo("/v2/languages"))
+                .atPriority(5)
+                .willReturn(WireMock.aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("[ { \"language\": \"DE\", \"name\": \"German\" }, "
+                                + "{ \"language\": \"EN\", \"name\": \"English\" } ]")));
+        WireMock.stubFor(WireMock.get(WireMock.urlPathEqualTo("/v2/languages"))
+                .withQueryParam("type", WireMock.equalTo("target"))
+                .atPriority(1)
+                .willReturn(WireMock.aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("[ { \"language\": \"DE\", \"name\": \"German\", \"supports_formality\": true }, "
+                                + "{ \"language\": \"EN-US\", \"name\": \"English (American)\", "
+                                + "\"supports_formality\": false } ]")));
+        WireMock.stubFor(WireMock.post(WireMock.urlPathEqualTo("/v2/translate"))
+                .withHeader("Authorization", WireMock.equalTo("DeepL-Auth-Key " + key))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{ \"translations\":[ "
+                                + "{ \"detected_source_language\": \"DE\", \"text\": \"Hello World!\", \"billed_characters\": 11 }"
+                                + " ] }")));
+
+        int port = wireMockRuntimeInfo.getHttpPort();
+        String url = String.format("http://localhost:%d", port);
+        DeepLTranslate2 deepLTranslate = new DeepLTranslate2TestStub(url, key);
+        assertEquals("Hello World!", deepLTranslate.translate(new Language("de"), new Language("en"), "source text"));
+        assertThrows(
+                MachineTranslateError.class,
+                () -> deepLTranslate.translate(new Language("de"), new Language("ja"), "source text"));
+        assertThrows(
+                MachineTranslateError.class,
+                () -> deepLTranslate.translate(new Language("ko"), new Language("en"), "source text"));
+        WireMock.verify(1, WireMock.postRequestedFor(WireMock.urlPathEqualTo("/v2/translate")));
+        WireMock.verify(2, WireMock.getRequestedFor(WireMock.urlPathEqualTo("/v2/languages")));
+
+        // A restarted session reads the table from disk instead of DeepL.
+        DeepLClientRegistry.getInstance().invalidate(key);
+        DeepLTranslate2 restarted = new DeepLTranslate2TestStub(url, key);
+        assertThrows(
+                MachineTranslateError.class,
+                () -> restarted.translate(new Language("de"), new Language("ja"), "source text"));
+        WireMock.verify(2, WireMock.getRequestedFor(WireMock.urlPathEqualTo("/v2/languages")));
+    }
+
+    @Test
+    void testCancelledQueuedRequestIsNeverSent(WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+        String key = "deepl8cancel8key";
+        // One request per second: the second request has to wait for the rate limiter.
+        Preferences.setPreference(DeepLTranslate2.PROPERTY_RATE_LIMIT, 1);
+
+        WireMock.stubFor(WireMock.post(WireMock.urlPathEqualTo("/v2/translate"))
+                .withHeader("Authorization", WireMock.equalTo("DeepL-Auth-Key " + key))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(200)
+                        .withFixedDelay(500)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{ \"translations\":[ "
+                                + "{ \"detected_source_language\": \"DE\", \"text\": \"Hello World!\", \"billed_characters\": 11 }"
+                                + " ] }")));
+
+        int port = wireMockRuntimeInfo.getHttpPort();
+        String url = String.format("http://localhost:%d", port);
+        DeepLTranslate2 deepLTranslate = new DeepLTranslate2TestStub(url, key);
+        CompletableFuture<String> first =
+                deepLTranslate.translateAsync(new Language("de"), new Language("en"), "first text");
+        Thread.sleep(200);
+        CompletableFuture<String> stale =
+                deepLTranslate.translateAsync(new Language("de"), new Language("en"), "stale text");
+        long start = System.nanoTime();
+        assertTrue(stale.cancel(true));
+        assertThrows(CancellationException.class, stale::join);
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(100));
+
+        assertEquals("Hello World!", first.get(10, TimeUnit.SECONDS));
+        // Long enough for the rate limiter to have released the stale request.
+        Thread.sleep(1500);
+        WireMock.verify(1, WireMock.postRequestedFor(WireMock.urlPathEqualTo("/v2/translate")));
+        WireMock.verify(
+                0,
+                WireMock.postRequestedFor(WireMock.urlPathEqualTo("/v2/translate"))
+                        .withRequestBody(containing("text=stale+text")));
+    }
+
+    @Test
+    void testStaleInteractiveRequestIsCancelled(WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+        String key = "deepl8stale8key";
+
+        WireMock.stubFor(WireMock.post(WireMock.urlPathEqualTo("/v2/translate"))
+                .withRequestBody(containing("text=first+segment"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(200)
+                        .withFixedDelay(3000)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{ \"translations\":[ "
+                                + "{ \"detected_source_language\": \"DE\", \"text\": \"First\", \"billed_characters\": 13 }"
+                                + " ] }")));
+        WireMock.stubFor(WireMock.post(WireMock.urlPathEqualTo("/v2/translate"))
+                .withRequestBody(containing("text=second+segment"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{ \"translations\":[ "
+                                + "{ \"detected_source_language\": \"DE\", \"text\": \"Second\", \"billed_characters\": 14 }"
+                                + " ] }")));
+
+        int port = wireMockRuntimeInfo.getHttpPort();
+        String url = String.format("http://localhost:%d", port);
+        DeepLTranslate2 deepLTranslate = new DeepLTranslate2TestStub(url, key);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            InteractiveRequests.getInstance().activate("first segment");
+            Future<String> first = executor.submit(
+                    () -> deepLTranslate.translate(new Language("de"), new Language("en"), "first segment"));
+            Thread.sleep(500);
+            // The user moves on: the first caller is released long before its response arrives.
+            InteractiveRequests.getInstance().activate("second segment");
+            assertEquals("Second", deepLTranslate.translate(new Language("de"), new Language("en"), "second segment"));
+            ExecutionException e = assertThrows(ExecutionException.class, () -> first.get(1, TimeUnit.SECONDS));
+            assertInstanceOf(MachineTranslateError.class, e.getCause());
+        } finally {
+            executor.shutdownNow();
+            InteractiveRequests.getInstance().activate(null);
+        }
+    }
+
+    @Test
+    void testConcurrentCallersDoNotCancelEachOther(WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+        String key = "deepl8concurrent8key";
+
+        WireMock.stubFor(WireMock.post(WireMock.urlPathEqualTo("/v2/translate"))
+                .withRequestBody(containing("text=slow+segment"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(200)
+                        .withFixedDelay(1000)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{ \"translations\":[ "
+                                + "{ \"detected_source_language\": \"DE\", \"text\": \"Slow\", \"billed_characters\": 12 }"
+                                + " ] }")));
+        WireMock.stubFor(WireMock.post(WireMock.urlPathEqualTo("/v2/translate"))
+                .withRequestBody(containing("text=quick+segment"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{ \"translations\":[ "
+                                + "{ \"detected_source_language\": \"DE\", \"text\": \"Quick\", \"billed_characters\": 13 }"
+                                + " ] }")));
+
+        int port = wireMockRuntimeInfo.getHttpPort();
+        String url = String.format("http://localhost:%d", port);
+        DeepLTranslate2 deepLTranslate = new DeepLTranslate2TestStub(url, key);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // A script and the editor ask for different texts without a change of entry.
+            Future<String> slow = executor.submit(
+                    () -> deepLTranslate.translate(new Language("de"), new Language("en"), "slow segment"));
+            Thread.sleep(200);
+            assertEquals("Quick", deepLTranslate.translate(new Language("de"), new Language("en"), "quick segment"));
+            assertEquals("Slow", slow.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testReadTimeout(WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+        String key = "deepl8timeout8key";
+        Preferences.setPreference(DeepLTranslate2.PROPERTY_READ_TIMEOUT, 1);
+        Preferences.setPreference(DeepLTranslate2.PROPERTY_REQUEST_DEADLINE, 1);
+
+        WireMock.stubFor(WireMock.post(WireMock.urlPathEqualTo("/v2/translate"))
+                .willReturn(WireMock.aResponse().withStatus(200).withFixedDelay(5000)));
+
+        int port = wireMockRuntimeInfo.getHttpPort();
+        String url = String.format("http://localhost:%d", port);
+        DeepLTranslate2 deepLTranslate = new DeepLTranslate2TestStub(url, key);
+        long start = System.nanoTime();
+        assertThrows(
+                MachineTranslateError.class,
+                () -> deepLTranslate.translate(new Language("de"), new Language("en"), "slow text"));
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(3000));
+    }
+
+    @Test
+    void testCircuitBreakerOpensAndRecovers(WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+        String key = "deepl8breaker8key";
+        Preferences.setPreference(DeepLTranslate2.PROPERTY_CIRCUIT_THRESHOLD, 2);
+        Preferences.setPreference(DeepLTranslate2.PROPERTY_CIRCUIT_PROBE, 1);
+        Preferences.setPreference(DeepLTranslate2.PROPERTY_REQUEST_DEADLINE, 1);
+
+        WireMock.stubFor(WireMock.post(WireMock.urlPathEqualTo("/v2/translate"))
+                .willReturn(WireMock.aResponse().withFault(Fault.CONNECTION_RESET_BY_PEER)));
+        WireMock.stubFor(WireMock.get(WireMock.urlPathEqualTo("/v2/usage"))
+                .willReturn(WireMock.aResponse().withFault(Fault.CONNECTION_RESET_BY_PEER)));
+
+        int port = wireMockRuntimeInfo.getHttpPort();
+        String url = String.format("http://localhost:%d", port);
+        DeepLTranslate2 deepLTranslate = new DeepLTranslate2TestStub(url, key);
+        for (int i = 0; i < 2; i++) {
+            assertThrows(
+                    MachineTranslateError.class,
+                    () -> deepLTranslate.translate(new Language("de"), new Language("en"), "source text"));
+        }
+        int sent = WireMock.findAll(WireMock.postRequestedFor(WireMock.urlPathEqualTo("/v2/translate")))
+                .size();
+        assertTrue(sent >= 2);
+
+        // The breaker is open: requests fail at once, without reaching the server.
+        long start = System.nanoTime();
+        assertThrows(
+                MachineTranslateError.class,
+                () -> deepLTranslate.translate(new Language("de"), new Language("en"), "source text"));
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(200));
+        WireMock.verify(sent, WireMock.postRequestedFor(WireMock.urlPathEqualTo("/v2/translate")));
+
+        // DeepL comes back: a background probe closes the breaker.
+        WireMock.stubFor(WireMock.post(WireMock.urlPathEqualTo("/v2/translate"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{ \"translations\":[ "
+                                + "{ \"detected_source_language\": \"DE\", \"text\": \"Hello World!\", \"billed_characters\": 11 }"
+                                + " ] }")));
+        WireMock.stubFor(WireMock.get(WireMock.urlPathEqualTo("/v2/usage"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{ \"character_count\": 0, \"character_limit\": 1000 }")));
+        String result = null;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (result == null && System.nanoTime() < deadline) {
+            try {
+                result = deepLTranslate.translate(new Language("de"), new Language("en"), "source text");
+            } catch (MachineTranslateError e) {
+                Thread.sleep(200);
+            }
+        }
+        assertEquals("Hello World!", result);
+        WireMock.verify(sent + 1, WireMock.postRequestedFor(WireMock.urlPathEqualTo("/v2/translate")));
+    }
+
+    @Test
+    void testCircuitBreakerOpensOnServerErrors(WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+        String key = "deepl8breaker8server8key";
+        Preferences.setPreference(DeepLTranslate2.PROPERTY_CIRCUIT_THRESHOLD, 2);
+        Preferences.setPreference(DeepLTranslate2.PROPERTY_CIRCUIT_PROBE, 1);
+        Preferences.setPreference(DeepLTranslate2.PROPERTY_REQUEST_DEADLINE, 1);
+
+        WireMock.stubFor(WireMock.post(WireMock.urlPathEqualTo("/v2/translate"))
+                .willReturn(WireMock.aResponse().withStatus(503)));
+        WireMock.stubFor(WireMock.get(WireMock.urlPathEqualTo("/v2/usage"))
+                .willReturn(WireMock.aResponse().withStatus(503)));
+
+        int port = wireMockRuntimeInfo.getHttpPort();
+        String url = String.format("http://localhost:%d", port);
+        DeepLTranslate2 deepLTranslate = new DeepLTranslate2TestStub(url, key);
+        for (int i = 0; i < 2; i++) {
+            assertThrows(
+                    MachineTranslateError.class,
+                    () -> deepLTranslate.translate(new Language("de"), new Language("en"), "source text"));
+        }
+        int sent = WireMock.findAll(WireMock.postRequestedFor(WireMock.urlPathEqualTo("/v2/translate")))
+                .size();
+        assertTrue(sent >= 2);
+
+        // The breaker is open and probes answered with 503 keep it open.
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (WireMock.findAll(WireMock.getRequestedFor(WireMock.urlPathEqualTo("/v2/usage")))
+                                .size()
+                        < 2
+                && System.nanoTime() < deadline) {
+            Thread.sleep(100);
+        }
+        long start = System.nanoTime();
+        assertThrows(
+                MachineTranslateError.class,
+                () -> deepLTranslate.translate(new Language("de"), new Language("en"), "other text"));
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(200));
+        WireMock.verify(sent, WireMock.postRequestedFor(WireMock.urlPathEqualTo("/v2/translate")));
+    }
+
+    @Test
+    void testConnectionFailuresAreNotRetriedDuringOutage(WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+        String key = "deepl8outage8key";
+        Preferences.setPreference(DeepLTranslate2.PROPERTY_CIRCUIT_THRESHOLD, 5);
+        Preferences.setPreference(DeepLTranslate2.PROPERTY_REQUEST_DEADLINE, 60);
+
+        WireMock.stubFor(WireMock.post(WireMock.urlPathEqualTo("/v2/translate"))
+                .willReturn(WireMock.aResponse().withFault(Fault.CONNECTION_RESET_BY_PEER)));
+
+        int port = wireMockRuntimeInfo.getHttpPort();
+        String url = String.format("http://localhost:%d", port);
+        DeepLTranslate2 deepLTranslate = new DeepLTranslate2TestStub(url, key);
+        // The first failure is retried once; then the call gives up instead of retrying until the deadline.
+        assertThrows(
+                MachineTranslateError.class,
+                () -> deepLTranslate.translate(new Language("de"), new Language("en"), "first text"));
+        WireMock.verify(2, WireMock.postRequestedFor(WireMock.urlPathEqualTo("/v2/translate")));
+        // Later calls of the outage are not retried at all.
+        assertThrows(
+                MachineTranslateError.class,
+                () -> deepLTranslate.translate(new Language("de"), new Language("en"), "second text"));
+        WireMock.verify(3, WireMock.postRequestedFor(WireMock.urlPathEqualTo("/v2/translate")));
+    }
+
     static class DeepLTranslate2TestStub extends DeepLTranslate2 {
 
         DeepLTranslate2TestStub(String url, String key) {
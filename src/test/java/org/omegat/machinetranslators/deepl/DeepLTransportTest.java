@@ -0,0 +1,271 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.omegat.machinetranslators.deepl;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.containing;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.deepl.api.AuthorizationException;
+import com.deepl.api.ConnectionException;
+import com.deepl.api.QuotaExceededException;
+import com.deepl.api.SentenceSplittingMode;
+import com.deepl.api.TextTranslationOptions;
+import com.deepl.api.TooManyRequestsException;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.http.Fault;
+import com.github.tomakehurst.wiremock.junit5.WireMockRuntimeInfo;
+import com.github.tomakehurst.wiremock.junit5.WireMockTest;
+import java.net.Authenticator;
+import java.net.InetSocketAddress;
+import java.net.PasswordAuthentication;
+import java.net.ProxySelector;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Runs the same requests through both transports.
+ */
+@WireMockTest
+public class DeepLTransportTest {
+
+    private static DeepLTransport transport(String name, WireMockRuntimeInfo wireMockRuntimeInfo, String key) {
+        String url = String.format("http://localhost:%d", wireMockRuntimeInfo.getHttpPort());
+        if (DeepLTransport.LIBRARY.equals(name)) {
+            return new DeepLLibraryTransport(DeepLClientRegistry.getInstance().getClient(key, url));
+        }
+        return new DeepLHttpTransport(
+                DeepLClientRegistry.getInstance().getHttpClient(Duration.ofSeconds(5)),
+                key,
+                url,
+                Duration.ofSeconds(10));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {DeepLTransport.HTTP, DeepLTransport.LIBRARY})
+    void testTranslate(String name, WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+        String key = "deepl8transport8key";
+        WireMock.stubFor(WireMock.post(WireMock.urlPathEqualTo("/v2/translate"))
+                .withHeader("Authorization", WireMock.equalTo("DeepL-Auth-Key " + key))
+                .withRequestBody(containing("text=Guten+Tag&text=Auf+Wiedersehen"))
+                .withRequestBody(containing("target_lang=EN-US"))
+                .withRequestBody(containing("show_billed_characters=1"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{ \"translations\":[ "
+                                + "{ \"detected_source_language\": \"DE\", \"text\": \"Good day \\u00e9\", \"billed_characters\": 9 },"
+                                + "{ \"detected_source_language\": \"DE\", \"text\": \"Goodbye \\\"all\\\"\", \"billed_characters\": 15 }"
+                                + " ] }")));
+
+        List<DeepLTransport.Result> results = transport(name, wireMockRuntimeInfo, key)
+                .translate(List.of("Guten Tag", "Auf Wiedersehen"), "DE", "EN-US", new TextTranslationOptions());
+        assertEquals(2, results.size());
+        assertEquals("Good day \u00e9", results.get(0).getText());
+        assertEquals(9, results.get(0).getBilledCharacters());
+        assertEquals("Goodbye \"all\"", results.get(1).getText());
+        assertEquals(15, results.get(1).getBilledCharacters());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {DeepLTransport.HTTP, DeepLTransport.LIBRARY})
+    void testOptionsAreSent(String name, WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+        String key = "deepl8transport8options8key";
+        WireMock.stubFor(WireMock.post(WireMock.urlPathEqualTo("/v2/translate"))
+                .withRequestBody(containing("split_sentences=0"))
+                .withRequestBody(containing("tag_handling=xml"))
+                .withRequestBody(containing("glossary_id=def3a26b"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{ \"translations\":[ "
+                                + "{ \"detected_source_language\": \"DE\", \"text\": \"Cat\", \"billed_characters\": 5 }"
+                                + " ] }")));
+
+        TextTranslationOptions options = new TextTranslationOptions()
+                .setSentenceSplittingMode(SentenceSplittingMode.Off)
+                .setTagHandling("xml")
+                .setGlossary("def3a26b");
+        List<DeepLTransport.Result> results =
+                transport(name, wireMockRuntimeInfo, key).translate(List.of("Katze"), "DE", "EN-US", options);
+        assertEquals("Cat", results.get(0).getText());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {DeepLTransport.HTTP, DeepLTransport.LIBRARY})
+    void testLargeResponse(String name, WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+        String key = "deepl8transport8large8key";
+        String text = "Lorem ipsum dolor sit amet. ".repeat(200);
+        WireMock.stubFor(WireMock.post(WireMock.urlPathEqualTo("/v2/translate"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{ \"translations\":[ { \"detected_source_language\": \"LA\", \"text\": \"" + text
+                                + "\", \"billed_characters\": " + text.length() + " } ] }")));
+
+        List<DeepLTransport.Result> results = transport(name, wireMockRuntimeInfo, key)
+                .translate(List.of(text), "LA", "EN-US", new TextTranslationOptions());
+        assertEquals(text, results.get(0).getText());
+    }
+
+    @Test
+    void testHttpTransportAcceptsGzip(WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+        String key = "deepl8transport8gzip8key";
+        WireMock.stubFor(WireMock.post(WireMock.urlPathEqualTo("/v2/translate"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{ \"translations\":[ "
+                                + "{ \"detected_source_language\": \"DE\", \"text\": \"Cat\", \"billed_characters\": 5 }"
+                                + " ] }")));
+
+        transport(DeepLTransport.HTTP, wireMockRuntimeInfo, key)
+                .translate(List.of("Katze"), "DE", "EN-US", new TextTranslationOptions());
+        WireMock.verify(WireMock.postRequestedFor(WireMock.urlPathEqualTo("/v2/translate"))
+                .withHeader("Accept-Encoding", containing("gzip")));
+    }
+
+    @Test
+    void testHttpTransportUsesProxyAuthentication(WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+        String key = "deepl8transport8proxy8key";
+        String credentials = Base64.getEncoder().encodeToString("omegat:secret".getBytes(StandardCharsets.UTF_8));
+        // WireMock plays the proxy: it asks for credentials, then answers.
+        WireMock.stubFor(WireMock.post(WireMock.urlPathEqualTo("/v2/translate"))
+                .withHeader("Proxy-Authorization", WireMock.absent())
+                .willReturn(WireMock.aResponse()
+                        .withStatus(407)
+                        .withHeader("Proxy-Authenticate", "Basic realm=\"proxy\"")));
+        WireMock.stubFor(WireMock.post(WireMock.urlPathEqualTo("/v2/translate"))
+                .withHeader("Proxy-Authorization", WireMock.equalTo("Basic " + credentials))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{ \"translations\":[ "
+                                + "{ \"detected_source_language\": \"DE\", \"text\": \"Cat\", \"billed_characters\": 5 }"
+                                + " ] }")));
+
+        // OmegaT sets up its proxy through the JDK defaults.
+        ProxySelector proxySelector = ProxySelector.getDefault();
+        Authenticator authenticator = Authenticator.getDefault();
+        ProxySelector.setDefault(
+                ProxySelector.of(new InetSocketAddress("localhost", wireMockRuntimeInfo.getHttpPort())));
+        Authenticator.setDefault(new Authenticator() {
+            @Override
+            protected PasswordAuthentication getPasswordAuthentication() {
+                return getRequestorType() == RequestorType.PROXY
+                        ? new PasswordAuthentication("omegat", "secret".toCharArray())
+                        : null;
+            }
+        });
+        try {
+            DeepLTransport transport = new DeepLHttpTransport(
+                    DeepLHttpTransport.createClient(Duration.ofSeconds(5)),
+                    key,
+                    "http://deepl.invalid",
+                    Duration.ofSeconds(10));
+            List<DeepLTransport.Result> results =
+                    transport.translate(List.of("Katze"), "DE", "EN-US", new TextTranslationOptions());
+            assertEquals("Cat", results.get(0).getText());
+        } finally {
+            ProxySelector.setDefault(proxySelector);
+            Authenticator.setDefault(authenticator);
+        }
+        WireMock.verify(WireMock.postRequestedFor(WireMock.urlPathEqualTo("/v2/translate"))
+                .withHeader("Proxy-Authorization", WireMock.equalTo("Basic " + credentials)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {DeepLTransport.HTTP, DeepLTransport.LIBRARY})
+    void testErrorStatuses(String name, WireMockRuntimeInfo wireMockRuntimeInfo) {
+        String key = "deepl8transport8error8key";
+        DeepLTransport transport = transport(name, wireMockRuntimeInfo, key);
+        TextTranslationOptions options = new TextTranslationOptions();
+
+        WireMock.stubFor(WireMock.post(WireMock.urlPathEqualTo("/v2/translate"))
+                .willReturn(WireMock.aResponse().withStatus(403).withBody("{\"message\":\"Wrong key\"}")));
+        assertThrows(
+                AuthorizationException.class, () -> transport.translate(List.of("Katze"), "DE", "EN-US", options));
+
+        WireMock.stubFor(WireMock.post(WireMock.urlPathEqualTo("/v2/translate"))
+                .willReturn(WireMock.aResponse().withStatus(456).withBody("{\"message\":\"Quota exceeded\"}")));
+        assertThrows(
+                QuotaExceededException.class, () -> transport.translate(List.of("Katze"), "DE", "EN-US", options));
+
+        WireMock.stubFor(WireMock.post(WireMock.urlPathEqualTo("/v2/translate"))
+                .willReturn(WireMock.aResponse().withStatus(429).withHeader("Retry-After", "2")));
+        TooManyRequestsException e = assertThrows(
+                TooManyRequestsException.class,
+                () -> transport.translate(List.of("Katze"), "DE", "EN-US", options));
+        if (DeepLTransport.HTTP.equals(name)) {
+            // Only the HTTP transport sees the header.
+            DeepLHttpTransport.ThrottledException throttled =
+                    assertInstanceOf(DeepLHttpTransport.ThrottledException.class, e);
+            assertEquals(TimeUnit.SECONDS.toNanos(2), throttled.getRetryAfterNanos());
+        }
+
+        for (int status : new int[] {500, 502, 503, 504}) {
+            WireMock.stubFor(WireMock.post(WireMock.urlPathEqualTo("/v2/translate"))
+                    .willReturn(WireMock.aResponse().withStatus(status)));
+            DeepLTransport.ServerErrorException error = assertThrows(
+                    DeepLTransport.ServerErrorException.class,
+                    () -> transport.translate(List.of("Katze"), "DE", "EN-US", options));
+            if (DeepLTransport.HTTP.equals(name) || status == 503) {
+                // The client library only tells 503 apart.
+                assertEquals(status, error.getStatus());
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {DeepLTransport.HTTP, DeepLTransport.LIBRARY})
+    void testConnectionFailure(String name, WireMockRuntimeInfo wireMockRuntimeInfo) {
+        String key = "deepl8transport8reset8key";
+        WireMock.stubFor(WireMock.post(WireMock.urlPathEqualTo("/v2/translate"))
+                .willReturn(WireMock.aResponse().withFault(Fault.CONNECTION_RESET_BY_PEER)));
+
+        DeepLTransport transport = transport(name, wireMockRuntimeInfo, key);
+        assertThrows(
+                ConnectionException.class,
+                () -> transport.translate(List.of("Katze"), "DE", "EN-US", new TextTranslationOptions()));
+    }
+
+    @Test
+    void testJson() {
+        Object value = Json.parse(
+                "{\"a\": [1, 2.5, -3e2], \"b\": {\"c\": null, \"d\": true}, \"e\": \"x\\ny\\u0041\"}");
+        assertEquals(
+                "{a=[1.0, 2.5, -300.0], b={c=null, d=true}, e=x\nyA}", value.toString());
+        assertThrows(IllegalArgumentException.class, () -> Json.parse("{\"a\": }"));
+        assertThrows(IllegalArgumentException.class, () -> Json.parse("[1, 2"));
+    }
+}
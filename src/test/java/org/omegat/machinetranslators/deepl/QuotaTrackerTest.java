@@ -0,0 +1,57 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package org.omegat.machinetranslators.deepl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class QuotaTrackerTest {
+
+    @Test
+    void testFailedSyncBacksOff() {
+        QuotaTracker tracker = new QuotaTracker();
+        assertTrue(tracker.needsSync());
+        tracker.syncFailed();
+        // The usage endpoint is not queried again right away.
+        assertFalse(tracker.needsSync());
+        assertEquals(-1, tracker.getEstimatedRemaining());
+    }
+
+    @Test
+    void testSuccessfulSyncEndsBackoff() {
+        QuotaTracker tracker = new QuotaTracker();
+        tracker.syncFailed();
+        tracker.update(0, 1000);
+        assertFalse(tracker.needsSync());
+        // More than a tenth of the remaining quota billed since the sync.
+        tracker.recordBilled(101);
+        assertTrue(tracker.needsSync());
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package org.omegat.machinetranslators.deepl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.omegat.core.data.ProjectProperties;
+import org.omegat.util.Preferences;
+import org.omegat.util.PreferencesImpl;
+import org.omegat.util.PreferencesXML;
+import org.omegat.util.RuntimePreferences;
+
+public class ResultPostProcessorTest {
+
+    private static final String[] WORDS = {"Speichern", "OK", "et", "a", "1", "2.5", "été", "日本", "."};
+    private static final String[] ENTITIES = {
+        "&quot;", "&nbsp;", "&lt;", "&gt;", "&amp;", "&#39;", "&amp;#39;", "&amp;lt;", "&amp;amp;", "&", "&foo;",
+        "&#34;", "&lt;b0&gt;", ";"
+    };
+    private static final String[] TAGS = {
+        "<b0>", "</b0>", "<x1/>", "<i12>", "</i12>", "<g3>", "<b>", "<0>", "< b0>", "<b0", "</x1/>", "<"
+    };
+    private static final String[] SPACES = {" ", " ", " ", "\t", "\n", " ", "  "};
+
+    private File tmpDir;
+    private Reference reference;
+
+    /**
+     * Upstream post-processing chain of {@code BaseTranslate}.
+     */
+    private static final class Reference extends DeepLTranslate2 {
+        Reference() {
+            super("http://localhost:1", "deepl8reference8key");
+        }
+
+        @Override
+        public ProjectProperties getProjectProperties() {
+            return null;
+        }
+
+        String chain(String translation, String source) {
+            return cleanSpacesAroundTags(unescapeHTML(translation), source);
+        }
+
+        String clean(String translation, String source) {
+            return cleanSpacesAroundTags(translation, source);
+        }
+
+        ResultPostProcessor newProcessor() {
+            return new ResultPostProcessor(this::cleanSpacesAroundTags);
+        }
+    }
+
+    @BeforeEach
+    public final void setUp() throws IOException {
+        tmpDir = Files.createTempDirectory("omegat").toFile();
+        File prefsFile = new File(tmpDir, Preferences.FILE_PREFERENCES);
+        Preferences.IPreferences prefs = new PreferencesImpl(new PreferencesXML(null, prefsFile));
+        prefs.setPreference(DeepLTranslate2.ALLOW_DEEPL_TRANSLATE, true);
+        RuntimePreferences.setConfigDir(prefsFile.getAbsolutePath());
+        Preferences.init();
+        reference = new Reference();
+    }
+
+    @AfterEach
+    public final void tearDown() throws IOException {
+        FileUtils.deleteDirectory(tmpDir);
+    }
+
+    @Test
+    void testFixtures() {
+        ResultPostProcessor processor = reference.newProcessor();
+        String[][] fixtures = {
+            {"Drücken Sie <b0> Speichern </b0>.", "Press <b0>Save</b0>."},
+            {"Drücken Sie <b0> Speichern </b0>.", "Press <b0> Save </b0>."},
+            {"&quot;Entwurf&quot; &amp; <x2/> weiter", "\"draft\" & <x2/> continue"},
+            {"a <b0> <b1> b", "a<b0><b1>b"},
+            {"a <b0> <b1> b", "a <b0> <b1> b"},
+            {"a <b0> <b1> b", "a<b0> <b1>b"},
+            {"&amp;#39; &amp;amp;#39; &amp;quot; &#39;", "x"},
+            {"&lt;b0&gt; x &lt;/b0&gt;", "<b0>x</b0>"},
+            {"x&nbsp;<b0>y", "x<b0>y"},
+            {"<b0>\tx\n</b0>", "<b0>x</b0>"},
+            {"<b0>  x  </b0>", "<b0>x</b0>"},
+            {"<b0>  x <b0>  y <b0> z", "<b0> z"},
+            {"x <b0>", "x<b0>"},
+            {"", ""},
+            {"<b0> ", ""},
+            {" <b0>", ""},
+            {"&", "&"},
+        };
+        for (String[] fixture : fixtures) {
+            assertEquals(
+                    reference.chain(fixture[0], fixture[1]), processor.process(fixture[0], fixture[1]), fixture[0]);
+            assertEquals(
+                    reference.clean(fixture[0], fixture[1]),
+                    processor.cleanSpacesAroundTags(fixture[0], fixture[1]),
+                    fixture[0]);
+        }
+    }
+
+    @Test
+    void testGeneratedCorpus() {
+        ResultPostProcessor processor = reference.newProcessor();
+        Random random = new Random(20260210L);
+        for (int n = 0; n < 50_000; n++) {
+            String translation = randomText(random, 1 + random.nextInt(24));
+            String source = random.nextInt(4) == 0 ? translation : randomText(random, random.nextInt(24));
+            assertEquals(
+                    reference.chain(translation, source),
+                    processor.process(translation, source),
+                    () -> "translation: " + translation + ", source: " + source);
+            assertEquals(
+                    reference.clean(translation, source),
+                    processor.cleanSpacesAroundTags(translation, source),
+                    () -> "translation: " + translation + ", source: " + source);
+        }
+    }
+
+    @Test
+    void testCommonResultsNeedNoFallback() {
+        ResultPostProcessor processor = new ResultPostProcessor((translation, source) -> {
+            throw new AssertionError("fallback used for " + translation);
+        });
+        assertEquals(
+                "Drücken Sie <b0>Speichern</b0> und dann <i1>OK</i1>, um den "
+                        + "\"Entwurf\" zu behalten & <x2/>fortzufahren.",
+                processor.process(
+                        "Drücken Sie <b0> Speichern </b0> und dann <i1>OK </i1>, um den "
+                                + "&quot;Entwurf&quot; zu behalten &amp; <x2/> fortzufahren.",
+                        "Press <b0>Save</b0> and then <i1>OK</i1> to keep the \"draft\" & <x2/>continue."));
+        assertEquals("a <b0>b</b0> c", processor.process("a <b0> b </b0> c", "a <b0>b</b0> c"));
+    }
+
+    @Test
+    void testUnchangedResultIsReturnedAsIs() {
+        ResultPostProcessor processor = reference.newProcessor();
+        String plain = "Drücken Sie die Taste, um das Dokument zu speichern.";
+        assertSame(plain, processor.process(plain, "Press the button to save the document."));
+        String tagged = "Drücken Sie <b0>Speichern</b0>.";
+        assertSame(tagged, processor.process(tagged, "Press <b0>Save</b0>."));
+        String spaced = "Drücken Sie <b0> Speichern </b0>.";
+        assertSame(spaced, processor.process(spaced, "Press <b0> Save </b0>."));
+    }
+
+    private static String randomText(Random random, int parts) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < parts; i++) {
+            int kind = random.nextInt(10);
+            if (kind < 3) {
+                sb.append(WORDS[random.nextInt(WORDS.length)]);
+            } else if (kind < 5) {
+                sb.append(ENTITIES[random.nextInt(ENTITIES.length)]);
+            } else if (kind < 7) {
+                sb.append(TAGS[random.nextInt(TAGS.length)]);
+            } else {
+                sb.append(SPACES[random.nextInt(SPACES.length)]);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.omegat.machinetranslators.deepl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class SegmentTemplateTest {
+
+    @Test
+    void testNumbersAreMasked() {
+        SegmentTemplate template = SegmentTemplate.of("Page 3 of 1,234.5");
+        assertEquals("Page {0} of {1}", template.getTemplate());
+        assertEquals(List.of("3", "1,234.5"), template.getValues());
+        assertEquals("Seite 3 von 1,234.5", template.apply("Seite {0} von {1}"));
+    }
+
+    @Test
+    void testUrlsTagsAndPlaceholdersAreMasked() {
+        SegmentTemplate template = SegmentTemplate.of("See <a0>https://example.com/a?b=1</a0>. Or {0}.");
+        assertEquals("See {0}{1}{2}. Or {3}.", template.getTemplate());
+        assertEquals(List.of("<a0>", "https://example.com/a?b=1", "</a0>", "{0}"), template.getValues());
+    }
+
+    @Test
+    void testWordsWithDigitsAreKept() {
+        assertNull(SegmentTemplate.of("Convert MP3 files on the 2nd day"));
+        assertNull(SegmentTemplate.of("No variable part"));
+    }
+
+    @Test
+    void testReorderedPlaceholders() {
+        SegmentTemplate template = SegmentTemplate.of("5 files in 2 folders");
+        assertEquals("2 Ordner mit 5 Dateien", template.apply("{1} Ordner mit {0} Dateien"));
+    }
+
+    @Test
+    void testMismatchFails() {
+        SegmentTemplate template = SegmentTemplate.of("5 files in 2 folders");
+        assertNull(template.apply("{0} Dateien"));
+        assertNull(template.apply("{0} Dateien in {0} Ordnern"));
+        assertNull(template.apply("{0} Dateien in {1} Ordnern {2}"));
+        assertNull(template.apply(null));
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package org.omegat.machinetranslators.deepl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.List;
+import java.util.Locale;
+import org.junit.jupiter.api.Test;
+
+public class SentenceSplitterTest {
+
+    @Test
+    void testSplitKeepsWhitespace() {
+        SentenceSplitter.Split split = SentenceSplitter.split(" Open the file.  Save it!\nClose it? ", Locale.ENGLISH);
+        assertEquals(List.of("Open the file.", "Save it!", "Close it?"), split.getSentences());
+        assertEquals(" A.  B!\nC? ", split.join(List.of("A.", "B!", "C?")));
+    }
+
+    @Test
+    void testSingleSentenceIsNotSplit() {
+        assertNull(SentenceSplitter.split("Open the file.", Locale.ENGLISH));
+        assertNull(SentenceSplitter.split("Version 1.2 of the tool", Locale.ENGLISH));
+        assertNull(SentenceSplitter.split("   ", null));
+    }
+
+    @Test
+    void testJapaneseSentences() {
+        SentenceSplitter.Split split = SentenceSplitter.split("ファイルを開く。保存する。", Locale.JAPANESE);
+        assertEquals(List.of("ファイルを開く。", "保存する。"), split.getSentences());
+    }
+}
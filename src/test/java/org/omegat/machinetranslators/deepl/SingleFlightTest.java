@@ -0,0 +1,141 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package org.omegat.machinetranslators.deepl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.omegat.core.machinetranslators.MachineTranslateError;
+
+public class SingleFlightTest {
+
+    @Test
+    void testFollowersShareTheResult() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> run(flight, () -> {
+            calls.incrementAndGet();
+            started.countDown();
+            await(release);
+            return "result";
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> follower = CompletableFuture.supplyAsync(() -> run(flight, () -> {
+            calls.incrementAndGet();
+            return "other";
+        }));
+        waitForFollower();
+        release.countDown();
+        assertEquals("result", leader.get(5, TimeUnit.SECONDS));
+        assertEquals("result", follower.get(5, TimeUnit.SECONDS));
+        assertEquals(1, calls.get());
+        assertEquals(0, flight.inFlightCount());
+    }
+
+    @Test
+    void testFollowerRunsTheCallWhenTheLeaderIsInterrupted() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        CountDownLatch started = new CountDownLatch(1);
+        Thread[] leaderThread = new Thread[1];
+        CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> run(flight, () -> {
+            leaderThread[0] = Thread.currentThread();
+            started.countDown();
+            try {
+                Thread.sleep(10_000);
+                return "late";
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MachineTranslateError("interrupted", e);
+            }
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> follower = CompletableFuture.supplyAsync(() -> run(flight, () -> "own result"));
+        waitForFollower();
+        leaderThread[0].interrupt();
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause().getCause() instanceof MachineTranslateError);
+        assertEquals("own result", follower.get(5, TimeUnit.SECONDS));
+        assertEquals(0, flight.inFlightCount());
+    }
+
+    @Test
+    void testFollowersShareAnError() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> run(flight, () -> {
+            started.countDown();
+            await(release);
+            throw new MachineTranslateError("quota");
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        AtomicInteger followerCalls = new AtomicInteger();
+        CompletableFuture<String> follower = CompletableFuture.supplyAsync(() -> run(flight, () -> {
+            followerCalls.incrementAndGet();
+            return "other";
+        }));
+        waitForFollower();
+        release.countDown();
+        assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+        ExecutionException e = assertThrows(ExecutionException.class, () -> follower.get(5, TimeUnit.SECONDS));
+        assertEquals("quota", e.getCause().getCause().getMessage());
+        assertEquals(0, followerCalls.get());
+    }
+
+    private static String run(SingleFlight<String, String> flight, SingleFlight.Call<String> call) {
+        try {
+            return flight.execute("key", call);
+        } catch (MachineTranslateError | InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Leaves the follower time to join the call in flight.
+     */
+    private static void waitForFollower() throws InterruptedException {
+        Thread.sleep(200);
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ *  OmegaT - Computer Assisted Translation (CAT) tool
+ *           with fuzzy matching, translation memory, keyword search,
+ *           glossaries, and translation leveraging into updated projects.
+ *
+ *  Copyright (C) 2026 Hiroshi Miura
+ *                Home page: https://www.omegat.org/
+ *                Support center: https://omegat.org/support
+ *
+ *  This file is part of OmegaT.
+ *
+ *  OmegaT is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  OmegaT is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package org.omegat.machinetranslators.deepl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.jupiter.api.Test;
+
+public class XmlTagCodecTest {
+
+    @Test
+    void testEncodeTags() {
+        XmlTagCodec.Encoded encoded = XmlTagCodec.encode("Press <b0>Save</b0> & <x1/> then 1 < 2 > 0.");
+        assertEquals("Press <t i=\"0\">Save</t> &amp; <t i=\"2\"/> then 1 &lt; 2 &gt; 0.", encoded.getXml());
+        assertEquals(Arrays.asList("<b0>", "</b0>", "<x1/>"), encoded.getTags());
+        assertEquals(1, encoded.getEnd(0));
+        assertEquals(-1, encoded.getEnd(2));
+    }
+
+    @Test
+    void testEncodeNestedAndUnpairedTags() {
+        XmlTagCodec.Encoded encoded = XmlTagCodec.encode("<g0><b1>a</b1></g0> <i2>b <u3>c</i2> d</u3> e</b4>");
+        assertEquals(
+                "<t i=\"0\"><t i=\"1\">a</t></t> <t i=\"4\"/>b <t i=\"5\">c<t i=\"6\"/> d</t> e<t i=\"8\"/>",
+                encoded.getXml());
+    }
+
+    @Test
+    void testEncodeLeavesNonOmegatMarkup() {
+        XmlTagCodec.Encoded encoded = XmlTagCodec.encode("<b>bold</b> <0> <a1");
+        assertEquals("&lt;b&gt;bold&lt;/b&gt; &lt;0&gt; &lt;a1", encoded.getXml());
+        assertEquals(Collections.emptyList(), encoded.getTags());
+    }
+
+    @Test
+    void testDecodeRestoresTags() {
+        XmlTagCodec.Encoded encoded = XmlTagCodec.encode("Press <b0>Save</b0> & <x1/> now.");
+        String result =
+                XmlTagCodec.decode("Drücken Sie jetzt <t i=\"0\">Speichern</t> &amp; <t i=\"2\"/>.", encoded);
+        assertEquals("Drücken Sie jetzt <b0>Speichern</b0> & <x1/>.", result);
+    }
+
+    @Test
+    void testDecodeEntities() {
+        assertEquals(
+                "\"a\" 'b' <c> é € &unknown; & x",
+                XmlTagCodec.decode(
+                        "&quot;a&quot; &apos;b&apos; &lt;c&gt; &#233; &#x20AC; &unknown; & x", XmlTagCodec.encode("")));
+    }
+
+    @Test
+    void testDecodeRejectsChangedElements() {
+        XmlTagCodec.Encoded encoded = XmlTagCodec.encode("Press <b0>Save</b0> & <x1/> now.");
+        // Dropped.
+        assertNull(XmlTagCodec.decode("Jetzt <t i=\"0\">Speichern</t> drücken.", encoded));
+        assertNull(XmlTagCodec.decode("Jetzt Speichern <t i=\"2\"/> drücken.", encoded));
+        // Repeated, invented or turned into another kind of element.
+        assertNull(XmlTagCodec.decode("<t i=\"0\">a</t> <t i=\"2\"/> <t i=\"2\"/>", encoded));
+        assertNull(XmlTagCodec.decode("<t i=\"0\">a</t> <t i=\"2\"/> <t i=\"5\"/>", encoded));
+        assertNull(XmlTagCodec.decode("<t i=\"0\">a</t> <t i=\"2\"/> <b>c</b>", encoded));
+        assertNull(XmlTagCodec.decode("<t i=\"0\"/>a <t i=\"2\"/>", encoded));
+        assertNull(XmlTagCodec.decode("<t i=\"0\">a</t> <t i=\"1\"/> <t i=\"2\"/>", encoded));
+        // Unclosed or closed twice.
+        assertNull(XmlTagCodec.decode("<t i=\"0\">a <t i=\"2\"/>", encoded));
+        assertNull(XmlTagCodec.decode("<t i=\"0\">a</t></t> <t i=\"2\"/>", encoded));
+    }
+
+    @Test
+    void testDecodeKeepsMovedElements() {
+        XmlTagCodec.Encoded encoded = XmlTagCodec.encode("<b0>Save</b0> the <x1/>file");
+        assertEquals(
+                "Die <x1/>Datei <b0>speichern</b0>",
+                XmlTagCodec.decode("Die <t i=\"2\"/>Datei <t i=\"0\">speichern</t>", encoded));
+    }
+
+    @Test
+    void testRoundTrip() {
+        String source = "<g0>Tom & Jerry</g0> <x1/>say \"<b2>1 < 2</b2>\" <i3>open";
+        XmlTagCodec.Encoded encoded = XmlTagCodec.encode(source);
+        assertEquals(source, XmlTagCodec.decode(encoded.getXml(), encoded));
+    }
+}